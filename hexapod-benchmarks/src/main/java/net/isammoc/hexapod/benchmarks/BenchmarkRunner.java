@@ -0,0 +1,24 @@
+package net.isammoc.hexapod.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the GC profiler, so that each benchmark reports
+ * its allocation rate along with its throughput.
+ * <p>
+ * Arguments are the usual JMH command line options, a benchmark pattern for
+ * instance.
+ */
+public class BenchmarkRunner {
+
+	public static void main(final String[] args)
+			throws CommandLineOptionException, RunnerException {
+		final CommandLineOptions options = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+	}
+}
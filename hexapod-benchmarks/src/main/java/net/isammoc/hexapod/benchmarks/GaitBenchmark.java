@@ -0,0 +1,44 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.communication.LegMessageView;
+import net.isammoc.hexapod.gait.GaitGenerator;
+import net.isammoc.hexapod.gait.GaitTable;
+import net.isammoc.hexapod.gait.GaitType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Streaming of a precomputed gait, one pose per operation, and the
+ * precomputation of a table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GaitBenchmark {
+	private final GaitGenerator generator = new GaitGenerator(GaitType.RIPPLE, 3f, 0.3f, 1.5f, 1.5f);
+	private final LegMessageView view = new LegMessageView();
+
+	@Benchmark
+	public LegMessageView next() {
+		this.generator.next(1f / 1000, this.view);
+		return this.view;
+	}
+
+	@Benchmark
+	public GaitTable newGaitTable() {
+		return new GaitTable(GaitType.RIPPLE, 3f, 0.3f, 1.5f);
+	}
+}
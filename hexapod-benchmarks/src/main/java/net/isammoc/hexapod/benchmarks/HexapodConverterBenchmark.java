@@ -0,0 +1,83 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodConverter;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.JointState;
+import net.isammoc.hexapod.ServoCalibration;
+import net.isammoc.hexapod.WantedAnglesAware;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversion of servo values to wanted angles, to a target that only
+ * consumes the angles, and back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexapodConverterBenchmark {
+	private static final HexapodLeg[] LEGS = HexapodLeg.values();
+	private static final HexapodArticulation[] ARTICULATIONS = HexapodArticulation.values();
+
+	private HexapodConverter converter;
+	private LegMessage message;
+	private final JointState angles = new JointState();
+	private final LegMessageView view = new LegMessageView();
+	private int value = 1;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		this.converter = new HexapodConverter(new WantedAnglesAware() {
+			@Override
+			public void setWantedAngle(final HexapodLeg leg, final HexapodArticulation articulation,
+					final float value) {
+				blackhole.consume(value);
+			}
+		});
+		this.message = new LegMessage();
+		ServoCalibration.DEFAULT.decode(this.message, this.angles);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(18)
+	public void setValue() {
+		this.value = (this.value % 254) + 1;
+		for (final HexapodLeg leg : LEGS) {
+			for (final HexapodArticulation articulation : ARTICULATIONS) {
+				this.converter.setValue(leg, articulation, this.value);
+			}
+		}
+	}
+
+	/** A whole pose, as received from the controller. */
+	@Benchmark
+	public void setMessage() {
+		this.converter.setMessage(this.message);
+	}
+
+	/** A whole pose back to servo bytes, as sent to a controller. */
+	@Benchmark
+	public LegMessageView encode() {
+		ServoCalibration.DEFAULT.encode(this.angles, this.view);
+		return this.view;
+	}
+}
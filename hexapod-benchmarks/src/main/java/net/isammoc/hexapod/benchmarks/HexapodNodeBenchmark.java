@@ -0,0 +1,98 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.HexapodNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsSpace.BroadphaseType;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+
+/**
+ * Control loop of a hexapod standing on a floor, in a physics space without
+ * any rendering. The hexapod switches between two poses every second of
+ * simulation, so that its joints keep moving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexapodNodeBenchmark {
+	private static final float TPF = 1f / 60;
+	private static final float SUBSTEP = 0.005f;
+	private static final int STEPS_PER_POSE = 60;
+
+	private PhysicsSpace space;
+	private HexapodNode hexapod;
+	private int steps;
+	private boolean raised;
+
+	@Setup
+	public void setUp() {
+		this.space = new PhysicsSpace(new Vector3f(-100, -10, -100), new Vector3f(100, 100, 100),
+				BroadphaseType.DBVT);
+		this.space.setAccuracy(SUBSTEP);
+
+		final PhysicsRigidBody floor = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(100f, 0.1f, 50f)),
+				0);
+		floor.setPhysicsLocation(new Vector3f(0, -0.1f, 0));
+		floor.setFriction(10000f);
+		this.space.addCollisionObject(floor);
+
+		this.hexapod = new HexapodNode();
+		this.hexapod.setLocalTransform(new Transform(new Vector3f(0, 10, 0)));
+		this.space.addAll(this.hexapod);
+		this.space.addTickListener(this.hexapod);
+		this.setPose(false);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.space.destroy();
+	}
+
+	private void setPose(final boolean raise) {
+		this.raised = raise;
+		final float elbow = raise ? 0.4f : 0f;
+		for (final HexapodLeg leg : HexapodLeg.values()) {
+			this.hexapod.setWantedAngle(leg, HexapodArticulation.SHOULDER, 0f);
+			this.hexapod.setWantedAngle(leg, HexapodArticulation.ELBOW, elbow);
+			this.hexapod.setWantedAngle(leg, HexapodArticulation.WRIST, 0f);
+		}
+	}
+
+	/** The controller alone, as called once per physics substep. */
+	@Benchmark
+	public void prePhysicsTick() {
+		this.hexapod.prePhysicsTick(this.space, SUBSTEP);
+	}
+
+	/** A whole frame: the physics substeps, each controlling the joints. */
+	@Benchmark
+	public void frame() {
+		if (++this.steps == STEPS_PER_POSE) {
+			this.steps = 0;
+			this.setPose(!this.raised);
+		}
+		this.space.update(TPF);
+	}
+}
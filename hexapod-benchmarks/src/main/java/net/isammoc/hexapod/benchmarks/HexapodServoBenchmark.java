@@ -0,0 +1,43 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.HexapodServo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookup of the servo of a leg and an articulation, over the 18 servos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexapodServoBenchmark {
+	private static final HexapodLeg[] LEGS = HexapodLeg.values();
+	private static final HexapodArticulation[] ARTICULATIONS = HexapodArticulation.values();
+
+	@Benchmark
+	@OperationsPerInvocation(18)
+	public void fromLegArticulation(final Blackhole blackhole) {
+		for (final HexapodLeg leg : LEGS) {
+			for (final HexapodArticulation articulation : ARTICULATIONS) {
+				blackhole.consume(HexapodServo.fromLegArticulation(leg, articulation));
+			}
+		}
+	}
+}
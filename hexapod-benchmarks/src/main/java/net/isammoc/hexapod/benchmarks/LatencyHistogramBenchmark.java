@@ -0,0 +1,50 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.communication.LatencyHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recording of link latencies, spread over several orders of magnitude, and
+ * reading of a percentile.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyHistogramBenchmark {
+	private final LatencyHistogram histogram = new LatencyHistogram();
+	private long nanos = 1;
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < 100000; i++) {
+			this.record();
+		}
+	}
+
+	/** A pseudo-random duration below a second. */
+	@Benchmark
+	public void record() {
+		this.nanos = (this.nanos * 31 + 7) & ((1L << 30) - 1);
+		this.histogram.record(this.nanos);
+	}
+
+	@Benchmark
+	public long percentile() {
+		return this.histogram.getPercentileNanos(99);
+	}
+}
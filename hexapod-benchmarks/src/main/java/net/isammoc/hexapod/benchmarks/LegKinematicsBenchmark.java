@@ -0,0 +1,59 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.JointState;
+import net.isammoc.hexapod.ServoCalibration;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+import net.isammoc.hexapod.kinematics.FootPositions;
+import net.isammoc.hexapod.kinematics.LegKinematics;
+import net.isammoc.hexapod.kinematics.LegKinematicsGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inverse kinematics of the six legs, then encoding of the servo bytes, one
+ * whole body per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegKinematicsBenchmark {
+	private final LegKinematics exact = new LegKinematics();
+	private final LegKinematics grid = new LegKinematicsGrid();
+	private final FootPositions feet = new FootPositions();
+	private final JointState angles = new JointState();
+	private final LegMessageView view = new LegMessageView();
+
+	@Setup
+	public void setUp() {
+		ServoCalibration.DEFAULT.decode(new LegMessage(), this.angles);
+		this.exact.forward(this.angles, this.feet);
+		this.feet.translate(0.5f, -0.3f, 1f);
+	}
+
+	@Benchmark
+	public LegMessageView solveExact() {
+		this.exact.solve(this.feet, ServoCalibration.DEFAULT, this.angles, this.view);
+		return this.view;
+	}
+
+	@Benchmark
+	public LegMessageView solveGrid() {
+		this.grid.solve(this.feet, ServoCalibration.DEFAULT, this.angles, this.view);
+		return this.view;
+	}
+}
@@ -0,0 +1,79 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.communication.BasicMessage;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.MessageFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction and serialization of messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+	private byte[] bytes;
+	private int[] values;
+	private BasicMessage basicMessage;
+	private LegMessage legMessage;
+
+	@Setup
+	public void setUp() {
+		this.bytes = new byte[BasicMessage.MESSAGE_LENGTH];
+		this.values = new int[BasicMessage.MESSAGE_LENGTH];
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			this.values[i] = 1 + ((i * 37) % 254);
+			this.bytes[i] = (byte) this.values[i];
+		}
+		this.basicMessage = MessageFactory.newMessage(this.bytes);
+		this.legMessage = new LegMessage();
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			this.legMessage.setUnsignedByte(i, this.values[i]);
+		}
+	}
+
+	@Benchmark
+	public BasicMessage newBasicMessage() {
+		return new BasicMessage();
+	}
+
+	@Benchmark
+	public LegMessage newLegMessage() {
+		return new LegMessage();
+	}
+
+	@Benchmark
+	public byte[] basicMessageToByteArray() {
+		return this.basicMessage.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] legMessageToByteArray() {
+		return this.legMessage.toByteArray();
+	}
+
+	@Benchmark
+	public BasicMessage newMessageFromBytes() {
+		return MessageFactory.newMessage(this.bytes);
+	}
+
+	@Benchmark
+	public BasicMessage newMessageFromInts() {
+		return MessageFactory.newMessage(this.values);
+	}
+}
@@ -0,0 +1,73 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.communication.FrameEncoder;
+import net.isammoc.hexapod.communication.HexapodMessageInputStream;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading of frames from an in-memory stream, one frame per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageInputStreamBenchmark {
+	private static final int FRAMES = 1024;
+
+	private ByteArrayInputStream bytes;
+	private HexapodMessageInputStream in;
+	private final LegMessageView view = new LegMessageView();
+
+	@Setup
+	public void setUp() {
+		final ByteBuffer frames = ByteBuffer.allocate(FRAMES * FrameEncoder.FRAME_LENGTH);
+		final LegMessage msg = new LegMessage();
+		for (int i = 0; i < FRAMES; i++) {
+			msg.setUnsignedByte(i % 21, 1 + (i % 254));
+			FrameEncoder.encode(msg, frames);
+		}
+		this.bytes = new ByteArrayInputStream(frames.array());
+		this.in = new HexapodMessageInputStream(this.bytes);
+	}
+
+	/** Start over at the end of the frames, without allocating. */
+	private void rewind() {
+		if (this.bytes.available() < FrameEncoder.FRAME_LENGTH) {
+			this.bytes.reset();
+		}
+	}
+
+	@Benchmark
+	public LegMessage readMessage()
+			throws IOException {
+		this.rewind();
+		return this.in.readMessage();
+	}
+
+	@Benchmark
+	public LegMessageView readMessageView()
+			throws IOException {
+		this.rewind();
+		this.in.readMessage(this.view);
+		return this.view;
+	}
+}
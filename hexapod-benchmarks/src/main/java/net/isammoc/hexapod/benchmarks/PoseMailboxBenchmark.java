@@ -0,0 +1,60 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.LegMessageAware;
+import net.isammoc.hexapod.PoseMailbox;
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.communication.LegMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Handover of poses from the reading thread to the physics thread, both
+ * running at once: the reader publishes without pause, the simulation
+ * delivers the latest pose.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoseMailboxBenchmark {
+	private final PoseMailbox mailbox = new PoseMailbox();
+	private final LegMessage message = new LegMessage();
+	private LegMessageAware target;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		this.target = new LegMessageAware() {
+			@Override
+			public void setMessage(final ILegMessage msg) {
+				blackhole.consume(msg.getUnsignedByte(0));
+			}
+		};
+	}
+
+	@Benchmark
+	@Group("handover")
+	public void publish() {
+		this.mailbox.setMessage(this.message);
+	}
+
+	@Benchmark
+	@Group("handover")
+	public boolean deliver() {
+		return this.mailbox.deliver(this.target);
+	}
+}
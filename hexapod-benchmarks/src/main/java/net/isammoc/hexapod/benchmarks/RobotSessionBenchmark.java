@@ -0,0 +1,107 @@
+package net.isammoc.hexapod.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+
+import net.isammoc.hexapod.LegMessageAware;
+import net.isammoc.hexapod.RobotSession;
+import net.isammoc.hexapod.communication.FrameEncoder;
+import net.isammoc.hexapod.communication.HexapodMessageInputStream;
+import net.isammoc.hexapod.communication.HexapodProtocol;
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.events.DecodeEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A pose through a {@link RobotSession}: decoded, executed, settled and
+ * acknowledged, with the Flight Recorder events left disabled or recorded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotSessionBenchmark {
+	@Param({ "false", "true" })
+	private boolean recorded;
+
+	private final ByteBuffer frame = ByteBuffer.allocate(FrameEncoder.FRAME_LENGTH);
+	private RobotSession session;
+	private WritableByteChannel out;
+	private Recording recording;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		final LegMessage msg = new LegMessage();
+		for (int i = 0; i < 21; i++) {
+			msg.setUnsignedByte(i, 1 + i);
+		}
+		FrameEncoder.encode(msg, this.frame);
+		this.session = new RobotSession(0, new LegMessageAware() {
+			@Override
+			public void setMessage(final ILegMessage msg) {
+				blackhole.consume(msg.getUnsignedByte(0));
+			}
+		}, HexapodProtocol.PIPELINED, HexapodMessageInputStream.CHUNK_SIZE);
+		this.session.open(null);
+		this.out = new WritableByteChannel() {
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+				// Nothing to release
+			}
+
+			@Override
+			public int write(final ByteBuffer src) {
+				final int written = src.remaining();
+				src.position(src.limit());
+				return written;
+			}
+		};
+		if (this.recorded) {
+			this.recording = new Recording();
+			this.recording.enable(DecodeEvent.class).withoutThreshold();
+			this.recording.start();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (this.recording != null) {
+			this.recording.close();
+		}
+	}
+
+	@Benchmark
+	public boolean pose()
+			throws IOException {
+		this.frame.rewind();
+		this.session.decode(this.frame);
+		this.session.notifyHexapodStopped();
+		this.session.poll(System.nanoTime());
+		return this.session.flush(this.out);
+	}
+}
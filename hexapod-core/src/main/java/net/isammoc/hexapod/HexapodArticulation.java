@@ -1,7 +1,7 @@
-package net.isammoc.hexapod;
-
-public enum HexapodArticulation {
-	WRIST,
-	ELBOW,
-	SHOULDER;
-}
+package net.isammoc.hexapod;
+
+public enum HexapodArticulation {
+	WRIST,
+	ELBOW,
+	SHOULDER;
+}
@@ -1,10 +1,10 @@
-package net.isammoc.hexapod;
-
-public enum HexapodLeg {
-	RIGHT_FRONT,
-	RIGHT_MIDDLE,
-	RIGHT_REAR,
-	LEFT_REAR,
-	LEFT_MIDDLE,
-	LEFT_FRONT;
-}
+package net.isammoc.hexapod;
+
+public enum HexapodLeg {
+	RIGHT_FRONT,
+	RIGHT_MIDDLE,
+	RIGHT_REAR,
+	LEFT_REAR,
+	LEFT_MIDDLE,
+	LEFT_FRONT;
+}
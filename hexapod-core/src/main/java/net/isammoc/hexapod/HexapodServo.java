@@ -1,69 +1,104 @@
-package net.isammoc.hexapod;
-
-import static net.isammoc.hexapod.HexapodArticulation.ELBOW;
-import static net.isammoc.hexapod.HexapodArticulation.SHOULDER;
-import static net.isammoc.hexapod.HexapodArticulation.WRIST;
-import static net.isammoc.hexapod.HexapodLeg.LEFT_FRONT;
-import static net.isammoc.hexapod.HexapodLeg.LEFT_MIDDLE;
-import static net.isammoc.hexapod.HexapodLeg.LEFT_REAR;
-import static net.isammoc.hexapod.HexapodLeg.RIGHT_FRONT;
-import static net.isammoc.hexapod.HexapodLeg.RIGHT_MIDDLE;
-import static net.isammoc.hexapod.HexapodLeg.RIGHT_REAR;
-
-import java.util.EnumMap;
-import java.util.Map;
-
-public enum HexapodServo {
-	S1(RIGHT_FRONT, WRIST),
-	S2(RIGHT_FRONT, ELBOW),
-	S3(RIGHT_FRONT, SHOULDER),
-	S4(RIGHT_MIDDLE, WRIST),
-	S5(RIGHT_MIDDLE, ELBOW),
-	S6(RIGHT_MIDDLE, SHOULDER),
-	S7(RIGHT_REAR, WRIST),
-	S8(RIGHT_REAR, ELBOW),
-	S9(RIGHT_REAR, SHOULDER),
-	S10(LEFT_REAR, WRIST),
-	S11(LEFT_REAR, ELBOW),
-	S12(LEFT_REAR, SHOULDER),
-	S13(LEFT_MIDDLE, WRIST),
-	S14(LEFT_MIDDLE, ELBOW),
-	S15(LEFT_MIDDLE, SHOULDER),
-	S16(LEFT_FRONT, WRIST),
-	S17(LEFT_FRONT, ELBOW),
-	S18(LEFT_FRONT, SHOULDER),
-	S19(null, null),
-	S20(null, null),
-	S21(null, null);
-
-	private final HexapodLeg leg;
-	private final HexapodArticulation articulation;
-	private static final Map<HexapodLeg,Map<HexapodArticulation,HexapodServo>> dictionnary;
-	static {
-		dictionnary = new EnumMap<HexapodLeg, Map<HexapodArticulation,HexapodServo>>(HexapodLeg.class);
-		for(HexapodLeg leg: HexapodLeg.values()){
-			dictionnary.put(leg, new EnumMap<HexapodArticulation, HexapodServo>(HexapodArticulation.class));
-		}
-		
-		for(HexapodServo servo : HexapodServo.values()){
-			if(servo.leg != null && servo.articulation != null) {
-				dictionnary.get(servo.leg).put(servo.articulation, servo);
-			}
-		}
-	}
-
-	private HexapodServo(HexapodLeg leg, HexapodArticulation articulation) {
-		this.leg = leg;
-		this.articulation = articulation;
-	}
-	
-	public static HexapodServo fromLegArticulation(HexapodLeg leg, HexapodArticulation articulation){
-		if(leg == null){
-			throw new IllegalArgumentException("leg must not be null");
-		}
-		if(articulation == null) {
-			throw new IllegalArgumentException("articulation must not be null");
-		}
-		return dictionnary.get(leg).get(articulation);
-	}
-}
\ No newline at end of file
+package net.isammoc.hexapod;
+
+import static net.isammoc.hexapod.HexapodArticulation.ELBOW;
+import static net.isammoc.hexapod.HexapodArticulation.SHOULDER;
+import static net.isammoc.hexapod.HexapodArticulation.WRIST;
+import static net.isammoc.hexapod.HexapodLeg.LEFT_FRONT;
+import static net.isammoc.hexapod.HexapodLeg.LEFT_MIDDLE;
+import static net.isammoc.hexapod.HexapodLeg.LEFT_REAR;
+import static net.isammoc.hexapod.HexapodLeg.RIGHT_FRONT;
+import static net.isammoc.hexapod.HexapodLeg.RIGHT_MIDDLE;
+import static net.isammoc.hexapod.HexapodLeg.RIGHT_REAR;
+
+public enum HexapodServo {
+	S1(RIGHT_FRONT, WRIST),
+	S2(RIGHT_FRONT, ELBOW),
+	S3(RIGHT_FRONT, SHOULDER),
+	S4(RIGHT_MIDDLE, WRIST),
+	S5(RIGHT_MIDDLE, ELBOW),
+	S6(RIGHT_MIDDLE, SHOULDER),
+	S7(RIGHT_REAR, WRIST),
+	S8(RIGHT_REAR, ELBOW),
+	S9(RIGHT_REAR, SHOULDER),
+	S10(LEFT_REAR, WRIST),
+	S11(LEFT_REAR, ELBOW),
+	S12(LEFT_REAR, SHOULDER),
+	S13(LEFT_MIDDLE, WRIST),
+	S14(LEFT_MIDDLE, ELBOW),
+	S15(LEFT_MIDDLE, SHOULDER),
+	S16(LEFT_FRONT, WRIST),
+	S17(LEFT_FRONT, ELBOW),
+	S18(LEFT_FRONT, SHOULDER),
+	S19(null, null),
+	S20(null, null),
+	S21(null, null);
+
+	/** Number of servos driving a joint of a leg, S1 to S18. */
+	public static final int JOINT_COUNT = 18;
+
+	private static final HexapodServo[] VALUES = values();
+	private static final int ARTICULATION_COUNT = HexapodArticulation.values().length;
+
+	private final HexapodLeg leg;
+	private final HexapodArticulation articulation;
+
+	/** Ordinal of the servo, indexed by leg ordinal * 3 + articulation ordinal. */
+	private static final int[] JOINT_INDEXES;
+	static {
+		JOINT_INDEXES = new int[HexapodLeg.values().length * ARTICULATION_COUNT];
+		for (HexapodServo servo : VALUES) {
+			if (servo.leg != null && servo.articulation != null) {
+				JOINT_INDEXES[servo.leg.ordinal() * ARTICULATION_COUNT + servo.articulation.ordinal()] = servo.ordinal();
+			}
+		}
+	}
+
+	private HexapodServo(HexapodLeg leg, HexapodArticulation articulation) {
+		this.leg = leg;
+		this.articulation = articulation;
+	}
+
+	/** @return the leg of the joint, <code>null</code> for S19 to S21. */
+	public HexapodLeg getLeg() {
+		return this.leg;
+	}
+
+	/** @return the articulation of the joint, <code>null</code> for S19 to S21. */
+	public HexapodArticulation getArticulation() {
+		return this.articulation;
+	}
+
+	/**
+	 * @param leg
+	 * @param articulation
+	 * @return the ordinal of the servo of the joint, between 0 and
+	 *         {@link #JOINT_COUNT} (exclusive).
+	 */
+	public static int jointIndex(HexapodLeg leg, HexapodArticulation articulation) {
+		if (leg == null) {
+			throw new IllegalArgumentException("leg must not be null");
+		}
+		if (articulation == null) {
+			throw new IllegalArgumentException("articulation must not be null");
+		}
+		return JOINT_INDEXES[leg.ordinal() * ARTICULATION_COUNT + articulation.ordinal()];
+	}
+
+	/**
+	 * @param joint
+	 *            ordinal of the servo, between 0 and {@link #JOINT_COUNT}
+	 *            (exclusive).
+	 * @return the servo of the joint, without the copy of {@link #values()}.
+	 */
+	public static HexapodServo fromJointIndex(int joint) {
+		if (joint < 0 || joint >= JOINT_COUNT) {
+			throw new IndexOutOfBoundsException("joint must be comprised between 0 and " + (JOINT_COUNT - 1)
+					+ " (inclusive)");
+		}
+		return VALUES[joint];
+	}
+
+	public static HexapodServo fromLegArticulation(HexapodLeg leg, HexapodArticulation articulation) {
+		return VALUES[jointIndex(leg, articulation)];
+	}
+}
@@ -0,0 +1,74 @@
+package net.isammoc.hexapod;
+
+/**
+ * A float per joint of the hexapod, such as an angle or a velocity.
+ * <p>
+ * Values are held in a flat array, indexed by the ordinal of the
+ * {@link HexapodServo} of the joint: accessors neither box nor allocate, so
+ * a state can be read and written on every physics tick. A state is not
+ * thread safe.
+ */
+public class JointState {
+	private final float[] values = new float[HexapodServo.JOINT_COUNT];
+
+	/**
+	 * Creates a state with all values equal to 0.
+	 */
+	public JointState() {
+	}
+
+	/**
+	 * Creates a state with all values equal to {@code value}.
+	 * 
+	 * @param value
+	 */
+	public JointState(final float value) {
+		this.fill(value);
+	}
+
+	/**
+	 * @param joint
+	 *            ordinal of the servo of the joint, between 0 and
+	 *            {@link HexapodServo#JOINT_COUNT} (exclusive).
+	 * @return the value of the joint.
+	 */
+	public float get(final int joint) {
+		return this.values[joint];
+	}
+
+	public float get(final HexapodServo servo) {
+		return this.values[servo.ordinal()];
+	}
+
+	public float get(final HexapodLeg leg, final HexapodArticulation articulation) {
+		return this.values[HexapodServo.jointIndex(leg, articulation)];
+	}
+
+	/**
+	 * @param joint
+	 *            ordinal of the servo of the joint, between 0 and
+	 *            {@link HexapodServo#JOINT_COUNT} (exclusive).
+	 * @param value
+	 */
+	public void set(final int joint, final float value) {
+		this.values[joint] = value;
+	}
+
+	public void set(final HexapodServo servo, final float value) {
+		this.values[servo.ordinal()] = value;
+	}
+
+	public void set(final HexapodLeg leg, final HexapodArticulation articulation, final float value) {
+		this.values[HexapodServo.jointIndex(leg, articulation)] = value;
+	}
+
+	public void fill(final float value) {
+		for (int i = 0; i < this.values.length; i++) {
+			this.values[i] = value;
+		}
+	}
+
+	public void copyFrom(final JointState state) {
+		System.arraycopy(state.values, 0, this.values, 0, this.values.length);
+	}
+}
@@ -0,0 +1,301 @@
+package net.isammoc.hexapod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+
+/**
+ * Mapping between the servo bytes of the protocol and the joint angles.
+ * <p>
+ * Each joint is linear between its limits: its angle is the angle of the
+ * neutral byte, plus the distance of the byte to the neutral byte times a
+ * step of PI / 256 radians and a direction of +1 or -1. Bytes beyond the
+ * limits give the angle of the nearest limit. Angles are relative to the
+ * pose of the hexapod when built by the simulation; bytes of left legs are
+ * mirrored, as their servos are.
+ * <p>
+ * The angle of every byte of every joint is precomputed in a table, so
+ * {@link #toAngle(int, int)} is an array read. As the mapping is linear
+ * between the limits, the inverse {@link #toValue(int, float)} computes the
+ * index of the nearest entry of the table instead of searching it.
+ * <p>
+ * A profile overriding the calibration of some servos can be loaded from a
+ * properties file, with the following keys per servo, all optional:
+ * 
+ * <pre>
+ * # angle of the byte 127, in radians
+ * S1.offset = 0.687
+ * # 1 if the angle grows with the byte, -1 otherwise
+ * S1.direction = 1
+ * # reachable bytes, between 1 and 254
+ * S1.min = 20
+ * S1.max = 230
+ * </pre>
+ * <p>
+ * A calibration is immutable, and thread safe.
+ */
+public class ServoCalibration {
+	/** Angle of a servo unit, in radians. */
+	public static final float STEP = (float) (Math.PI / 256);
+	/** Servo byte of the middle of the range. */
+	public static final int NEUTRAL = 127;
+	public static final int MIN_VALUE = 1;
+	public static final int MAX_VALUE = 254;
+
+	/** Calibration of the simulated hexapod. */
+	public static final ServoCalibration DEFAULT = createDefault();
+
+	/** Entries per joint in the table, one per byte. */
+	private static final int VALUES = 256;
+	private static final float TURN = (float) (2 * Math.PI);
+	private static final float HALF_TURN = (float) Math.PI;
+	private static final float INVERSE_STEP = 1 / STEP;
+
+	private final float[] offsets = new float[HexapodServo.JOINT_COUNT];
+	private final float[] directions = new float[HexapodServo.JOINT_COUNT];
+	private final int[] minValues = new int[HexapodServo.JOINT_COUNT];
+	private final int[] maxValues = new int[HexapodServo.JOINT_COUNT];
+	/** Angle of each byte, per joint. */
+	private final float[] angles = new float[HexapodServo.JOINT_COUNT * VALUES];
+
+	/**
+	 * Creates a calibration using the whole range of every servo.
+	 * 
+	 * @see #ServoCalibration(float[], float[], int[], int[])
+	 */
+	public ServoCalibration(final float[] offsets, final float[] directions) {
+		this(offsets, directions, fill(MIN_VALUE), fill(MAX_VALUE));
+	}
+
+	/**
+	 * @param offsets
+	 *            angle of the neutral byte of each joint, in radians, indexed
+	 *            by joint index.
+	 * @param directions
+	 *            1 if the angle of each joint grows with its byte, -1
+	 *            otherwise.
+	 * @param minValues
+	 *            lowest byte each joint reaches.
+	 * @param maxValues
+	 *            highest byte each joint reaches.
+	 * @throws IllegalArgumentException
+	 *             If an array does not hold one value per joint, a direction
+	 *             is neither 1 nor -1, or limits are out of the valid bytes.
+	 */
+	public ServoCalibration(final float[] offsets, final float[] directions, final int[] minValues,
+			final int[] maxValues) throws IllegalArgumentException {
+		if ((offsets.length != HexapodServo.JOINT_COUNT) || (directions.length != HexapodServo.JOINT_COUNT)
+				|| (minValues.length != HexapodServo.JOINT_COUNT) || (maxValues.length != HexapodServo.JOINT_COUNT)) {
+			throw new IllegalArgumentException("One offset, direction and limit per joint are needed");
+		}
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			if (Math.abs(directions[joint]) != 1) {
+				throw new IllegalArgumentException("Direction of " + HexapodServo.fromJointIndex(joint)
+						+ " must be 1 or -1: " + directions[joint]);
+			}
+			if ((minValues[joint] < MIN_VALUE) || (maxValues[joint] > MAX_VALUE)
+					|| (minValues[joint] > maxValues[joint])) {
+				throw new IllegalArgumentException("Invalid limits of " + HexapodServo.fromJointIndex(joint) + ": "
+						+ minValues[joint] + " to " + maxValues[joint]);
+			}
+			this.offsets[joint] = offsets[joint];
+			this.directions[joint] = directions[joint];
+			this.minValues[joint] = minValues[joint];
+			this.maxValues[joint] = maxValues[joint];
+			for (int value = 0; value < VALUES; value++) {
+				final int reached = Math.max(minValues[joint], Math.min(maxValues[joint], value));
+				this.angles[(joint * VALUES) + value] = offsets[joint]
+						+ (directions[joint] * (reached - NEUTRAL) * STEP);
+			}
+		}
+	}
+
+	private static int[] fill(final int value) {
+		final int[] values = new int[HexapodServo.JOINT_COUNT];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = value;
+		}
+		return values;
+	}
+
+	private static ServoCalibration createDefault() {
+		final float[] offsets = new float[HexapodServo.JOINT_COUNT];
+		final float[] directions = new float[HexapodServo.JOINT_COUNT];
+		for (final HexapodLeg leg : HexapodLeg.values()) {
+			final boolean right = (leg == HexapodLeg.RIGHT_FRONT) || (leg == HexapodLeg.RIGHT_MIDDLE)
+					|| (leg == HexapodLeg.RIGHT_REAR);
+			final int shoulder = HexapodServo.jointIndex(leg, HexapodArticulation.SHOULDER);
+			final int elbow = HexapodServo.jointIndex(leg, HexapodArticulation.ELBOW);
+			final int wrist = HexapodServo.jointIndex(leg, HexapodArticulation.WRIST);
+			// Left bytes are mirrored, the directions of their joints too
+			offsets[shoulder] = right ? 0 : (254 * STEP) + (float) Math.PI;
+			directions[shoulder] = -1;
+			offsets[elbow] = (99 * STEP) - (float) (Math.PI / 2);
+			directions[elbow] = right ? -1 : 1;
+			offsets[wrist] = 56 * STEP;
+			directions[wrist] = right ? 1 : -1;
+		}
+		return new ServoCalibration(offsets, directions);
+	}
+
+	/**
+	 * Read a profile from a properties file.
+	 * 
+	 * @param file
+	 * @return the calibration of {@link #DEFAULT}, overridden by the profile.
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             If a value of the profile is invalid.
+	 */
+	public static ServoCalibration load(final Path file) throws IOException, IllegalArgumentException {
+		final Properties profile = new Properties();
+		final InputStream in = Files.newInputStream(file);
+		try {
+			profile.load(in);
+		} finally {
+			in.close();
+		}
+		return DEFAULT.override(profile);
+	}
+
+	/**
+	 * @param profile
+	 *            keys as described in the class comment.
+	 * @return this calibration, overridden by {@code profile}.
+	 * @throws IllegalArgumentException
+	 *             If a value of {@code profile} is invalid.
+	 */
+	public ServoCalibration override(final Properties profile) throws IllegalArgumentException {
+		final float[] newOffsets = this.offsets.clone();
+		final float[] newDirections = this.directions.clone();
+		final int[] newMinValues = this.minValues.clone();
+		final int[] newMaxValues = this.maxValues.clone();
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			final String servo = HexapodServo.fromJointIndex(joint).name();
+			try {
+				newOffsets[joint] = Float.parseFloat(profile.getProperty(servo + ".offset",
+						Float.toString(newOffsets[joint])));
+				newDirections[joint] = Float.parseFloat(profile.getProperty(servo + ".direction",
+						Float.toString(newDirections[joint])));
+				newMinValues[joint] = Integer.parseInt(profile.getProperty(servo + ".min",
+						Integer.toString(newMinValues[joint])).trim());
+				newMaxValues[joint] = Integer.parseInt(profile.getProperty(servo + ".max",
+						Integer.toString(newMaxValues[joint])).trim());
+			} catch (final NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid calibration of " + servo + ": " + e.getMessage(), e);
+			}
+		}
+		return new ServoCalibration(newOffsets, newDirections, newMinValues, newMaxValues);
+	}
+
+	/**
+	 * @return a profile holding the whole calibration, to be overridden or
+	 *         stored.
+	 */
+	public Properties toProperties() {
+		final Properties profile = new Properties();
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			final String servo = HexapodServo.fromJointIndex(joint).name();
+			profile.setProperty(servo + ".offset", Float.toString(this.offsets[joint]));
+			profile.setProperty(servo + ".direction", Integer.toString((int) this.directions[joint]));
+			profile.setProperty(servo + ".min", Integer.toString(this.minValues[joint]));
+			profile.setProperty(servo + ".max", Integer.toString(this.maxValues[joint]));
+		}
+		return profile;
+	}
+
+	/**
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 * @return the lowest byte {@code joint} reaches.
+	 */
+	public int getMinValue(final int joint) {
+		return this.minValues[joint];
+	}
+
+	/**
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 * @return the highest byte {@code joint} reaches.
+	 */
+	public int getMaxValue(final int joint) {
+		return this.maxValues[joint];
+	}
+
+	/**
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 * @param value
+	 *            servo byte, between 0 and 255.
+	 * @return the angle of {@code joint}, in radians.
+	 */
+	public float toAngle(final int joint, final int value) {
+		return this.angles[(joint * VALUES) + value];
+	}
+
+	/**
+	 * Inverse of {@link #toAngle(int, int)}: the angle is taken on the turn
+	 * nearest to the middle of the limits, then mapped to the nearest byte
+	 * within the limits.
+	 * 
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 * @param angle
+	 *            in radians.
+	 * @return the servo byte of {@code angle}.
+	 */
+	public int toValue(final int joint, final float angle) {
+		final int min = this.minValues[joint];
+		final int max = this.maxValues[joint];
+		final float middle = (this.angles[(joint * VALUES) + min] + this.angles[(joint * VALUES) + max]) / 2;
+		float turned = angle;
+		if (Math.abs(turned - middle) > HALF_TURN) {
+			turned -= TURN * Math.round((turned - middle) / TURN);
+		}
+		// Linear between the limits: the byte is found by index, without searching
+		final int value = NEUTRAL + Math.round(this.directions[joint] * (turned - this.offsets[joint]) * INVERSE_STEP);
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/**
+	 * Write the bytes of the 18 joint {@code angles} to {@code msg}.
+	 * 
+	 * @param angles
+	 * @param msg
+	 */
+	public void encode(final JointState angles, final LegMessageView msg) {
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			msg.setUnsignedByte(joint, this.toValue(joint, angles.get(joint)));
+		}
+	}
+
+	/**
+	 * Write the bytes of the 18 joint {@code angles} to {@code msg}.
+	 * 
+	 * @param angles
+	 * @param msg
+	 */
+	public void encode(final JointState angles, final LegMessage msg) {
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			msg.setUnsignedByte(joint, this.toValue(joint, angles.get(joint)));
+		}
+	}
+
+	/**
+	 * Read the angles of the 18 joints of {@code msg} into {@code angles}.
+	 * 
+	 * @param msg
+	 * @param angles
+	 */
+	public void decode(final ILegMessage msg, final JointState angles) {
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			angles.set(joint, this.toAngle(joint, msg.getUnsignedByte(joint)));
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package net.isammoc.hexapod.communication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import net.isammoc.hexapod.HexapodException;
+
+/**
+ * Match the acknowledgements read from the hexapod with the frames sent by
+ * {@link HexapodBasicInterface#sendAsync(IHexapodMessage)}.
+ * <p>
+ * At most {@code window} frames are outstanding. In
+ * {@link HexapodProtocol#LEGACY} mode acknowledgements are matched in send
+ * order; in {@link HexapodProtocol#PIPELINED} mode they are matched by
+ * sequence number, and the outstanding frames sent before the acknowledged
+ * one are failed as their acknowledgement was lost.
+ * <p>
+ * Futures are always completed outside of the lock of the tracker, so their
+ * dependent actions may send again.
+ */
+class AckTracker {
+	private final HexapodProtocol protocol;
+	private final int window;
+	private final long timeout;
+	private final TimeUnit unit;
+	private final ArrayDeque<Outstanding> outstanding;
+	private final LegMessageView stamped = new LegMessageView();
+
+	private int sequence;
+	private HexapodException closed;
+
+	private static class Outstanding {
+		private final int sequence;
+		private final CompletableFuture<Void> future;
+
+		private Outstanding(final int sequence, final CompletableFuture<Void> future) {
+			this.sequence = sequence;
+			this.future = future;
+		}
+	}
+
+	AckTracker(final HexapodProtocol protocol, final int window, final long timeout, final TimeUnit unit) {
+		if ((window < 1) || (window >= HexapodProtocol.LAST_SEQUENCE)) {
+			throw new IllegalArgumentException("window must be between 1 and "
+					+ (HexapodProtocol.LAST_SEQUENCE - 1));
+		}
+		this.protocol = protocol;
+		this.window = window;
+		this.timeout = timeout;
+		this.unit = unit;
+		this.outstanding = new ArrayDeque<Outstanding>(window);
+	}
+
+	HexapodProtocol getProtocol() {
+		return this.protocol;
+	}
+
+	/** Sends a frame, called with the lock of the tracker. */
+	interface Sender {
+		void send(IHexapodMessage msg)
+				throws HexapodException;
+	}
+
+	/**
+	 * Wait for a free slot in the window, stamp {@code msg} with the next
+	 * sequence number in {@link HexapodProtocol#PIPELINED} mode, then send it
+	 * with {@code sender}. Frames are sent in the order of their registration.
+	 * 
+	 * @return the future of the acknowledgement of the frame.
+	 * @throws HexapodException
+	 *             If the tracker is closed, interrupted, or if the send
+	 *             failed.
+	 */
+	synchronized CompletableFuture<Void> send(final IHexapodMessage msg, final Sender sender)
+			throws HexapodException {
+		while ((this.closed == null) && (this.outstanding.size() >= this.window)) {
+			try {
+				this.wait();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new HexapodException("Interrupted while waiting for an acknowledgement", e);
+			}
+		}
+		if (this.closed != null) {
+			throw this.closed;
+		}
+		final int next = HexapodProtocol.nextSequence(this.sequence);
+		final IHexapodMessage frame;
+		if (this.protocol == HexapodProtocol.PIPELINED) {
+			this.stamped.getBuffer().clear();
+			msg.writeTo(this.stamped.getBuffer());
+			this.stamped.setUnsignedByte(HexapodProtocol.SEQUENCE_INDEX, next);
+			frame = this.stamped;
+		} else {
+			frame = msg;
+		}
+		// Registered before sending: the acknowledgement may come first
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		final Outstanding entry = new Outstanding(next, future);
+		this.outstanding.addLast(entry);
+		try {
+			sender.send(frame);
+		} catch (final HexapodException e) {
+			this.outstanding.removeLast();
+			throw e;
+		}
+		this.sequence = next;
+		future.orTimeout(this.timeout, this.unit).whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(final Void result, final Throwable failure) {
+				AckTracker.this.release(entry);
+			}
+		});
+		return future;
+	}
+
+	/** Forget a completed frame, whatever completed it. */
+	private synchronized void release(final Outstanding entry) {
+		if (this.outstanding.remove(entry)) {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Read acknowledgements from {@code in} until its end or an IO error.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	void readAcks(final InputStream in)
+			throws IOException {
+		while (true) {
+			final int status = in.read();
+			final int ackSequence = this.protocol == HexapodProtocol.PIPELINED ? in.read() : 0;
+			if ((status < 0) || (ackSequence < 0)) {
+				return;
+			}
+			this.acknowledge(status == HexapodProtocol.ACK, ackSequence);
+		}
+	}
+
+	private void acknowledge(final boolean accepted, final int ackSequence) {
+		final List<CompletableFuture<Void>> lost = new ArrayList<CompletableFuture<Void>>(0);
+		CompletableFuture<Void> acknowledged = null;
+		synchronized (this) {
+			if (this.protocol == HexapodProtocol.LEGACY) {
+				final Outstanding head = this.outstanding.pollFirst();
+				if (head != null) {
+					acknowledged = head.future;
+				}
+			} else if (this.isOutstanding(ackSequence)) {
+				// Acknowledgements come in order: the frames sent before were lost
+				Outstanding entry = this.outstanding.pollFirst();
+				while (entry.sequence != ackSequence) {
+					lost.add(entry.future);
+					entry = this.outstanding.pollFirst();
+				}
+				acknowledged = entry.future;
+			}
+			this.notifyAll();
+		}
+		for (final CompletableFuture<Void> future : lost) {
+			future.completeExceptionally(new HexapodException("Acknowledgement lost"));
+		}
+		if (acknowledged != null) {
+			if (accepted) {
+				acknowledged.complete(null);
+			} else {
+				acknowledged.completeExceptionally(new HexapodException("Pose rejected by the hexapod"));
+			}
+		}
+	}
+
+	/**
+	 * @return <code>false</code> for the late acknowledgement of a frame that
+	 *         already timed out.
+	 */
+	private boolean isOutstanding(final int ackSequence) {
+		for (final Outstanding entry : this.outstanding) {
+			if (entry.sequence == ackSequence) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Fail every outstanding frame and refuse new ones.
+	 * 
+	 * @param cause
+	 */
+	void close(final HexapodException cause) {
+		final List<CompletableFuture<Void>> failed = new ArrayList<CompletableFuture<Void>>();
+		synchronized (this) {
+			if (this.closed == null) {
+				this.closed = cause;
+			}
+			for (final Outstanding entry : this.outstanding) {
+				failed.add(entry.future);
+			}
+			this.outstanding.clear();
+			this.notifyAll();
+		}
+		for (final CompletableFuture<Void> future : failed) {
+			future.completeExceptionally(cause);
+		}
+	}
+}
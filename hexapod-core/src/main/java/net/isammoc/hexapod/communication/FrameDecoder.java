@@ -0,0 +1,171 @@
+package net.isammoc.hexapod.communication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming decoder of frames, fed with chunks of bytes of any size.
+ * <p>
+ * The decoder is a state machine that survives chunk boundaries. It
+ * resynchronizes on the 0xFF header inside the data it is given: a header
+ * found in the middle of a message restarts a frame, and a checksum mismatch
+ * drops the frame without any exception. Bad frames and discarded bytes are
+ * only counted, so that a noisy line costs a few counter increments.
+ * <p>
+ * Valid frames are delivered to a {@link FrameSink} through a single reused
+ * {@link LegMessageView}: decoding allocates nothing. A decoder is not thread
+ * safe, but its counters can be read from any thread.
+ */
+public class FrameDecoder {
+	private static final int SEEK_HEADER = 0;
+	private static final int MESSAGE = 1;
+	private static final int CHECKSUM = 2;
+
+	private final FrameSink sink;
+	private final LegMessageView frame;
+	private final ByteBuffer message;
+
+	private int state = SEEK_HEADER;
+	private int index;
+	private byte sum;
+
+	private volatile long framesDecoded;
+	private volatile long checksumErrors;
+	private volatile long invalidFrames;
+	private volatile long bytesDiscarded;
+
+	public FrameDecoder(final FrameSink sink) {
+		this.sink = sink;
+		this.frame = new LegMessageView();
+		this.message = this.frame.getBuffer();
+	}
+
+	/**
+	 * Decode {@code len} bytes of {@code bytes} starting at {@code off}.
+	 * 
+	 * @return the number of frames delivered to the sink.
+	 * @throws IOException
+	 *             If thrown by the sink.
+	 */
+	public int decode(final byte[] bytes, final int off, final int len)
+			throws IOException {
+		int frames = 0;
+		for (int i = off; i < off + len; i++) {
+			if (this.accept(bytes[i])) {
+				frames++;
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * Decode the remaining bytes of {@code src}, advancing its position to its
+	 * limit.
+	 * 
+	 * @return the number of frames delivered to the sink.
+	 * @throws IOException
+	 *             If thrown by the sink.
+	 */
+	public int decode(final ByteBuffer src)
+			throws IOException {
+		int frames = 0;
+		while (src.hasRemaining()) {
+			if (this.accept(src.get())) {
+				frames++;
+			}
+		}
+		return frames;
+	}
+
+	private boolean accept(final byte b)
+			throws IOException {
+		switch (this.state) {
+			case MESSAGE:
+				if (b == (byte) FrameEncoder.HEADER) {
+					// Message truncated: this is the header of the next frame
+					this.rejectMessage(this.index + 1);
+					this.startMessage();
+				} else if (b == 0x00) {
+					this.rejectMessage(this.index + 2);
+					this.state = SEEK_HEADER;
+				} else {
+					this.message.put(this.index++, b);
+					this.sum += b;
+					if (this.index == BasicMessage.MESSAGE_LENGTH) {
+						this.state = CHECKSUM;
+					}
+				}
+				return false;
+			case CHECKSUM:
+				if (b == this.sum) {
+					this.state = SEEK_HEADER;
+					this.framesDecoded++;
+					this.sink.frameReceived(this.frame);
+					return true;
+				}
+				this.checksumErrors++;
+				if (b == (byte) FrameEncoder.HEADER) {
+					// The checksum may be lost, try this byte as the next header
+					this.rejectMessage(BasicMessage.MESSAGE_LENGTH + 1);
+					this.startMessage();
+				} else {
+					this.rejectMessage(FrameEncoder.FRAME_LENGTH);
+					this.state = SEEK_HEADER;
+				}
+				return false;
+			case SEEK_HEADER:
+			default:
+				if (b == (byte) FrameEncoder.HEADER) {
+					this.startMessage();
+				} else {
+					this.bytesDiscarded++;
+				}
+				return false;
+		}
+	}
+
+	private void startMessage() {
+		this.state = MESSAGE;
+		this.index = 0;
+		this.sum = 0x00;
+	}
+
+	private void rejectMessage(final int discarded)
+			throws IOException {
+		this.invalidFrames++;
+		this.bytesDiscarded += discarded;
+		this.sink.frameRejected();
+	}
+
+	/** Drop any partial frame and wait for the next header. */
+	public void reset() {
+		this.state = SEEK_HEADER;
+	}
+
+	/** @return number of valid frames delivered to the sink. */
+	public long getFramesDecoded() {
+		return this.framesDecoded;
+	}
+
+	/** @return number of frames dropped on checksum mismatch. */
+	public long getChecksumErrors() {
+		return this.checksumErrors;
+	}
+
+	/** @return number of frames dropped, for any reason. */
+	public long getInvalidFrames() {
+		return this.invalidFrames;
+	}
+
+	/** @return number of bytes dropped while looking for a valid frame. */
+	public long getBytesDiscarded() {
+		return this.bytesDiscarded;
+	}
+
+	public void resetCounters() {
+		this.framesDecoded = 0;
+		this.checksumErrors = 0;
+		this.invalidFrames = 0;
+		this.bytesDiscarded = 0;
+	}
+}
@@ -0,0 +1,55 @@
+package net.isammoc.hexapod.communication;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encode messages into complete frames: the 0xFF header, the 21 bytes of the
+ * message and the checksum, so that a frame can be written in a single call.
+ */
+public class FrameEncoder {
+	/** First byte of every frame. */
+	public static final int HEADER = 0xff;
+
+	/** Frames are header + message + checksum. */
+	public static final int FRAME_LENGTH = BasicMessage.MESSAGE_LENGTH + 2;
+
+	/**
+	 * Encode {@code msg} as a frame at the current position of {@code frame}.
+	 * The position of {@code frame} is advanced by {@link #FRAME_LENGTH}.
+	 * 
+	 * @param msg
+	 *            The message to encode.
+	 * @param frame
+	 *            The buffer to write into.
+	 * @throws BufferOverflowException
+	 *             If there is less than {@link #FRAME_LENGTH} bytes remaining
+	 *             in {@code frame}.
+	 */
+	public static void encode(final IHexapodMessage msg, final ByteBuffer frame)
+			throws BufferOverflowException {
+		if (frame.remaining() < FRAME_LENGTH) {
+			throw new BufferOverflowException();
+		}
+		final int start = frame.position();
+		frame.put((byte) HEADER);
+		msg.writeTo(frame);
+		frame.put(checksum(frame, start + 1));
+	}
+
+	/**
+	 * Compute the checksum of the 21 bytes message starting at {@code offset}
+	 * in {@code buffer}.
+	 * 
+	 * @param buffer
+	 * @param offset
+	 * @return the sum of the bytes of the message, truncated to a byte.
+	 */
+	public static byte checksum(final ByteBuffer buffer, final int offset) {
+		byte sum = 0x00;
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			sum += buffer.get(offset + i);
+		}
+		return sum;
+	}
+}
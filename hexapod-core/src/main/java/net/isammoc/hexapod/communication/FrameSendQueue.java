@@ -0,0 +1,148 @@
+package net.isammoc.hexapod.communication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded queue of encoded frames between the callers of
+ * {@link HexapodBasicInterface#sendMessage(IHexapodMessage)} and its writer
+ * thread.
+ * <p>
+ * Frames are encoded directly into preallocated slots of a single array, so
+ * neither enqueuing nor writing a frame allocates. A slot is released only
+ * once its frame has been written.
+ * <p>
+ * In coalescing mode, a frame is merged into the newest pending frame instead
+ * of taking a new slot, so that only the newest target of each servo goes out
+ * on the next write. A frame marked as barrier is never merged, neither into
+ * nor over: everything queued before it is written before it, and everything
+ * queued after it is written after it.
+ */
+class FrameSendQueue {
+	private final int capacity;
+	private final byte[] frames;
+	private final ByteBuffer slots;
+	private final long[] enqueueTimes;
+	private final boolean[] barriers;
+	private final boolean coalescing;
+	private final SendStatistics statistics;
+
+	/** Index of the oldest frame. */
+	private int head;
+	/** Number of frames in the queue, including the one being written. */
+	private int count;
+	/** <code>true</code> while the frame at {@link #head} is being written. */
+	private boolean writing;
+
+	FrameSendQueue(final int capacity, final boolean coalescing, final SendStatistics statistics) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.capacity = capacity;
+		this.frames = new byte[capacity * FrameEncoder.FRAME_LENGTH];
+		this.slots = ByteBuffer.wrap(this.frames);
+		this.enqueueTimes = new long[capacity];
+		this.barriers = new boolean[capacity];
+		this.coalescing = coalescing;
+		this.statistics = statistics;
+	}
+
+	int getCapacity() {
+		return this.capacity;
+	}
+
+	boolean isCoalescing() {
+		return this.coalescing;
+	}
+
+	/**
+	 * Encode {@code msg} in a free slot, or merge it into the newest pending
+	 * frame in coalescing mode.
+	 * 
+	 * @param msg
+	 * @param barrier
+	 *            <code>true</code> to keep this frame ordered with others.
+	 * @return <code>false</code> if the queue is full.
+	 */
+	synchronized boolean offer(final IHexapodMessage msg, final boolean barrier) {
+		final long start = System.nanoTime();
+		if (this.coalescing && !barrier && this.count > (this.writing ? 1 : 0)) {
+			final int tail = (this.head + this.count - 1) % this.capacity;
+			if (!this.barriers[tail]) {
+				this.merge(msg, tail);
+				this.statistics.recordCoalesced(System.nanoTime() - start, this.count);
+				return true;
+			}
+		}
+		if (this.count == this.capacity) {
+			this.statistics.recordRejected();
+			return false;
+		}
+		final int slot = (this.head + this.count) % this.capacity;
+		this.slots.clear();
+		this.slots.position(slot * FrameEncoder.FRAME_LENGTH);
+		FrameEncoder.encode(msg, this.slots);
+		this.enqueueTimes[slot] = start;
+		this.barriers[slot] = barrier;
+		this.count++;
+		this.notifyAll();
+		this.statistics.recordEnqueue(System.nanoTime() - start, this.count);
+		return true;
+	}
+
+	/**
+	 * Every frame carries a target for each servo, at the index of its
+	 * {@link net.isammoc.hexapod.HexapodServo} ordinal: merging keeps the
+	 * newest target of each servo, then the checksum of the slot is updated.
+	 * The enqueue time of the slot is kept, so the queue delay still measures
+	 * the age of the oldest command merged in the frame.
+	 */
+	private void merge(final IHexapodMessage msg, final int slot) {
+		final int offset = slot * FrameEncoder.FRAME_LENGTH;
+		this.slots.clear();
+		this.slots.position(offset + 1);
+		msg.writeTo(this.slots);
+		this.slots.put(FrameEncoder.checksum(this.slots, offset + 1));
+	}
+
+	/**
+	 * Wait for the oldest frame, write it to {@code out} in a single call and
+	 * release its slot.
+	 * 
+	 * @param out
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for a frame.
+	 * @throws IOException
+	 *             If the write failed. The frame is dropped.
+	 */
+	void writeNext(final OutputStream out)
+			throws InterruptedException, IOException {
+		final int slot;
+		synchronized (this) {
+			while (this.count == 0) {
+				this.wait();
+			}
+			slot = this.head;
+			this.writing = true;
+		}
+		final long start = System.nanoTime();
+		boolean written = false;
+		try {
+			out.write(this.frames, slot * FrameEncoder.FRAME_LENGTH, FrameEncoder.FRAME_LENGTH);
+			written = true;
+		} finally {
+			final long end = System.nanoTime();
+			synchronized (this) {
+				this.head = (this.head + 1) % this.capacity;
+				this.count--;
+				this.writing = false;
+				if (written) {
+					this.statistics.recordWrite(start - this.enqueueTimes[slot], end - start, this.count);
+				} else {
+					this.statistics.recordWriteFailure(this.count);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package net.isammoc.hexapod.communication;
+
+import java.io.IOException;
+
+/**
+ * Receives the frames decoded by a {@link FrameDecoder}.
+ */
+public interface FrameSink {
+
+	/**
+	 * Called for each valid frame.
+	 * 
+	 * @param frame
+	 *            The message of the frame. The view is reused by the decoder:
+	 *            it is only valid during the call.
+	 * @throws IOException
+	 *             To abort the decoding.
+	 */
+	void frameReceived(LegMessageView frame) throws IOException;
+
+	/**
+	 * Called for each frame dropped on checksum mismatch or invalid byte.
+	 * 
+	 * @throws IOException
+	 *             To abort the decoding.
+	 */
+	void frameRejected() throws IOException;
+}
@@ -1,92 +1,397 @@
-package net.isammoc.hexapod.communication;
-
-import gnu.io.CommPort;
-import gnu.io.CommPortIdentifier;
-import gnu.io.NoSuchPortException;
-import gnu.io.PortInUseException;
-import gnu.io.SerialPort;
-import gnu.io.UnsupportedCommOperationException;
-
-import java.io.IOException;
-
-import net.isammoc.hexapod.HexapodException;
-
-public class HexapodBasicInterface {
-
-	private SerialPort serial;
-
-	public HexapodBasicInterface(final String portName)
-			throws HexapodException {
-		try {
-			final CommPortIdentifier portIdentifier = CommPortIdentifier
-					.getPortIdentifier(portName);
-			try {
-				final CommPort commPort = portIdentifier.open(this.getClass()
-						.getName(), 2000);
-				if (!(commPort instanceof SerialPort)) {
-					commPort.close();
-					throw new ClassCastException("portName '" + portName
-							+ "' does not refer to a serial port");
-				}
-
-				this.serial = (SerialPort) commPort;
-				try {
-					this.serial.setSerialPortParams(9600,
-							SerialPort.DATABITS_8, SerialPort.STOPBITS_1,
-							SerialPort.PARITY_NONE);
-				} catch (final UnsupportedCommOperationException e) {
-					this.serial.close();
-					throw new HexapodException("Can not configure port", e);
-				}
-			} catch (final PortInUseException e) {
-				throw new HexapodException("Port '" + portName
-						+ "' is already owned by : "
-						+ portIdentifier.getCurrentOwner(), e);
-			}
-		} catch (final NoSuchPortException e) {
-			throw new HexapodException("port '" + portName + "' not found", e);
-		}
-	}
-
-	public void close() {
-		if (this.serial != null) {
-			this.serial.close();
-			this.serial = null;
-		}
-	}
-
-	public void sendMessage(final IHexapodMessage msg)
-			throws HexapodException {
-		if (this.serial == null) {
-			throw new IllegalArgumentException(
-					"Cannot send message to closed port");
-		}
-		synchronized (this.serial) {
-			try {
-				this.serial.getOutputStream().write(255);
-				byte sum = 0x00;
-				for (final byte b : msg.toByteArray()) {
-					this.serial.getOutputStream().write(b);
-					sum += b;
-				}
-				this.serial.getOutputStream().write(sum);
-			} catch (final IOException e) {
-				throw new HexapodException(
-						"IO error during send message to the hexapod", e);
-			}
-		}
-	}
-
-	public static int byteToUnsignedByte(final byte signed) {
-		return signed & 0xff;
-	}
-
-	public static byte unsignedByteToByte(final int unsigned)
-			throws IllegalArgumentException {
-		if ((unsigned < 0) || (unsigned > 255)) {
-			throw new IllegalArgumentException(
-					"unsigned must be between 0 and 255 (inclusive)");
-		}
-		return (byte) unsigned;
-	}
-}
+package net.isammoc.hexapod.communication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import net.isammoc.hexapod.HexapodException;
+import net.isammoc.hexapod.management.HexapodInterfaceMonitor;
+import net.isammoc.hexapod.management.HexapodMBeans;
+import net.isammoc.hexapod.trace.TraceDirection;
+import net.isammoc.hexapod.trace.TraceRecorder;
+import net.isammoc.hexapod.transport.HexapodTransport;
+import net.isammoc.hexapod.transport.SerialTransport;
+
+public class HexapodBasicInterface {
+	/** Default time to wait for the acknowledgement of a frame. */
+	public static final long DEFAULT_ACK_TIMEOUT_MILLIS = 10000;
+
+	private volatile HexapodTransport transport;
+	private final OutputStream out;
+
+	/** Reused to encode frames, guarded by the lock on {@link #frame}. */
+	private final ByteBuffer frame = ByteBuffer.allocate(FrameEncoder.FRAME_LENGTH);
+
+	private final SendStatistics statistics = new SendStatistics();
+	/** Name of the MBean of this interface, until closed. */
+	private ObjectName mbeanName;
+
+	/** Records the sent frames when not <code>null</code>. */
+	private volatile TraceRecorder recorder;
+
+	/** Not <code>null</code> when frames are sent by {@link #writer}. */
+	private volatile FrameSendQueue sendQueue;
+	private Thread writer;
+
+	/** Not <code>null</code> when acknowledgements are read by {@link #ackReader}. */
+	private volatile AckTracker ackTracker;
+	private Thread ackReader;
+	private final AckTracker.Sender barrierSender = new AckTracker.Sender() {
+		@Override
+		public void send(final IHexapodMessage msg)
+				throws HexapodException {
+			HexapodBasicInterface.this.send(msg, true);
+		}
+	};
+
+	/**
+	 * Open the serial port {@code portName} at 9600 bauds.
+	 * 
+	 * @param portName
+	 * @throws HexapodException
+	 *             If the port can not be opened.
+	 */
+	public HexapodBasicInterface(final String portName)
+			throws HexapodException {
+		this(SerialTransport.open(portName, SerialTransport.DEFAULT_BAUD_RATE,
+				HexapodBasicInterface.class.getName()));
+	}
+
+	/**
+	 * Registers the interface as a {@link HexapodInterfaceMonitor} MBean,
+	 * until closed.
+	 * 
+	 * @param transport
+	 *            An opened transport, closed by {@link #close()}.
+	 * @throws HexapodException
+	 *             If the output of {@code transport} can not be opened.
+	 */
+	public HexapodBasicInterface(final HexapodTransport transport)
+			throws HexapodException {
+		this.transport = transport;
+		try {
+			this.out = transport.getOutputStream();
+		} catch (final IOException e) {
+			throw new HexapodException("Can not open output of "
+					+ transport.getName(), e);
+		}
+		this.mbeanName = HexapodMBeans.register(new HexapodInterfaceMonitor(this), "HexapodInterface",
+				transport.getName());
+	}
+
+	public HexapodTransport getTransport() {
+		return this.transport;
+	}
+
+	/**
+	 * Send messages from a background writer thread. Once started,
+	 * {@link #sendMessage(IHexapodMessage)} only encodes the frame into a
+	 * bounded queue and never blocks on the port.
+	 * 
+	 * @param capacity
+	 *            Maximum number of frames waiting to be written.
+	 */
+	public void startAsyncSend(final int capacity) {
+		this.startAsyncSend(capacity, false);
+	}
+
+	/**
+	 * Send messages from a background writer thread, optionally coalescing
+	 * them.
+	 * <p>
+	 * When {@code coalescing}, a message sent while another is still waiting
+	 * replaces its servo targets instead of being queued behind it: under
+	 * overload the hexapod receives the newest pose on the next write instead
+	 * of a growing backlog of stale ones. Use
+	 * {@link #sendBarrier(IHexapodMessage)} for messages that must not be
+	 * skipped.
+	 * 
+	 * @param capacity
+	 *            Maximum number of frames waiting to be written.
+	 * @param coalescing
+	 *            <code>true</code> to merge pending frames.
+	 */
+	public synchronized void startAsyncSend(final int capacity, final boolean coalescing) {
+		if (this.transport == null) {
+			throw new IllegalArgumentException(
+					"Cannot send message to closed port");
+		}
+		if (this.writer != null) {
+			throw new IllegalStateException("Asynchronous send already started");
+		}
+		final FrameSendQueue queue = new FrameSendQueue(capacity, coalescing, this.statistics);
+		final OutputStream output = this.out;
+		this.writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						try {
+							queue.writeNext(output);
+						} catch (final IOException e) {
+							e.printStackTrace();
+						}
+					}
+				} catch (final InterruptedException e) {
+					// Nothing... only finish thread.
+				}
+			}
+		}, "hexapod-writer");
+		this.writer.setDaemon(true);
+		this.sendQueue = queue;
+		this.writer.start();
+	}
+
+	/**
+	 * Read the acknowledgements of the hexapod from a background reader
+	 * thread, to complete the futures of
+	 * {@link #sendAsync(IHexapodMessage)}. Up to
+	 * {@link HexapodProtocol#DEFAULT_WINDOW} frames are outstanding in
+	 * {@link HexapodProtocol#PIPELINED} mode, a single one in
+	 * {@link HexapodProtocol#LEGACY} mode.
+	 * 
+	 * @param protocol
+	 *            Acknowledgement protocol of the hexapod.
+	 * @throws HexapodException
+	 *             If the input of the transport can not be opened.
+	 */
+	public void startAckTracking(final HexapodProtocol protocol)
+			throws HexapodException {
+		this.startAckTracking(protocol, protocol == HexapodProtocol.PIPELINED ? HexapodProtocol.DEFAULT_WINDOW
+				: 1, DEFAULT_ACK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Read the acknowledgements of the hexapod from a background reader
+	 * thread, to complete the futures of
+	 * {@link #sendAsync(IHexapodMessage)}.
+	 * <p>
+	 * Once started, every frame should be sent with
+	 * {@link #sendAsync(IHexapodMessage)}: the acknowledgements of the other
+	 * frames could not be told apart. In {@link HexapodProtocol#LEGACY} mode,
+	 * {@code timeout} must exceed the time the hexapod waits for a pose
+	 * before rejecting it, otherwise a late acknowledgement would be matched
+	 * with the next frame.
+	 * 
+	 * @param protocol
+	 *            Acknowledgement protocol of the hexapod.
+	 * @param window
+	 *            Maximum number of frames waiting for their acknowledgement.
+	 *            {@link #sendAsync(IHexapodMessage)} blocks beyond.
+	 * @param timeout
+	 *            Time after which a frame without acknowledgement fails.
+	 * @param unit
+	 * @throws HexapodException
+	 *             If the input of the transport can not be opened.
+	 */
+	public synchronized void startAckTracking(final HexapodProtocol protocol, final int window, final long timeout,
+			final TimeUnit unit)
+			throws HexapodException {
+		if (this.transport == null) {
+			throw new IllegalArgumentException(
+					"Cannot send message to closed port");
+		}
+		if (this.ackReader != null) {
+			throw new IllegalStateException("Acknowledgement tracking already started");
+		}
+		final InputStream in;
+		try {
+			in = this.transport.getInputStream();
+		} catch (final IOException e) {
+			throw new HexapodException("Can not open input of "
+					+ this.transport.getName(), e);
+		}
+		final AckTracker tracker = new AckTracker(protocol, window, timeout, unit);
+		this.ackReader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					tracker.readAcks(in);
+					tracker.close(new HexapodException("Connection closed by the hexapod"));
+				} catch (final IOException e) {
+					tracker.close(new HexapodException("IO error while reading acknowledgements", e));
+				}
+			}
+		}, "hexapod-ack-reader");
+		this.ackReader.setDaemon(true);
+		this.ackTracker = tracker;
+		this.ackReader.start();
+	}
+
+	public synchronized void close() {
+		HexapodMBeans.unregister(this.mbeanName);
+		this.mbeanName = null;
+		if (this.ackTracker != null) {
+			this.ackTracker.close(new HexapodException("Interface closed"));
+		}
+		if (this.writer != null) {
+			this.sendQueue = null;
+			this.writer.interrupt();
+			try {
+				this.writer.join(1000);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.writer = null;
+		}
+		if (this.transport != null) {
+			try {
+				this.transport.close();
+			} catch (final IOException e) {
+				e.printStackTrace();
+			}
+			this.transport = null;
+		}
+		if (this.ackReader != null) {
+			// Ends with the transport
+			try {
+				this.ackReader.join(1000);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.ackReader = null;
+			this.ackTracker = null;
+		}
+	}
+
+	/**
+	 * Send {@code msg} as a single frame. When asynchronous send is started,
+	 * the frame is only queued.
+	 * 
+	 * @param msg
+	 * @throws HexapodException
+	 *             On IO error, or if the send queue is full.
+	 */
+	public void sendMessage(final IHexapodMessage msg)
+			throws HexapodException {
+		this.send(msg, false);
+	}
+
+	/**
+	 * Send {@code msg} as a single frame that is never merged with other
+	 * frames, even in coalescing mode: every message sent before is written
+	 * before it, and every message sent after is written after it.
+	 * 
+	 * @param msg
+	 * @throws HexapodException
+	 *             On IO error, or if the send queue is full.
+	 */
+	public void sendBarrier(final IHexapodMessage msg)
+			throws HexapodException {
+		this.send(msg, true);
+	}
+
+	/**
+	 * Send {@code msg} as a barrier frame, and track its acknowledgement.
+	 * <p>
+	 * The returned future completes when the hexapod acknowledges the pose,
+	 * and fails with a {@link HexapodException} if the hexapod rejects it or
+	 * if its acknowledgement is lost, or with a
+	 * {@link java.util.concurrent.TimeoutException} if no acknowledgement came
+	 * in time. In {@link HexapodProtocol#PIPELINED} mode the frame is stamped
+	 * with a sequence number, {@code msg} is left untouched.
+	 * 
+	 * @param msg
+	 * @return the future of the acknowledgement.
+	 * @throws HexapodException
+	 *             On IO error, if the send queue is full, or if interrupted
+	 *             while waiting for room in the window.
+	 * @throws IllegalStateException
+	 *             If {@link #startAckTracking(HexapodProtocol)} was not
+	 *             called.
+	 */
+	public CompletableFuture<Void> sendAsync(final IHexapodMessage msg)
+			throws HexapodException, IllegalStateException {
+		final AckTracker tracker = this.ackTracker;
+		if (tracker == null) {
+			throw new IllegalStateException("Acknowledgement tracking not started");
+		}
+		return tracker.send(msg, this.barrierSender);
+	}
+
+	private void send(final IHexapodMessage msg, final boolean barrier)
+			throws HexapodException {
+		final FrameSendQueue queue = this.sendQueue;
+		if (queue != null) {
+			if (!queue.offer(msg, barrier)) {
+				throw new HexapodException("Send queue is full ("
+						+ queue.getCapacity() + " frames)");
+			}
+			this.record(msg);
+			return;
+		}
+		if (this.transport == null) {
+			throw new IllegalArgumentException(
+					"Cannot send message to closed port");
+		}
+		synchronized (this.frame) {
+			final long start = System.nanoTime();
+			this.frame.clear();
+			FrameEncoder.encode(msg, this.frame);
+			final long encoded = System.nanoTime();
+			this.statistics.recordEnqueue(encoded - start, 0);
+			try {
+				this.out.write(this.frame.array(), 0, FrameEncoder.FRAME_LENGTH);
+				this.statistics.recordWrite(0, System.nanoTime() - encoded, 0);
+			} catch (final IOException e) {
+				this.statistics.recordWriteFailure(0);
+				throw new HexapodException(
+						"IO error during send message to the hexapod", e);
+			}
+			this.record(msg);
+		}
+	}
+
+	/**
+	 * Record {@code msg} as sent, once it is queued or written: a rejected
+	 * frame is not in the trace.
+	 */
+	private void record(final IHexapodMessage msg) {
+		final TraceRecorder trace = this.recorder;
+		if (trace != null) {
+			try {
+				trace.record(TraceDirection.SENT, 0, msg);
+			} catch (final IOException e) {
+				// Stop recording, but keep driving the hexapod
+				e.printStackTrace();
+				this.recorder = null;
+			}
+		}
+	}
+
+	/**
+	 * Record every frame sent from now on, once it is queued or, without a
+	 * send queue, written.
+	 * 
+	 * @param recorder
+	 *            <code>null</code> to stop recording.
+	 */
+	public void setRecorder(final TraceRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * @return the counters of sent frames, live.
+	 */
+	public SendStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	public static int byteToUnsignedByte(final byte signed) {
+		return signed & 0xff;
+	}
+
+	public static byte unsignedByteToByte(final int unsigned)
+			throws IllegalArgumentException {
+		if ((unsigned < 0) || (unsigned > 255)) {
+			throw new IllegalArgumentException(
+					"unsigned must be between 0 and 255 (inclusive)");
+		}
+		return (byte) unsigned;
+	}
+}
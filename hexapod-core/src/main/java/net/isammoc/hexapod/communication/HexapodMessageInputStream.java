@@ -1,94 +1,156 @@
-package net.isammoc.hexapod.communication;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InterruptedIOException;
-import java.net.ProtocolException;
-
-public class HexapodMessageInputStream extends InputStream {
-
-	private final InputStream in;
-
-	public HexapodMessageInputStream(final InputStream in) {
-		this.in = in;
-	}
-
-	@Override
-	public int read()
-			throws IOException {
-		return this.in.read();
-	}
-
-	@Override
-	public int available()
-			throws IOException {
-		return this.in.available();
-	}
-
-	@Override
-	public void close()
-			throws IOException {
-		this.in.close();
-	}
-
-	@Override
-	public synchronized void mark(final int readlimit) {
-		this.in.mark(readlimit);
-	}
-
-	@Override
-	public boolean markSupported() {
-		return this.in.markSupported();
-	}
-
-	@Override
-	public int read(final byte[] b)
-			throws IOException {
-		return this.in.read(b);
-	}
-
-	@Override
-	public int read(final byte[] b, final int off, final int len)
-			throws IOException {
-		return this.in.read(b, off, len);
-	}
-
-	@Override
-	public synchronized void reset()
-			throws IOException {
-		this.in.reset();
-	}
-
-	@Override
-	public long skip(final long n)
-			throws IOException {
-		return this.in.skip(n);
-	}
-
-	public LegMessage readMessage()
-			throws IOException {
-		final LegMessage msg = new LegMessage();
-
-		int readDebut;
-		do {
-			readDebut = this.in.read();
-			if (Thread.interrupted()) {
-				throw new InterruptedIOException();
-			}
-		} while (readDebut != 255);
-		if (readDebut != 255) {
-			throw new ProtocolException();
-		}
-		byte sum = 0;
-		for (int i = 0; i < 21; i++) {
-			final byte read = (byte) this.in.read();
-			msg.setByte(i, read);
-			sum += read;
-		}
-		final byte realSum = (byte) this.in.read();
-		if (realSum != sum) {
-			throw new ProtocolException();
-		}
-		return msg;
-	}
-}
+package net.isammoc.hexapod.communication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+public class HexapodMessageInputStream extends InputStream {
+
+	/** Size of the chunks read by {@link #readFrames(FrameDecoder)}. */
+	public static final int CHUNK_SIZE = 512;
+
+	private final InputStream in;
+	private final byte[] chunk = new byte[CHUNK_SIZE];
+
+	public HexapodMessageInputStream(final InputStream in) {
+		this.in = in;
+	}
+
+	@Override
+	public int read()
+			throws IOException {
+		return this.in.read();
+	}
+
+	@Override
+	public int available()
+			throws IOException {
+		return this.in.available();
+	}
+
+	@Override
+	public void close()
+			throws IOException {
+		this.in.close();
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+		this.in.mark(readlimit);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return this.in.markSupported();
+	}
+
+	@Override
+	public int read(final byte[] b)
+			throws IOException {
+		return this.in.read(b);
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len)
+			throws IOException {
+		return this.in.read(b, off, len);
+	}
+
+	@Override
+	public synchronized void reset()
+			throws IOException {
+		this.in.reset();
+	}
+
+	@Override
+	public long skip(final long n)
+			throws IOException {
+		return this.in.skip(n);
+	}
+
+	public LegMessage readMessage()
+			throws IOException {
+		final LegMessage msg = new LegMessage();
+
+		int readDebut;
+		do {
+			readDebut = this.in.read();
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException();
+			}
+		} while (readDebut != 255);
+		if (readDebut != 255) {
+			throw new ProtocolException();
+		}
+		byte sum = 0;
+		for (int i = 0; i < 21; i++) {
+			final byte read = (byte) this.in.read();
+			msg.setByte(i, read);
+			sum += read;
+		}
+		final byte realSum = (byte) this.in.read();
+		if (realSum != sum) {
+			throw new ProtocolException();
+		}
+		return msg;
+	}
+
+	/**
+	 * Read the next message into the slot of {@code msg}, without allocating.
+	 * 
+	 * @param msg
+	 *            The view to fill.
+	 * @throws ProtocolException
+	 *             If a byte of the message is missing or invalid, or on
+	 *             checksum mismatch. The content of {@code msg} is then
+	 *             undefined.
+	 */
+	public void readMessage(final LegMessageView msg)
+			throws IOException {
+		int read;
+		do {
+			read = this.in.read();
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException();
+			}
+		} while (read != 255);
+		final ByteBuffer buffer = msg.getBuffer();
+		final int offset = msg.getOffset();
+		byte sum = 0;
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			read = this.in.read();
+			if ((read <= 0x00) || (read == 0xff)) {
+				throw new ProtocolException();
+			}
+			buffer.put(offset + i, (byte) read);
+			sum += (byte) read;
+		}
+		if ((byte) this.in.read() != sum) {
+			throw new ProtocolException();
+		}
+	}
+
+	/**
+	 * Read the next chunk of available bytes, up to 512, and feed it to
+	 * {@code decoder}. Blocks until at least one byte is available.
+	 * 
+	 * @param decoder
+	 * @return the number of frames delivered by {@code decoder}, or -1 if the
+	 *         end of the stream is reached.
+	 * @throws InterruptedIOException
+	 *             If the current thread is interrupted.
+	 */
+	public int readFrames(final FrameDecoder decoder)
+			throws IOException {
+		if (Thread.interrupted()) {
+			throw new InterruptedIOException();
+		}
+		final int len = this.in.read(this.chunk);
+		if (len < 0) {
+			return -1;
+		}
+		return decoder.decode(this.chunk, 0, len);
+	}
+}
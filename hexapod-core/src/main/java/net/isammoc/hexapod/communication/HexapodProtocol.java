@@ -0,0 +1,84 @@
+package net.isammoc.hexapod.communication;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import net.isammoc.hexapod.HexapodServo;
+
+/**
+ * Acknowledgement protocols between a controller and a hexapod.
+ * <p>
+ * In both protocols, every frame is acknowledged once the hexapod stopped on
+ * its pose, or rejected if it did not stop in time or could not be decoded.
+ * <ul>
+ * <li>{@link #LEGACY}: the controller waits for the single byte
+ * acknowledgement of a frame before sending the next one.</li>
+ * <li>{@link #PIPELINED}: the controller stamps each frame with a sequence
+ * number in the unused byte {@link HexapodServo#S21}, and may send up to
+ * {@link #DEFAULT_WINDOW} frames without waiting. The poses are executed in
+ * order, each acknowledgement is the status byte followed by the sequence
+ * number of its frame.</li>
+ * </ul>
+ */
+public enum HexapodProtocol {
+	LEGACY(1),
+	PIPELINED(2);
+
+	/** Status byte of a pose reached. */
+	public static final int ACK = 49; // '1' ASCII
+	/** Status byte of a pose rejected or not reached in time. */
+	public static final int NACK = 48; // '0' ASCII
+
+	/** Index of the sequence number in the message. */
+	public static final int SEQUENCE_INDEX = HexapodServo.S21.ordinal();
+	public static final int FIRST_SEQUENCE = 1;
+	public static final int LAST_SEQUENCE = 254;
+	/** Sequence number of the rejection of a frame that could not be decoded. */
+	public static final int UNKNOWN_SEQUENCE = 0;
+
+	/** Number of frames a controller may send before waiting for an acknowledgement. */
+	public static final int DEFAULT_WINDOW = 8;
+
+	private final int ackLength;
+
+	private HexapodProtocol(final int ackLength) {
+		this.ackLength = ackLength;
+	}
+
+	/** @return the number of bytes of an acknowledgement. */
+	public int getAckLength() {
+		return this.ackLength;
+	}
+
+	/**
+	 * Write an acknowledgement at the current position of {@code dst}.
+	 * 
+	 * @param dst
+	 * @param accepted
+	 *            <code>true</code> for {@link #ACK}, <code>false</code> for
+	 *            {@link #NACK}.
+	 * @param sequence
+	 *            Sequence number of the frame, ignored by {@link #LEGACY}.
+	 * @throws BufferOverflowException
+	 *             If there is less than {@link #getAckLength()} bytes
+	 *             remaining in {@code dst}.
+	 */
+	public void putAck(final ByteBuffer dst, final boolean accepted, final int sequence)
+			throws BufferOverflowException {
+		if (dst.remaining() < this.ackLength) {
+			throw new BufferOverflowException();
+		}
+		dst.put((byte) (accepted ? ACK : NACK));
+		if (this == PIPELINED) {
+			dst.put((byte) sequence);
+		}
+	}
+
+	/**
+	 * @return the sequence number following {@code sequence}, wrapping from
+	 *         {@link #LAST_SEQUENCE} to {@link #FIRST_SEQUENCE}.
+	 */
+	public static int nextSequence(final int sequence) {
+		return sequence >= LAST_SEQUENCE ? FIRST_SEQUENCE : sequence + 1;
+	}
+}
@@ -1,17 +1,32 @@
-package net.isammoc.hexapod.communication;
-
-/**
- * Common Interface for messages to send to the Hexapod.
- * 
- * @author Isammoc
- */
-public interface IHexapodMessage {
-
-	/**
-	 * Return a byte array 21 length. None value of this array must be 0x00 nor
-	 * 0xff.
-	 * 
-	 * @return a byte array 21 length.
-	 */
-	byte[] toByteArray();
-}
+package net.isammoc.hexapod.communication;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Common Interface for messages to send to the Hexapod.
+ * 
+ * @author Isammoc
+ */
+public interface IHexapodMessage {
+
+	/**
+	 * Return a byte array 21 length. None value of this array must be 0x00 nor
+	 * 0xff.
+	 * 
+	 * @return a byte array 21 length.
+	 */
+	byte[] toByteArray();
+
+	/**
+	 * Write the 21 bytes of the message at the current position of
+	 * {@code dst}, without allocating any intermediate array. The position of
+	 * {@code dst} is advanced by 21.
+	 * 
+	 * @param dst
+	 *            The buffer to write into.
+	 * @throws BufferOverflowException
+	 *             If there is less than 21 bytes remaining in {@code dst}.
+	 */
+	void writeTo(ByteBuffer dst) throws BufferOverflowException;
+}
@@ -0,0 +1,33 @@
+package net.isammoc.hexapod.communication;
+
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.HexapodServo;
+
+/**
+ * Read access to the servo values of a message, shared by {@link LegMessage}
+ * and its flyweight counterpart {@link LegMessageView}.
+ */
+public interface ILegMessage extends IHexapodMessage {
+
+	/**
+	 * @param index
+	 *            index of the byte, between 0 and 20 (inclusive).
+	 * @return the unsigned value of the byte at {@code index}.
+	 */
+	int getUnsignedByte(int index);
+
+	/**
+	 * @param servo
+	 * @return the unsigned value of the byte corresponding to {@code servo}.
+	 */
+	int getUnsignedByte(HexapodServo servo);
+
+	/**
+	 * @param leg
+	 * @param articulation
+	 * @return the unsigned value of the byte corresponding to {@code leg} and
+	 *         {@code articulation}.
+	 */
+	int getUnsignedByte(HexapodLeg leg, HexapodArticulation articulation);
+}
@@ -0,0 +1,147 @@
+package net.isammoc.hexapod.communication;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of durations in nanoseconds.
+ * <p>
+ * Each power of two is split into {@link #SUB_BUCKETS} linear buckets, so
+ * that a percentile is known within 1/8 of its value, from a nanosecond to
+ * centuries, in a fixed array of counters. Recording a duration is a few bit
+ * operations and atomic increments: it allocates nothing, never blocks, and
+ * may be done from any thread.
+ * <p>
+ * Percentiles are read from a {@link #snapshot()}, a copy that no longer
+ * changes.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	/** Linear buckets per power of two. */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * @return the index of the bucket of {@code nanos}, positive: the values
+	 *         below {@link #SUB_BUCKETS} have a bucket each, then every power
+	 *         of two has {@link #SUB_BUCKETS} of them.
+	 */
+	static int bucket(final long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)) - SUB_BUCKET_BITS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/** @return the highest value of the bucket {@code index}. */
+	static long highestValue(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		final long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * Record a duration.
+	 * 
+	 * @param nanos
+	 *            a negative duration, from a clock going backward, is
+	 *            recorded as 0.
+	 */
+	public void record(final long nanos) {
+		final long value = Math.max(nanos, 0);
+		this.counts.incrementAndGet(bucket(value));
+		this.count.incrementAndGet();
+		this.totalNanos.addAndGet(value);
+		long max = this.maxNanos.get();
+		while ((value > max) && !this.maxNanos.compareAndSet(max, value)) {
+			max = this.maxNanos.get();
+		}
+	}
+
+	/**
+	 * Forget every recorded duration. A duration recorded meanwhile may be
+	 * partly forgotten.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+		this.count.set(0);
+		this.totalNanos.set(0);
+		this.maxNanos.set(0);
+	}
+
+	/**
+	 * @return a copy of this histogram. The count is taken from the buckets,
+	 *         so that the percentiles of the copy are consistent even while
+	 *         durations are recorded.
+	 */
+	public LatencyHistogram snapshot() {
+		final LatencyHistogram snapshot = new LatencyHistogram();
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			final long bucketCount = this.counts.get(i);
+			snapshot.counts.set(i, bucketCount);
+			count += bucketCount;
+		}
+		snapshot.count.set(count);
+		snapshot.totalNanos.set(this.totalNanos.get());
+		snapshot.maxNanos.set(this.maxNanos.get());
+		return snapshot;
+	}
+
+	public long getCount() {
+		return this.count.get();
+	}
+
+	public long getMaxNanos() {
+		return this.maxNanos.get();
+	}
+
+	/** @return the mean duration, 0 if none was recorded. */
+	public long getMeanNanos() {
+		final long count = this.count.get();
+		return count == 0 ? 0 : this.totalNanos.get() / count;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100 (inclusive).
+	 * @return the duration which {@code percentile} percents of the recorded
+	 *         durations do not exceed, rounded up to its bucket but never
+	 *         above the maximum; 0 if none was recorded.
+	 */
+	public long getPercentileNanos(final double percentile) {
+		if ((percentile < 0) || (percentile > 100)) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100 (inclusive)");
+		}
+		final long count = this.count.get();
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil((percentile / 100) * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValue(i), this.getMaxNanos());
+			}
+		}
+		return this.getMaxNanos();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%dns p50=%dns p99=%dns max=%dns", this.getCount(),
+				this.getMeanNanos(), this.getPercentileNanos(50), this.getPercentileNanos(99), this.getMaxNanos());
+	}
+}
@@ -0,0 +1,177 @@
+package net.isammoc.hexapod.communication;
+
+import java.nio.ByteBuffer;
+
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.HexapodServo;
+
+/**
+ * Flyweight message backed by a slot of 21 bytes in a {@link ByteBuffer}.
+ * <p>
+ * Unlike {@link LegMessage}, a view does not own its bytes: it can be
+ * {@link #wrap(ByteBuffer, int) moved} over any slot of a heap or direct
+ * buffer, so reading, modifying and sending a frame allocates nothing. Only
+ * absolute accesses are used, the position and limit of the underlying buffer
+ * are never modified.
+ * <p>
+ * A view is not thread safe.
+ */
+public class LegMessageView implements ILegMessage {
+
+	private ByteBuffer buffer;
+	private int offset;
+
+	/**
+	 * Creates a view over its own heap slot, filled with the same default
+	 * values as {@link BasicMessage#BasicMessage()}.
+	 */
+	public LegMessageView() {
+		this(ByteBuffer.allocate(BasicMessage.MESSAGE_LENGTH), 0);
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			this.buffer.put(i, Byte.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Creates a view over the slot starting at {@code offset} in
+	 * {@code buffer}.
+	 * 
+	 * @param buffer
+	 * @param offset
+	 * @throws IndexOutOfBoundsException
+	 *             If the slot does not fit in {@code buffer}.
+	 */
+	public LegMessageView(final ByteBuffer buffer, final int offset)
+			throws IndexOutOfBoundsException {
+		this.wrap(buffer, offset);
+	}
+
+	/**
+	 * Creates a view over its own direct slot, suitable for channel I/O.
+	 * 
+	 * @return a new view.
+	 */
+	public static LegMessageView allocateDirect() {
+		final LegMessageView view = new LegMessageView(
+				ByteBuffer.allocateDirect(BasicMessage.MESSAGE_LENGTH), 0);
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			view.buffer.put(i, Byte.MAX_VALUE);
+		}
+		return view;
+	}
+
+	/**
+	 * Move this view over the slot starting at {@code offset} in
+	 * {@code buffer}.
+	 * 
+	 * @param buffer
+	 * @param offset
+	 * @return this view.
+	 * @throws IndexOutOfBoundsException
+	 *             If the slot does not fit in {@code buffer}.
+	 */
+	public LegMessageView wrap(final ByteBuffer buffer, final int offset)
+			throws IndexOutOfBoundsException {
+		if ((offset < 0) || (offset + BasicMessage.MESSAGE_LENGTH > buffer.capacity())) {
+			throw new IndexOutOfBoundsException("slot at " + offset + " does not fit in a buffer of "
+					+ buffer.capacity() + " bytes");
+		}
+		this.buffer = buffer;
+		this.offset = offset;
+		return this;
+	}
+
+	public ByteBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	private static void checkIndex(final int index) {
+		if ((index < 0) || (index >= BasicMessage.MESSAGE_LENGTH)) {
+			throw new IndexOutOfBoundsException("index must be comprised between 0 and "
+					+ (BasicMessage.MESSAGE_LENGTH - 1) + " (inclusive)");
+		}
+	}
+
+	public byte getByte(final int index) {
+		checkIndex(index);
+		return this.buffer.get(this.offset + index);
+	}
+
+	/**
+	 * @param index
+	 * @param value
+	 *            a byte not equals to neither 0x00 nor 0xFF
+	 * @throws IllegalArgumentException
+	 *             If {@code value} is either 0x00 or 0xFF.
+	 */
+	public void setByte(final int index, final byte value)
+			throws IllegalArgumentException {
+		checkIndex(index);
+		BasicMessage.checkByte(value);
+		this.buffer.put(this.offset + index, value);
+	}
+
+	@Override
+	public int getUnsignedByte(final int index) {
+		return HexapodBasicInterface.byteToUnsignedByte(this.getByte(index));
+	}
+
+	public void setUnsignedByte(final int index, final int value)
+			throws IllegalArgumentException {
+		this.setByte(index, HexapodBasicInterface.unsignedByteToByte(value));
+	}
+
+	@Override
+	public int getUnsignedByte(final HexapodServo servo) {
+		return this.getUnsignedByte(servo.ordinal());
+	}
+
+	public void setUnsignedByte(final HexapodServo servo, final int value) {
+		this.setUnsignedByte(servo.ordinal(), value);
+	}
+
+	@Override
+	public int getUnsignedByte(final HexapodLeg leg, final HexapodArticulation articulation) {
+		return this.getUnsignedByte(HexapodServo.fromLegArticulation(leg, articulation));
+	}
+
+	public void setUnsignedByte(final HexapodLeg leg, final HexapodArticulation articulation, final int value) {
+		this.setUnsignedByte(HexapodServo.fromLegArticulation(leg, articulation), value);
+	}
+
+	/**
+	 * Copy the 21 bytes of {@code msg} into the slot of this view.
+	 * 
+	 * @param msg
+	 */
+	public void copyFrom(final ILegMessage msg) {
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			this.buffer.put(this.offset + i, (byte) msg.getUnsignedByte(i));
+		}
+	}
+
+	/**
+	 * Copy the slot into a new array. Prefer {@link #writeTo(ByteBuffer)} on
+	 * the hot path.
+	 */
+	@Override
+	public byte[] toByteArray() {
+		final byte[] bytes = new byte[BasicMessage.MESSAGE_LENGTH];
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			bytes[i] = this.buffer.get(this.offset + i);
+		}
+		return bytes;
+	}
+
+	@Override
+	public void writeTo(final ByteBuffer dst) {
+		for (int i = 0; i < BasicMessage.MESSAGE_LENGTH; i++) {
+			dst.put(this.buffer.get(this.offset + i));
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package net.isammoc.hexapod.communication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Health of the link with a controller: the counters of its
+ * {@link FrameDecoder}, the acknowledgements written, and the latency of each
+ * pose.
+ * <p>
+ * The decode latency runs from the reading of the bytes which completed a
+ * frame to its decoding. The others run from the execution of a pose, later
+ * than its decoding if it was queued:
+ * <ul>
+ * <li>first motion: until a joint of the hexapod starts moving,</li>
+ * <li>settle: until the hexapod stops,</li>
+ * <li>acknowledgement: until the pose is acknowledged, either way.</li>
+ * </ul>
+ * Recording allocates nothing and may be done from any thread;
+ * {@link #snapshot()} copies everything at once.
+ */
+public class LinkStatistics {
+	private final FrameDecoder decoder;
+	private final AtomicLong acks = new AtomicLong();
+	private final AtomicLong nacks = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong overflows = new AtomicLong();
+	private final LatencyHistogram decodeLatency = new LatencyHistogram();
+	private final LatencyHistogram firstMotionLatency = new LatencyHistogram();
+	private final LatencyHistogram settleLatency = new LatencyHistogram();
+	private final LatencyHistogram ackLatency = new LatencyHistogram();
+
+	/**
+	 * @param decoder
+	 *            decoder of the frames of the link.
+	 */
+	public LinkStatistics(final FrameDecoder decoder) {
+		this.decoder = decoder;
+	}
+
+	/**
+	 * @param accepted
+	 *            <code>false</code> for a negative acknowledgement.
+	 */
+	public void recordAck(final boolean accepted) {
+		if (accepted) {
+			this.acks.incrementAndGet();
+		} else {
+			this.nacks.incrementAndGet();
+		}
+	}
+
+	/** Record a pose still moving at its deadline. */
+	public void recordTimeout() {
+		this.timeouts.incrementAndGet();
+	}
+
+	/** Record a frame refused because the queue of poses was full. */
+	public void recordOverflow() {
+		this.overflows.incrementAndGet();
+	}
+
+	public void recordDecode(final long nanos) {
+		this.decodeLatency.record(nanos);
+	}
+
+	public void recordFirstMotion(final long nanos) {
+		this.firstMotionLatency.record(nanos);
+	}
+
+	public void recordSettle(final long nanos) {
+		this.settleLatency.record(nanos);
+	}
+
+	public void recordAckLatency(final long nanos) {
+		this.ackLatency.record(nanos);
+	}
+
+	public long getAcks() {
+		return this.acks.get();
+	}
+
+	public long getNacks() {
+		return this.nacks.get();
+	}
+
+	public long getTimeouts() {
+		return this.timeouts.get();
+	}
+
+	public long getOverflows() {
+		return this.overflows.get();
+	}
+
+	/** @return the live histogram, to {@link LatencyHistogram#snapshot()}. */
+	public LatencyHistogram getDecodeLatency() {
+		return this.decodeLatency;
+	}
+
+	public LatencyHistogram getFirstMotionLatency() {
+		return this.firstMotionLatency;
+	}
+
+	public LatencyHistogram getSettleLatency() {
+		return this.settleLatency;
+	}
+
+	public LatencyHistogram getAckLatency() {
+		return this.ackLatency;
+	}
+
+	/** Reset all counters, those of the decoder included. */
+	public void reset() {
+		this.decoder.resetCounters();
+		this.acks.set(0);
+		this.nacks.set(0);
+		this.timeouts.set(0);
+		this.overflows.set(0);
+		this.decodeLatency.reset();
+		this.firstMotionLatency.reset();
+		this.settleLatency.reset();
+		this.ackLatency.reset();
+	}
+
+	/** @return a copy of the counters and of the histograms. */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/** Counters and histograms of a link at a given time. */
+	public static class Snapshot {
+		private final long framesReceived;
+		private final long checksumErrors;
+		private final long invalidFrames;
+		private final long bytesDiscarded;
+		private final long acks;
+		private final long nacks;
+		private final long timeouts;
+		private final long overflows;
+		private final LatencyHistogram decodeLatency;
+		private final LatencyHistogram firstMotionLatency;
+		private final LatencyHistogram settleLatency;
+		private final LatencyHistogram ackLatency;
+
+		Snapshot(final LinkStatistics statistics) {
+			this.framesReceived = statistics.decoder.getFramesDecoded();
+			this.checksumErrors = statistics.decoder.getChecksumErrors();
+			this.invalidFrames = statistics.decoder.getInvalidFrames();
+			this.bytesDiscarded = statistics.decoder.getBytesDiscarded();
+			this.acks = statistics.acks.get();
+			this.nacks = statistics.nacks.get();
+			this.timeouts = statistics.timeouts.get();
+			this.overflows = statistics.overflows.get();
+			this.decodeLatency = statistics.decodeLatency.snapshot();
+			this.firstMotionLatency = statistics.firstMotionLatency.snapshot();
+			this.settleLatency = statistics.settleLatency.snapshot();
+			this.ackLatency = statistics.ackLatency.snapshot();
+		}
+
+		/** @return number of valid frames decoded. */
+		public long getFramesReceived() {
+			return this.framesReceived;
+		}
+
+		public long getChecksumErrors() {
+			return this.checksumErrors;
+		}
+
+		/** @return number of frames dropped, for any reason. */
+		public long getInvalidFrames() {
+			return this.invalidFrames;
+		}
+
+		/** @return number of bytes dropped while resynchronizing. */
+		public long getBytesDiscarded() {
+			return this.bytesDiscarded;
+		}
+
+		public long getAcks() {
+			return this.acks;
+		}
+
+		/** @return number of negative acknowledgements, for any reason. */
+		public long getNacks() {
+			return this.nacks;
+		}
+
+		public long getTimeouts() {
+			return this.timeouts;
+		}
+
+		public long getOverflows() {
+			return this.overflows;
+		}
+
+		public LatencyHistogram getDecodeLatency() {
+			return this.decodeLatency;
+		}
+
+		public LatencyHistogram getFirstMotionLatency() {
+			return this.firstMotionLatency;
+		}
+
+		public LatencyHistogram getSettleLatency() {
+			return this.settleLatency;
+		}
+
+		public LatencyHistogram getAckLatency() {
+			return this.ackLatency;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("frames=%d checksum=%d invalid=%d discarded=%d acks=%d nacks=%d timeouts=%d"
+					+ " overflows=%d%n decode: %s%n first motion: %s%n settle: %s%n ack: %s", this.framesReceived,
+					this.checksumErrors, this.invalidFrames, this.bytesDiscarded, this.acks, this.nacks,
+					this.timeouts, this.overflows, this.decodeLatency, this.firstMotionLatency,
+					this.settleLatency, this.ackLatency);
+		}
+	}
+}
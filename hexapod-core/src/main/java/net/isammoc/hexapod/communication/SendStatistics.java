@@ -0,0 +1,146 @@
+package net.isammoc.hexapod.communication;
+
+/**
+ * Counters of the send pipeline of a {@link HexapodBasicInterface}.
+ * <p>
+ * Durations are in nanoseconds. The enqueue latency is the time spent by the
+ * caller to hand a frame over, the queue delay the time a frame waited before
+ * the writer picked it, and the write latency the time spent in the single
+ * write call of the frame.
+ */
+public class SendStatistics {
+	private long framesEnqueued;
+	private long framesSent;
+	private long framesRejected;
+	private long framesCoalesced;
+	private long writeFailures;
+	private int queueDepth;
+	private int maxQueueDepth;
+	private long enqueueNanos;
+	private long maxEnqueueNanos;
+	private long queueDelayNanos;
+	private long maxQueueDelayNanos;
+	private long writeNanos;
+	private long maxWriteNanos;
+
+	synchronized void recordEnqueue(final long nanos, final int depth) {
+		this.framesEnqueued++;
+		this.enqueueNanos += nanos;
+		this.maxEnqueueNanos = Math.max(this.maxEnqueueNanos, nanos);
+		this.recordDepth(depth);
+	}
+
+	synchronized void recordCoalesced(final long nanos, final int depth) {
+		this.framesCoalesced++;
+		this.recordEnqueue(nanos, depth);
+	}
+
+	synchronized void recordRejected() {
+		this.framesRejected++;
+	}
+
+	synchronized void recordWrite(final long queueDelay, final long nanos, final int depth) {
+		this.framesSent++;
+		this.queueDelayNanos += queueDelay;
+		this.maxQueueDelayNanos = Math.max(this.maxQueueDelayNanos, queueDelay);
+		this.writeNanos += nanos;
+		this.maxWriteNanos = Math.max(this.maxWriteNanos, nanos);
+		this.recordDepth(depth);
+	}
+
+	synchronized void recordWriteFailure(final int depth) {
+		this.writeFailures++;
+		this.recordDepth(depth);
+	}
+
+	private void recordDepth(final int depth) {
+		this.queueDepth = depth;
+		this.maxQueueDepth = Math.max(this.maxQueueDepth, depth);
+	}
+
+	/** Reset all counters but the current queue depth. */
+	public synchronized void reset() {
+		this.framesEnqueued = 0;
+		this.framesSent = 0;
+		this.framesRejected = 0;
+		this.framesCoalesced = 0;
+		this.writeFailures = 0;
+		this.maxQueueDepth = this.queueDepth;
+		this.enqueueNanos = 0;
+		this.maxEnqueueNanos = 0;
+		this.queueDelayNanos = 0;
+		this.maxQueueDelayNanos = 0;
+		this.writeNanos = 0;
+		this.maxWriteNanos = 0;
+	}
+
+	private static long average(final long total, final long count) {
+		return count == 0 ? 0 : total / count;
+	}
+
+	public synchronized long getFramesEnqueued() {
+		return this.framesEnqueued;
+	}
+
+	public synchronized long getFramesSent() {
+		return this.framesSent;
+	}
+
+	/** @return number of frames refused because the send queue was full. */
+	public synchronized long getFramesRejected() {
+		return this.framesRejected;
+	}
+
+	/**
+	 * @return number of frames merged into a pending frame instead of being
+	 *         queued. Their enqueue is also counted in
+	 *         {@link #getFramesEnqueued()}.
+	 */
+	public synchronized long getFramesCoalesced() {
+		return this.framesCoalesced;
+	}
+
+	public synchronized long getWriteFailures() {
+		return this.writeFailures;
+	}
+
+	/** @return number of frames waiting to be written. */
+	public synchronized int getQueueDepth() {
+		return this.queueDepth;
+	}
+
+	public synchronized int getMaxQueueDepth() {
+		return this.maxQueueDepth;
+	}
+
+	public synchronized long getAverageEnqueueNanos() {
+		return average(this.enqueueNanos, this.framesEnqueued);
+	}
+
+	public synchronized long getMaxEnqueueNanos() {
+		return this.maxEnqueueNanos;
+	}
+
+	public synchronized long getAverageQueueDelayNanos() {
+		return average(this.queueDelayNanos, this.framesSent);
+	}
+
+	public synchronized long getMaxQueueDelayNanos() {
+		return this.maxQueueDelayNanos;
+	}
+
+	public synchronized long getAverageWriteNanos() {
+		return average(this.writeNanos, this.framesSent);
+	}
+
+	public synchronized long getMaxWriteNanos() {
+		return this.maxWriteNanos;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("sent=%d coalesced=%d rejected=%d failures=%d depth=%d/%d enqueue=%dns queue=%dns write=%dns",
+				this.framesSent, this.framesCoalesced, this.framesRejected, this.writeFailures, this.queueDepth, this.maxQueueDepth,
+				this.getAverageEnqueueNanos(), this.getAverageQueueDelayNanos(), this.getAverageWriteNanos());
+	}
+}
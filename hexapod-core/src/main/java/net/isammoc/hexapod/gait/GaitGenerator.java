@@ -0,0 +1,142 @@
+package net.isammoc.hexapod.gait;
+
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+
+/**
+ * Stream of poses of a gait.
+ * <p>
+ * The generator advances a phase by the speed times the elapsed time, and
+ * writes the pose of this phase from its {@link GaitTable}. Changing the
+ * speed is free and keeps the phase, so the walk accelerates smoothly;
+ * changing the gait, stride, heading or lift rebuilds the table, which
+ * should not be done on every frame.
+ * <p>
+ * A generator is not thread safe.
+ */
+public class GaitGenerator {
+	private GaitTable table;
+	private float speed;
+	private float phase;
+
+	/**
+	 * @param table
+	 *            the gait to start with.
+	 * @param speed
+	 *            cycles per second, negative to walk backwards.
+	 */
+	public GaitGenerator(final GaitTable table, final float speed) {
+		this.setTable(table);
+		this.speed = speed;
+	}
+
+	/**
+	 * @see GaitTable#GaitTable(GaitType, float, float, float)
+	 */
+	public GaitGenerator(final GaitType gait, final float stride, final float heading, final float lift,
+			final float speed) {
+		this(new GaitTable(gait, stride, heading, lift), speed);
+	}
+
+	public GaitTable getTable() {
+		return this.table;
+	}
+
+	/**
+	 * Switch to another precomputed gait, keeping the phase.
+	 * 
+	 * @param table
+	 */
+	public void setTable(final GaitTable table) {
+		if (table == null) {
+			throw new NullPointerException("table must not be null");
+		}
+		this.table = table;
+	}
+
+	public void setGait(final GaitType gait) {
+		this.setTable(new GaitTable(gait, this.table.getStride(), this.table.getHeading(), this.table.getLift(),
+				this.table.getKeyframes()));
+	}
+
+	public void setStride(final float stride) {
+		this.setTable(new GaitTable(this.table.getGait(), stride, this.table.getHeading(), this.table.getLift(),
+				this.table.getKeyframes()));
+	}
+
+	public void setHeading(final float heading) {
+		this.setTable(new GaitTable(this.table.getGait(), this.table.getStride(), heading, this.table.getLift(),
+				this.table.getKeyframes()));
+	}
+
+	public void setLift(final float lift) {
+		this.setTable(new GaitTable(this.table.getGait(), this.table.getStride(), this.table.getHeading(), lift,
+				this.table.getKeyframes()));
+	}
+
+	/** @return cycles per second. */
+	public float getSpeed() {
+		return this.speed;
+	}
+
+	/**
+	 * @param speed
+	 *            cycles per second, negative to walk backwards.
+	 */
+	public void setSpeed(final float speed) {
+		this.speed = speed;
+	}
+
+	/** @return the phase in the cycle, in [0, 1[. */
+	public float getPhase() {
+		return this.phase;
+	}
+
+	public void setPhase(final float phase) {
+		this.phase = GaitTable.fraction(phase);
+	}
+
+	/**
+	 * Advance the phase by {@code seconds}.
+	 * 
+	 * @param seconds
+	 */
+	public void advance(final float seconds) {
+		this.phase = GaitTable.fraction(this.phase + (seconds * this.speed));
+	}
+
+	/**
+	 * Advance by {@code seconds} and write the pose to {@code msg}, without
+	 * allocating.
+	 * 
+	 * @param seconds
+	 * @param msg
+	 */
+	public void next(final float seconds, final LegMessageView msg) {
+		this.advance(seconds);
+		this.table.write(this.phase, msg);
+	}
+
+	/**
+	 * Advance by {@code seconds} and write the pose to {@code msg}.
+	 * 
+	 * @param seconds
+	 * @param msg
+	 */
+	public void next(final float seconds, final LegMessage msg) {
+		this.advance(seconds);
+		this.table.write(this.phase, msg);
+	}
+
+	/**
+	 * Advance by {@code seconds}.
+	 * 
+	 * @param seconds
+	 * @return a new message holding the pose.
+	 */
+	public LegMessage next(final float seconds) {
+		final LegMessage msg = new LegMessage();
+		this.next(seconds, msg);
+		return msg;
+	}
+}
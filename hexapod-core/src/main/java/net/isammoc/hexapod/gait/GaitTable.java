@@ -0,0 +1,204 @@
+package net.isammoc.hexapod.gait;
+
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.HexapodServo;
+import net.isammoc.hexapod.JointState;
+import net.isammoc.hexapod.ServoCalibration;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+import net.isammoc.hexapod.kinematics.FootPositions;
+import net.isammoc.hexapod.kinematics.LegGeometry;
+import net.isammoc.hexapod.kinematics.LegKinematics;
+
+/**
+ * One cycle of a gait, precomputed as keyframes of servo bytes.
+ * <p>
+ * All the kinematics is done by the constructor: each keyframe holds the 18
+ * joint bytes of a pose, sampled at a regular phase of the cycle, so a table
+ * of 64 keyframes takes 1152 bytes. Writing the pose of any phase is then a
+ * lookup of the two surrounding keyframes and a linear interpolation in
+ * integer arithmetic, without allocation.
+ * <p>
+ * Each foot moves around its position in the neutral pose, where all the
+ * bytes are {@link ServoCalibration#NEUTRAL}. On the ground, it slides
+ * linearly against the heading over the stride; in the air, it swings back
+ * along a half cosine while lifted along a half sine. The joint angles of
+ * each position are solved by {@link LegKinematics}.
+ * <p>
+ * A table is immutable, and thread safe.
+ */
+public final class GaitTable {
+	/** Default number of keyframes per cycle. */
+	public static final int DEFAULT_KEYFRAMES = 64;
+
+	private final GaitType gait;
+	private final float stride;
+	private final float heading;
+	private final float lift;
+	private final int keyframes;
+	/** Keyframes, {@link HexapodServo#JOINT_COUNT} bytes each. */
+	private final byte[] table;
+
+	/**
+	 * Creates a table of {@link #DEFAULT_KEYFRAMES} keyframes.
+	 * 
+	 * @see #GaitTable(GaitType, float, float, float, int)
+	 */
+	public GaitTable(final GaitType gait, final float stride, final float heading, final float lift) {
+		this(gait, stride, heading, lift, DEFAULT_KEYFRAMES);
+	}
+
+	/**
+	 * @param gait
+	 * @param stride
+	 *            distance travelled by a foot on the ground, in the units of
+	 *            {@link LegGeometry}.
+	 * @param heading
+	 *            direction of the walk, in radians counterclockwise from the
+	 *            front, seen from above.
+	 * @param lift
+	 *            height of a foot at the top of its swing.
+	 * @param keyframes
+	 *            number of poses sampled over the cycle.
+	 * @throws IllegalArgumentException
+	 *             If {@code keyframes} is lower than 2, or if a foot gets out
+	 *             of reach.
+	 * @throws NullPointerException
+	 *             If {@code gait} is <code>null</code>.
+	 */
+	public GaitTable(final GaitType gait, final float stride, final float heading, final float lift,
+			final int keyframes) throws IllegalArgumentException {
+		if (gait == null) {
+			throw new NullPointerException("gait must not be null");
+		}
+		if (keyframes < 2) {
+			throw new IllegalArgumentException("At least two keyframes are needed: " + keyframes);
+		}
+		this.gait = gait;
+		this.stride = stride;
+		this.heading = heading;
+		this.lift = lift;
+		this.keyframes = keyframes;
+		this.table = new byte[keyframes * HexapodServo.JOINT_COUNT];
+
+		final ServoCalibration calibration = ServoCalibration.DEFAULT;
+		final LegKinematics kinematics = new LegKinematics();
+		final JointState angles = new JointState();
+		final FootPositions neutral = new FootPositions();
+		calibration.decode(new LegMessage(), angles);
+		kinematics.forward(angles, neutral);
+
+		// Half stride along the heading
+		final float dx = (float) ((stride / 2) * Math.sin(heading));
+		final float dz = (float) ((stride / 2) * Math.cos(heading));
+		final float duty = gait.getDutyFactor();
+		for (int k = 0; k < keyframes; k++) {
+			for (final HexapodLeg leg : HexapodLeg.values()) {
+				final float phase = fraction(((float) k / keyframes) + gait.getPhaseOffset(leg));
+				final float position;
+				final float height;
+				if (phase < duty) {
+					position = 1 - ((2 * phase) / duty);
+					height = 0;
+				} else {
+					final double swing = Math.PI * ((phase - duty) / (1 - duty));
+					position = (float) -Math.cos(swing);
+					height = (float) (lift * Math.sin(swing));
+				}
+				if (!kinematics.solve(leg, neutral.getX(leg) + (position * dx), neutral.getY(leg) + height,
+						neutral.getZ(leg) + (position * dz), angles)) {
+					throw new IllegalArgumentException("Foot of " + leg + " out of reach, stride " + stride
+							+ ", lift " + lift);
+				}
+			}
+			final int row = k * HexapodServo.JOINT_COUNT;
+			for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+				this.table[row + joint] = (byte) calibration.toValue(joint, angles.get(joint));
+			}
+		}
+	}
+
+	/**
+	 * @return the part of {@code phase} in [0, 1[, for negative phases too.
+	 */
+	static float fraction(final float phase) {
+		final float fraction = phase - (float) Math.floor(phase);
+		return fraction < 1 ? fraction : 0;
+	}
+
+	public GaitType getGait() {
+		return this.gait;
+	}
+
+	public float getStride() {
+		return this.stride;
+	}
+
+	public float getHeading() {
+		return this.heading;
+	}
+
+	public float getLift() {
+		return this.lift;
+	}
+
+	public int getKeyframes() {
+		return this.keyframes;
+	}
+
+	/**
+	 * @param keyframe
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 * @return the servo byte of {@code joint} in {@code keyframe}.
+	 */
+	public int getUnsignedByte(final int keyframe, final int joint) {
+		return this.table[(keyframe * HexapodServo.JOINT_COUNT) + joint] & 0xFF;
+	}
+
+	/**
+	 * Write the pose of {@code phase} to the joint bytes of {@code msg}.
+	 * 
+	 * @param phase
+	 *            phase in the cycle, only its fractional part is used.
+	 * @param msg
+	 */
+	public void write(final float phase, final LegMessageView msg) {
+		final float position = fraction(phase) * this.keyframes;
+		final int keyframe = Math.min((int) position, this.keyframes - 1);
+		final int weight = (int) ((position - keyframe) * 256);
+		final int row = keyframe * HexapodServo.JOINT_COUNT;
+		final int next = keyframe + 1 < this.keyframes ? row + HexapodServo.JOINT_COUNT : 0;
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			msg.setUnsignedByte(joint, this.interpolate(row + joint, next + joint, weight));
+		}
+	}
+
+	/**
+	 * Write the pose of {@code phase} to the joint bytes of {@code msg}.
+	 * 
+	 * @param phase
+	 *            phase in the cycle, only its fractional part is used.
+	 * @param msg
+	 */
+	public void write(final float phase, final LegMessage msg) {
+		final float position = fraction(phase) * this.keyframes;
+		final int keyframe = Math.min((int) position, this.keyframes - 1);
+		final int weight = (int) ((position - keyframe) * 256);
+		final int row = keyframe * HexapodServo.JOINT_COUNT;
+		final int next = keyframe + 1 < this.keyframes ? row + HexapodServo.JOINT_COUNT : 0;
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			msg.setUnsignedByte(joint, this.interpolate(row + joint, next + joint, weight));
+		}
+	}
+
+	/**
+	 * @param weight
+	 *            weight of {@code to}, out of 256.
+	 */
+	private int interpolate(final int from, final int to, final int weight) {
+		final int a = this.table[from] & 0xFF;
+		final int b = this.table[to] & 0xFF;
+		return a + (((b - a) * weight) >> 8);
+	}
+}
@@ -0,0 +1,57 @@
+package net.isammoc.hexapod.gait;
+
+import net.isammoc.hexapod.HexapodLeg;
+
+/**
+ * Walking gaits of the hexapod.
+ * <p>
+ * A gait is defined by its duty factor, the fraction of the cycle a leg
+ * spends on the ground, and by the phase offset of each leg. A leg is on the
+ * ground while its own phase, the phase of the cycle plus its offset, is lower
+ * than the duty factor, and swings forward for the rest of the cycle.
+ */
+public enum GaitType {
+	/**
+	 * Right front, left middle and right rear legs swing together, then the
+	 * three others: fast, three legs on the ground.
+	 */
+	TRIPOD(1f / 2, 0f, 1f / 2, 0f, 1f / 2, 0f, 1f / 2),
+	/**
+	 * One leg swings at a time, from rear to front on the right side, then
+	 * on the left side: slow, five legs on the ground.
+	 */
+	WAVE(5f / 6, 3f / 6, 4f / 6, 5f / 6, 2f / 6, 1f / 6, 0f),
+	/**
+	 * One leg per side swings at a time, from rear to front, the sides half a
+	 * cycle apart: four legs on the ground.
+	 */
+	RIPPLE(2f / 3, 0f, 1f / 3, 2f / 3, 1f / 6, 5f / 6, 1f / 2);
+
+	private final float dutyFactor;
+	private final float[] offsets;
+
+	/**
+	 * @param dutyFactor
+	 * @param offsets
+	 *            phase offset of each leg, in the order of
+	 *            {@link HexapodLeg#values()}.
+	 */
+	private GaitType(final float dutyFactor, final float... offsets) {
+		this.dutyFactor = dutyFactor;
+		this.offsets = offsets;
+	}
+
+	/** @return the fraction of the cycle a leg spends on the ground. */
+	public float getDutyFactor() {
+		return this.dutyFactor;
+	}
+
+	/**
+	 * @param leg
+	 * @return the phase of {@code leg} when the cycle is at phase 0, between
+	 *         0 (included) and 1 (excluded).
+	 */
+	public float getPhaseOffset(final HexapodLeg leg) {
+		return this.offsets[leg.ordinal()];
+	}
+}
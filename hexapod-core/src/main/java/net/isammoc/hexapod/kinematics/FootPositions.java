@@ -0,0 +1,51 @@
+package net.isammoc.hexapod.kinematics;
+
+import net.isammoc.hexapod.HexapodLeg;
+
+/**
+ * Positions of the six feet in the body frame of {@link LegGeometry}.
+ * <p>
+ * Coordinates are held in a flat array, so positions can be read and written
+ * on every frame without allocating. Positions are not thread safe.
+ */
+public class FootPositions {
+	private final float[] values = new float[HexapodLeg.values().length * 3];
+
+	public float getX(final HexapodLeg leg) {
+		return this.values[leg.ordinal() * 3];
+	}
+
+	public float getY(final HexapodLeg leg) {
+		return this.values[(leg.ordinal() * 3) + 1];
+	}
+
+	public float getZ(final HexapodLeg leg) {
+		return this.values[(leg.ordinal() * 3) + 2];
+	}
+
+	public void set(final HexapodLeg leg, final float x, final float y, final float z) {
+		final int index = leg.ordinal() * 3;
+		this.values[index] = x;
+		this.values[index + 1] = y;
+		this.values[index + 2] = z;
+	}
+
+	/**
+	 * Move all the feet by the same offset.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
+	public void translate(final float x, final float y, final float z) {
+		for (int i = 0; i < this.values.length; i += 3) {
+			this.values[i] += x;
+			this.values[i + 1] += y;
+			this.values[i + 2] += z;
+		}
+	}
+
+	public void copyFrom(final FootPositions positions) {
+		System.arraycopy(positions.values, 0, this.values, 0, this.values.length);
+	}
+}
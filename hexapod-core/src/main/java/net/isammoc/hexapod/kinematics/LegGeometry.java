@@ -0,0 +1,67 @@
+package net.isammoc.hexapod.kinematics;
+
+import net.isammoc.hexapod.HexapodLeg;
+
+/**
+ * Dimensions of the hexapod, as built by the simulation.
+ * <p>
+ * The body frame is centered on the base: x points to the left, y up and z
+ * to the front. Each leg has its own frame, centered on its shoulder pivot
+ * and turned around y by its mount angle, so that its z axis points away
+ * from the body. Once turned by its shoulder, a leg moves in the vertical
+ * plane of this axis: the arm goes from the elbow, at {@link #ELBOW_OFFSET}
+ * from the shoulder pivot, to the wrist, then the hand to the foot. At zero
+ * angles the arm points up and the hand down. The small lateral offsets of
+ * the bodies are neglected.
+ */
+public final class LegGeometry {
+	/** Horizontal distance from the shoulder pivot to the elbow pivot. */
+	public static final float ELBOW_OFFSET = 1.3f;
+	/** Distance from the elbow pivot to the wrist pivot. */
+	public static final float ARM_LENGTH = 4.6f;
+	/** Distance from the wrist pivot to the tip of the foot. */
+	public static final float HAND_LENGTH = 9.0f;
+
+	private static final float MOUNT = 0.588f;
+
+	// Indexed by leg ordinal
+	static final float[] PIVOT_X = { -3.0f, -3.8f, -3.0f, 3.0f, 3.8f, 3.0f };
+	static final float[] PIVOT_Y = { 1f, 1f, 1f, 1f, 1f, 1f };
+	static final float[] PIVOT_Z = { 4.5f, 0f, -4.5f, -4.5f, 0f, 4.5f };
+	static final float[] MOUNT_ANGLES = { -MOUNT, (float) -Math.PI / 2, MOUNT - (float) Math.PI,
+			(float) Math.PI - MOUNT, (float) Math.PI / 2, MOUNT };
+	static final float[] MOUNT_SIN = new float[MOUNT_ANGLES.length];
+	static final float[] MOUNT_COS = new float[MOUNT_ANGLES.length];
+	static {
+		for (int i = 0; i < MOUNT_ANGLES.length; i++) {
+			MOUNT_SIN[i] = (float) Math.sin(MOUNT_ANGLES[i]);
+			MOUNT_COS[i] = (float) Math.cos(MOUNT_ANGLES[i]);
+		}
+	}
+
+	private LegGeometry() {
+	}
+
+	/** @return the x of the shoulder pivot of {@code leg} in the body frame. */
+	public static float getPivotX(final HexapodLeg leg) {
+		return PIVOT_X[leg.ordinal()];
+	}
+
+	/** @return the y of the shoulder pivot of {@code leg} in the body frame. */
+	public static float getPivotY(final HexapodLeg leg) {
+		return PIVOT_Y[leg.ordinal()];
+	}
+
+	/** @return the z of the shoulder pivot of {@code leg} in the body frame. */
+	public static float getPivotZ(final HexapodLeg leg) {
+		return PIVOT_Z[leg.ordinal()];
+	}
+
+	/**
+	 * @return the angle around y from the z axis of the body to the z axis of
+	 *         {@code leg}, in radians.
+	 */
+	public static float getMountAngle(final HexapodLeg leg) {
+		return MOUNT_ANGLES[leg.ordinal()];
+	}
+}
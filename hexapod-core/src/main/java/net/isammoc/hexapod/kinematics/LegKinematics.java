@@ -0,0 +1,165 @@
+package net.isammoc.hexapod.kinematics;
+
+import static net.isammoc.hexapod.kinematics.LegGeometry.ARM_LENGTH;
+import static net.isammoc.hexapod.kinematics.LegGeometry.ELBOW_OFFSET;
+import static net.isammoc.hexapod.kinematics.LegGeometry.HAND_LENGTH;
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.HexapodServo;
+import net.isammoc.hexapod.JointState;
+import net.isammoc.hexapod.ServoCalibration;
+import net.isammoc.hexapod.communication.LegMessageView;
+
+/**
+ * Inverse and forward kinematics of the legs of {@link LegGeometry}.
+ * <p>
+ * Angles are the joint angles of {@link ServoCalibration}, relative to the
+ * pose of the built hexapod. The shoulder turns the leg to the foot; the arm
+ * and the hand then form a planar two links chain, solved with the wrist
+ * bent the same way as in the neutral pose. A target out of reach gives the
+ * angles of the nearest reachable position on the line to the target.
+ * <p>
+ * This solver is exact and uses the trigonometric functions;
+ * {@link LegKinematicsGrid} trades some accuracy for speed. A solver has no
+ * state and is thread safe.
+ */
+public class LegKinematics {
+	private static final HexapodLeg[] LEGS = HexapodLeg.values();
+
+	private static final float MIN_REACH = HAND_LENGTH - ARM_LENGTH;
+	private static final float MAX_REACH = HAND_LENGTH + ARM_LENGTH;
+
+	/**
+	 * Solve the joint angles of {@code leg} for the foot at {@code x},
+	 * {@code y}, {@code z} in the body frame.
+	 * 
+	 * @param leg
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param angles
+	 *            receives the three angles of {@code leg}, the others are left
+	 *            unchanged.
+	 * @return <code>false</code> if the target is out of reach.
+	 */
+	public boolean solve(final HexapodLeg leg, final float x, final float y, final float z, final JointState angles) {
+		final int index = leg.ordinal();
+		final float dx = x - LegGeometry.PIVOT_X[index];
+		final float dz = z - LegGeometry.PIVOT_Z[index];
+		// Into the frame of the leg, z away from the body
+		final float radial = (dx * LegGeometry.MOUNT_SIN[index]) + (dz * LegGeometry.MOUNT_COS[index]);
+		final float lateral = (dx * LegGeometry.MOUNT_COS[index]) - (dz * LegGeometry.MOUNT_SIN[index]);
+		final float height = y - LegGeometry.PIVOT_Y[index];
+
+		angles.set(HexapodServo.jointIndex(leg, HexapodArticulation.SHOULDER), -this.yaw(lateral, radial));
+		final float distance = (float) Math.sqrt((lateral * lateral) + (radial * radial));
+		this.solvePlanar(distance, height, HexapodServo.jointIndex(leg, HexapodArticulation.ELBOW),
+				HexapodServo.jointIndex(leg, HexapodArticulation.WRIST), angles);
+		final float reach = ((distance - ELBOW_OFFSET) * (distance - ELBOW_OFFSET)) + (height * height);
+		return (reach >= (MIN_REACH * MIN_REACH)) && (reach <= (MAX_REACH * MAX_REACH));
+	}
+
+	/**
+	 * Solve the joint angles of the six legs.
+	 * 
+	 * @param feet
+	 *            targets of the feet.
+	 * @param angles
+	 *            receives the 18 angles.
+	 * @return the number of legs whose target is out of reach.
+	 */
+	public int solve(final FootPositions feet, final JointState angles) {
+		int unreachable = 0;
+		for (final HexapodLeg leg : LEGS) {
+			if (!this.solve(leg, feet.getX(leg), feet.getY(leg), feet.getZ(leg), angles)) {
+				unreachable++;
+			}
+		}
+		return unreachable;
+	}
+
+	/**
+	 * Solve the six legs, and write the servo bytes of the solution to
+	 * {@code msg}.
+	 * 
+	 * @param feet
+	 *            targets of the feet.
+	 * @param calibration
+	 * @param angles
+	 *            receives the 18 angles.
+	 * @param msg
+	 *            receives the 18 servo bytes.
+	 * @return the number of legs whose target is out of reach.
+	 */
+	public int solve(final FootPositions feet, final ServoCalibration calibration, final JointState angles,
+			final LegMessageView msg) {
+		final int unreachable = this.solve(feet, angles);
+		calibration.encode(angles, msg);
+		return unreachable;
+	}
+
+	/**
+	 * @param lateral
+	 *            distance of the foot to the side of the leg axis.
+	 * @param radial
+	 *            distance of the foot along the leg axis.
+	 * @return the angle of the foot from the leg axis, counterclockwise seen
+	 *         from above.
+	 */
+	protected float yaw(final float lateral, final float radial) {
+		return (float) Math.atan2(lateral, radial);
+	}
+
+	/**
+	 * Solve the elbow and the wrist for the foot at {@code distance} from the
+	 * shoulder axis and at {@code height} from the shoulder pivot.
+	 */
+	protected void solvePlanar(final float distance, final float height, final int elbow, final int wrist,
+			final JointState angles) {
+		final double r = distance - ELBOW_OFFSET;
+		final double squared = (r * r) + (height * height);
+		final double cos = ((ARM_LENGTH * ARM_LENGTH) + (HAND_LENGTH * HAND_LENGTH) - squared)
+				/ (2 * ARM_LENGTH * HAND_LENGTH);
+		final double bend = Math.acos(Math.max(-1, Math.min(1, cos)));
+		// Angle of the arm from the vertical, toward the outside
+		final double arm = Math.atan2(r, height)
+				- Math.atan2(HAND_LENGTH * Math.sin(bend), ARM_LENGTH - (HAND_LENGTH * Math.cos(bend)));
+		angles.set(elbow, (float) -arm);
+		angles.set(wrist, (float) bend);
+	}
+
+	/**
+	 * Compute the position of the foot of {@code leg}.
+	 * 
+	 * @param leg
+	 * @param angles
+	 *            the angles of the joints of {@code leg} are read.
+	 * @param feet
+	 *            receives the position of the foot of {@code leg}.
+	 */
+	public void forward(final HexapodLeg leg, final JointState angles, final FootPositions feet) {
+		final int index = leg.ordinal();
+		final double shoulder = angles.get(leg, HexapodArticulation.SHOULDER);
+		final double elbow = angles.get(leg, HexapodArticulation.ELBOW);
+		final double wrist = angles.get(leg, HexapodArticulation.WRIST);
+		final double distance = (ELBOW_OFFSET - (ARM_LENGTH * Math.sin(elbow)))
+				+ (HAND_LENGTH * Math.sin(elbow + wrist));
+		final double height = (ARM_LENGTH * Math.cos(elbow)) - (HAND_LENGTH * Math.cos(elbow + wrist));
+		final double direction = LegGeometry.MOUNT_ANGLES[index] - shoulder;
+		feet.set(leg, (float) (LegGeometry.PIVOT_X[index] + (distance * Math.sin(direction))),
+				(float) (LegGeometry.PIVOT_Y[index] + height),
+				(float) (LegGeometry.PIVOT_Z[index] + (distance * Math.cos(direction))));
+	}
+
+	/**
+	 * Compute the positions of the six feet.
+	 * 
+	 * @param angles
+	 * @param feet
+	 */
+	public void forward(final JointState angles, final FootPositions feet) {
+		for (final HexapodLeg leg : LEGS) {
+			this.forward(leg, angles, feet);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package net.isammoc.hexapod.kinematics;
+
+import net.isammoc.hexapod.JointState;
+
+/**
+ * {@link LegKinematics} from precomputed grids, for the per frame path.
+ * <p>
+ * The elbow and wrist angles are sampled by the exact solver on a regular
+ * grid of the distance and height of the foot, and the shoulder angle on a
+ * table of the tangent of the foot direction. Solving is then a bilinear
+ * interpolation in the grid and a linear one in the table, with a square
+ * root but without trigonometric functions. Targets outside of the grid, and
+ * directions more than {@link #MAX_YAW_TANGENT} away from the leg axis, fall
+ * back on the exact solver.
+ * <p>
+ * Within the workspace, the error decreases with the cell size, at the cost
+ * of memory: the default grid takes about 30 KB. A grid is immutable, and
+ * thread safe.
+ */
+public class LegKinematicsGrid extends LegKinematics {
+	/** Largest tangent of the foot direction served by the table. */
+	public static final float MAX_YAW_TANGENT = 4f;
+
+	private static final int YAW_SAMPLES = 1024;
+	private static final float[] YAW = new float[YAW_SAMPLES + 1];
+	static {
+		for (int i = 0; i <= YAW_SAMPLES; i++) {
+			YAW[i] = (float) Math.atan(((2 * MAX_YAW_TANGENT * i) / YAW_SAMPLES) - MAX_YAW_TANGENT);
+		}
+	}
+
+	private final float cell;
+	private final float minDistance;
+	private final float minHeight;
+	private final int distances;
+	private final int heights;
+	/** Elbow then wrist angle, per height then per distance. */
+	private final float[] grid;
+
+	/**
+	 * Creates a grid of cells of 0.25 over the usual workspace of a foot.
+	 */
+	public LegKinematicsGrid() {
+		this(0.25f, 2f, 15f, -13f, 4f);
+	}
+
+	/**
+	 * @param cell
+	 *            size of a cell of the grid.
+	 * @param minDistance
+	 *            horizontal distance of the foot from the shoulder pivot.
+	 * @param maxDistance
+	 * @param minHeight
+	 *            height of the foot from the shoulder pivot.
+	 * @param maxHeight
+	 */
+	public LegKinematicsGrid(final float cell, final float minDistance, final float maxDistance,
+			final float minHeight, final float maxHeight) {
+		if (!(cell > 0) || !(maxDistance > minDistance) || !(maxHeight > minHeight)) {
+			throw new IllegalArgumentException("A positive cell and non empty ranges are needed");
+		}
+		if (minDistance <= LegGeometry.ELBOW_OFFSET) {
+			throw new IllegalArgumentException("The grid must not reach the elbow axis: " + minDistance);
+		}
+		this.cell = cell;
+		this.minDistance = minDistance;
+		this.minHeight = minHeight;
+		this.distances = (int) Math.ceil((maxDistance - minDistance) / cell) + 1;
+		this.heights = (int) Math.ceil((maxHeight - minHeight) / cell) + 1;
+		this.grid = new float[this.distances * this.heights * 2];
+
+		final JointState angles = new JointState();
+		for (int h = 0; h < this.heights; h++) {
+			for (int d = 0; d < this.distances; d++) {
+				super.solvePlanar(minDistance + (d * cell), minHeight + (h * cell), 0, 1, angles);
+				final int index = ((h * this.distances) + d) * 2;
+				this.grid[index] = angles.get(0);
+				this.grid[index + 1] = angles.get(1);
+			}
+		}
+	}
+
+	@Override
+	protected float yaw(final float lateral, final float radial) {
+		if (!(radial > 0)) {
+			return super.yaw(lateral, radial);
+		}
+		final float tangent = lateral / radial;
+		if (Math.abs(tangent) >= MAX_YAW_TANGENT) {
+			return super.yaw(lateral, radial);
+		}
+		final float position = ((tangent + MAX_YAW_TANGENT) * YAW_SAMPLES) / (2 * MAX_YAW_TANGENT);
+		final int i = (int) position;
+		final float fraction = position - i;
+		return YAW[i] + ((YAW[i + 1] - YAW[i]) * fraction);
+	}
+
+	@Override
+	protected void solvePlanar(final float distance, final float height, final int elbow, final int wrist,
+			final JointState angles) {
+		final float d = (distance - this.minDistance) / this.cell;
+		final float h = (height - this.minHeight) / this.cell;
+		if (!(d >= 0) || !(h >= 0) || (d >= (this.distances - 1)) || (h >= (this.heights - 1))) {
+			super.solvePlanar(distance, height, elbow, wrist, angles);
+			return;
+		}
+		final int d0 = (int) d;
+		final int h0 = (int) h;
+		final float fd = d - d0;
+		final float fh = h - h0;
+		final int low = ((h0 * this.distances) + d0) * 2;
+		final int high = low + (this.distances * 2);
+		angles.set(elbow, this.interpolate(low, high, fd, fh));
+		angles.set(wrist, this.interpolate(low + 1, high + 1, fd, fh));
+	}
+
+	private float interpolate(final int low, final int high, final float fd, final float fh) {
+		final float a = this.grid[low] + ((this.grid[low + 2] - this.grid[low]) * fd);
+		final float b = this.grid[high] + ((this.grid[high + 2] - this.grid[high]) * fd);
+		return a + ((b - a) * fh);
+	}
+}
@@ -0,0 +1,40 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.communication.HexapodBasicInterface;
+import net.isammoc.hexapod.communication.SendStatistics;
+
+/**
+ * Send side of a {@link HexapodBasicInterface}, from its
+ * {@link SendStatistics}. Durations are in nanoseconds.
+ */
+public interface HexapodInterfaceMXBean {
+	/** @return the name of the transport, <code>null</code> once closed. */
+	String getTransport();
+
+	long getFramesSent();
+
+	long getFramesEnqueued();
+
+	long getFramesRejected();
+
+	long getFramesCoalesced();
+
+	long getWriteFailures();
+
+	/** @return frames sent per second, measured by a {@link RateMeter}. */
+	double getFramesOutPerSecond();
+
+	int getQueueDepth();
+
+	int getMaxQueueDepth();
+
+	long getAverageQueueDelayNanos();
+
+	long getMaxQueueDelayNanos();
+
+	long getAverageWriteNanos();
+
+	long getMaxWriteNanos();
+
+	void resetCounters();
+}
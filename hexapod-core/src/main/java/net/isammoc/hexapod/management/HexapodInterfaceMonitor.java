@@ -0,0 +1,88 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.communication.HexapodBasicInterface;
+import net.isammoc.hexapod.communication.SendStatistics;
+import net.isammoc.hexapod.transport.HexapodTransport;
+
+/** {@link HexapodInterfaceMXBean} of a {@link HexapodBasicInterface}. */
+public class HexapodInterfaceMonitor implements HexapodInterfaceMXBean {
+	private final HexapodBasicInterface hexapod;
+	private final SendStatistics statistics;
+	private final RateMeter framesOut = new RateMeter();
+
+	public HexapodInterfaceMonitor(final HexapodBasicInterface hexapod) {
+		this.hexapod = hexapod;
+		this.statistics = hexapod.getStatistics();
+	}
+
+	@Override
+	public String getTransport() {
+		final HexapodTransport transport = this.hexapod.getTransport();
+		return transport == null ? null : transport.getName();
+	}
+
+	@Override
+	public long getFramesSent() {
+		return this.statistics.getFramesSent();
+	}
+
+	@Override
+	public long getFramesEnqueued() {
+		return this.statistics.getFramesEnqueued();
+	}
+
+	@Override
+	public long getFramesRejected() {
+		return this.statistics.getFramesRejected();
+	}
+
+	@Override
+	public long getFramesCoalesced() {
+		return this.statistics.getFramesCoalesced();
+	}
+
+	@Override
+	public long getWriteFailures() {
+		return this.statistics.getWriteFailures();
+	}
+
+	@Override
+	public double getFramesOutPerSecond() {
+		return this.framesOut.perSecond(this.statistics.getFramesSent());
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return this.statistics.getQueueDepth();
+	}
+
+	@Override
+	public int getMaxQueueDepth() {
+		return this.statistics.getMaxQueueDepth();
+	}
+
+	@Override
+	public long getAverageQueueDelayNanos() {
+		return this.statistics.getAverageQueueDelayNanos();
+	}
+
+	@Override
+	public long getMaxQueueDelayNanos() {
+		return this.statistics.getMaxQueueDelayNanos();
+	}
+
+	@Override
+	public long getAverageWriteNanos() {
+		return this.statistics.getAverageWriteNanos();
+	}
+
+	@Override
+	public long getMaxWriteNanos() {
+		return this.statistics.getMaxWriteNanos();
+	}
+
+	@Override
+	public void resetCounters() {
+		this.statistics.reset();
+	}
+}
@@ -0,0 +1,59 @@
+package net.isammoc.hexapod.management;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Register the MBeans of the hexapod in the platform MBean server, under the
+ * domain {@value #DOMAIN}, so that running instances can be watched and tuned
+ * from any JMX console.
+ * <p>
+ * Monitoring must never stop the hexapod: a failure to register or unregister
+ * is only reported.
+ */
+public class HexapodMBeans {
+	public static final String DOMAIN = "net.isammoc.hexapod";
+
+	/**
+	 * Register {@code mbean} as <code>net.isammoc.hexapod:type=..,name=..</code>.
+	 * 
+	 * @param mbean
+	 *            an implementation of an MBean or MXBean interface.
+	 * @param type
+	 * @param name
+	 *            any text, quoted if needed.
+	 * @return the name of the registered MBean, or <code>null</code> if it
+	 *         could not be registered.
+	 */
+	public static ObjectName register(final Object mbean, final String type, final String name) {
+		try {
+			final ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name="
+					+ (name.matches("[\\w.-]+") ? name : ObjectName.quote(name)));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+			return objectName;
+		} catch (final JMException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Unregister an MBean registered by
+	 * {@link #register(Object, String, String)}.
+	 * 
+	 * @param objectName
+	 *            <code>null</code> for nothing.
+	 */
+	public static void unregister(final ObjectName objectName) {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (final JMException e) {
+			e.printStackTrace();
+		}
+	}
+}
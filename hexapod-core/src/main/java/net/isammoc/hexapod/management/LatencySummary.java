@@ -0,0 +1,69 @@
+package net.isammoc.hexapod.management;
+
+import java.beans.ConstructorProperties;
+
+import net.isammoc.hexapod.communication.LatencyHistogram;
+
+/**
+ * Percentiles of a {@link LatencyHistogram}, shown by JMX consoles as a
+ * composite attribute.
+ */
+public class LatencySummary {
+	private final long count;
+	private final long meanNanos;
+	private final long p50Nanos;
+	private final long p90Nanos;
+	private final long p99Nanos;
+	private final long p999Nanos;
+	private final long maxNanos;
+
+	@ConstructorProperties({ "count", "meanNanos", "p50Nanos", "p90Nanos", "p99Nanos", "p999Nanos", "maxNanos" })
+	public LatencySummary(final long count, final long meanNanos, final long p50Nanos, final long p90Nanos,
+			final long p99Nanos, final long p999Nanos, final long maxNanos) {
+		this.count = count;
+		this.meanNanos = meanNanos;
+		this.p50Nanos = p50Nanos;
+		this.p90Nanos = p90Nanos;
+		this.p99Nanos = p99Nanos;
+		this.p999Nanos = p999Nanos;
+		this.maxNanos = maxNanos;
+	}
+
+	/**
+	 * @param histogram
+	 *            a snapshot, so that the percentiles are consistent.
+	 */
+	public static LatencySummary of(final LatencyHistogram histogram) {
+		return new LatencySummary(histogram.getCount(), histogram.getMeanNanos(),
+				histogram.getPercentileNanos(50), histogram.getPercentileNanos(90),
+				histogram.getPercentileNanos(99), histogram.getPercentileNanos(99.9), histogram.getMaxNanos());
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public long getMeanNanos() {
+		return this.meanNanos;
+	}
+
+	public long getP50Nanos() {
+		return this.p50Nanos;
+	}
+
+	public long getP90Nanos() {
+		return this.p90Nanos;
+	}
+
+	public long getP99Nanos() {
+		return this.p99Nanos;
+	}
+
+	public long getP999Nanos() {
+		return this.p999Nanos;
+	}
+
+	public long getMaxNanos() {
+		return this.maxNanos;
+	}
+}
@@ -0,0 +1,40 @@
+package net.isammoc.hexapod.management;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate of a growing counter, such as frames per second, over a window of at
+ * least a second.
+ * <p>
+ * JMX consoles poll their attributes periodically: a read which ends the
+ * current window measures the rate over it, and every read returns the rate
+ * of the last ended window. Several consoles thus see the same rate,
+ * whatever their polling periods.
+ */
+public class RateMeter {
+	/** Shortest window over which the rate is measured. */
+	private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+	private long windowCount;
+	private long windowStart = System.nanoTime();
+	private double rate;
+
+	/**
+	 * @param count
+	 *            current value of the counter. A counter smaller than at the
+	 *            start of the window was reset, and counts from 0.
+	 * @return the increase of the counter per second over the last ended
+	 *         window, 0 until a window ended.
+	 */
+	public synchronized double perSecond(final long count) {
+		final long now = System.nanoTime();
+		final long elapsed = now - this.windowStart;
+		if (elapsed >= WINDOW) {
+			final long increase = count >= this.windowCount ? count - this.windowCount : count;
+			this.rate = (increase * 1e9) / elapsed;
+			this.windowCount = count;
+			this.windowStart = now;
+		}
+		return this.rate;
+	}
+}
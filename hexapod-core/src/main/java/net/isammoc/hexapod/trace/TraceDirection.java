@@ -0,0 +1,36 @@
+package net.isammoc.hexapod.trace;
+
+/**
+ * Direction of a recorded frame, seen from the recording side.
+ */
+public enum TraceDirection {
+	/** Frame received, by the simulator for instance. */
+	RECEIVED(1),
+	/** Frame sent, by a controller for instance. */
+	SENT(2);
+
+	private final byte code;
+
+	private TraceDirection(final int code) {
+		this.code = (byte) code;
+	}
+
+	byte getCode() {
+		return this.code;
+	}
+
+	/**
+	 * @return the direction of {@code code}, or <code>null</code> for the
+	 *         code of an empty record.
+	 */
+	static TraceDirection fromCode(final byte code) {
+		switch (code) {
+			case 1:
+				return RECEIVED;
+			case 2:
+				return SENT;
+			default:
+				return null;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package net.isammoc.hexapod.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import net.isammoc.hexapod.communication.BasicMessage;
+
+/**
+ * Layout of a trace file.
+ * <p>
+ * A trace is a 32 bytes header followed by fixed 32 bytes records:
+ * 
+ * <pre>
+ * header: magic "HXTR" | version (2) | record size (2) | start time, epoch ms (8) | start time, nano time (8) | reserved (8)
+ * record: nano time (8) | direction (1) | message (21) | source (1) | padding (1)
+ * </pre>
+ * 
+ * Numbers are big endian. The file is mapped in chunks, so it may end with
+ * empty records: the records end at the first record whose direction is 0.
+ * <p>
+ * Records are in time order. A sparse time index is written alongside, in
+ * the file named after the trace with an {@value #INDEX_SUFFIX} suffix: the
+ * nano time of every {@link #INDEX_INTERVAL}th record, after a 16 bytes
+ * header.
+ * 
+ * <pre>
+ * index header: magic "HXTI" | version (2) | reserved (2) | interval (4) | reserved (4)
+ * index entry:  nano time of the record entry * interval (8)
+ * </pre>
+ */
+final class TraceFormat {
+	static final int MAGIC = 0x48585452; // "HXTR"
+	static final short VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+	static final int RECORD_SIZE = 32;
+
+	static final int TIME_OFFSET = 0;
+	static final int DIRECTION_OFFSET = 8;
+	static final int MESSAGE_OFFSET = 9;
+	static final int SOURCE_OFFSET = MESSAGE_OFFSET + BasicMessage.MESSAGE_LENGTH;
+
+	/** Records per mapped chunk: 32 MiB chunks. */
+	static final int CHUNK_RECORDS = 1 << 20;
+	static final long CHUNK_SIZE = (long) CHUNK_RECORDS * RECORD_SIZE;
+
+	static final int INDEX_MAGIC = 0x48585449; // "HXTI"
+	static final String INDEX_SUFFIX = ".idx";
+	static final int INDEX_HEADER_SIZE = 16;
+	static final int INDEX_ENTRY_SIZE = 8;
+
+	/** Records per index entry: an entry per 32 KiB of records. */
+	static final int INDEX_INTERVAL = 1024;
+
+	private static final int INDEX_INTERVAL_OFFSET = 8;
+
+	private static final int START_MILLIS_OFFSET = 8;
+	private static final int START_NANOS_OFFSET = 16;
+
+	private TraceFormat() {
+	}
+
+	static long recordPosition(final long index) {
+		return HEADER_SIZE + (index * RECORD_SIZE);
+	}
+
+	static ByteBuffer header(final long startMillis, final long startNanos) {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.putShort((short) RECORD_SIZE);
+		header.putLong(startMillis);
+		header.putLong(startNanos);
+		header.flip();
+		return header;
+	}
+
+	static void checkHeader(final ByteBuffer header)
+			throws IOException {
+		if ((header.getInt(0) != MAGIC) || (header.getShort(4) != VERSION)
+				|| (header.getShort(6) != RECORD_SIZE)) {
+			throw new IOException("Not a hexapod trace, or unsupported version");
+		}
+	}
+
+	static long getStartMillis(final ByteBuffer header) {
+		return header.getLong(START_MILLIS_OFFSET);
+	}
+
+	static long getStartNanos(final ByteBuffer header) {
+		return header.getLong(START_NANOS_OFFSET);
+	}
+
+	static Path indexPath(final Path trace) {
+		return trace.resolveSibling(trace.getFileName() + INDEX_SUFFIX);
+	}
+
+	static long indexEntryPosition(final long entry) {
+		return INDEX_HEADER_SIZE + (entry * INDEX_ENTRY_SIZE);
+	}
+
+	static ByteBuffer indexHeader() {
+		final ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+		header.putInt(INDEX_MAGIC);
+		header.putShort(VERSION);
+		header.putShort((short) 0);
+		header.putInt(INDEX_INTERVAL);
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * @return whether {@code header} is the header of an index this version
+	 *         can use.
+	 */
+	static boolean isIndexHeader(final ByteBuffer header) {
+		return (header.getInt(0) == INDEX_MAGIC) && (header.getShort(4) == VERSION)
+				&& (header.getInt(INDEX_INTERVAL_OFFSET) == INDEX_INTERVAL);
+	}
+}
@@ -0,0 +1,280 @@
+package net.isammoc.hexapod.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.isammoc.hexapod.communication.LegMessageView;
+
+/**
+ * Random access to the records of a trace file.
+ * <p>
+ * The file is mapped read only, in chunks: nothing is loaded on the heap,
+ * and messages are read through {@link LegMessageView}s over the mapping.
+ * Once opened, a reader may be shared by several threads.
+ * <p>
+ * Records have a fixed size, so a frame number is directly a record index.
+ * Times are found through the sparse time index: a dichotomy over the index,
+ * held on the heap, then over a single interval of records. Entries missing
+ * from the index file, after a crash of the recorder for instance, are read
+ * from the records when the trace is opened.
+ */
+public class TraceReader implements Closeable {
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer[] chunks;
+	private final long startMillis;
+	private final long startNanos;
+	private final long recordCount;
+	private final long[] index;
+
+	private TraceReader(final Path path, final FileChannel channel)
+			throws IOException {
+		this.path = path;
+		this.channel = channel;
+		final long size = channel.size();
+		if (size < TraceFormat.HEADER_SIZE) {
+			throw new IOException("Trace " + path + " is truncated");
+		}
+		final ByteBuffer header = ByteBuffer.allocate(TraceFormat.HEADER_SIZE);
+		channel.read(header, 0);
+		TraceFormat.checkHeader(header);
+		this.startMillis = TraceFormat.getStartMillis(header);
+		this.startNanos = TraceFormat.getStartNanos(header);
+
+		final long capacity = (size - TraceFormat.HEADER_SIZE) / TraceFormat.RECORD_SIZE;
+		this.chunks = new MappedByteBuffer[(int) ((capacity + TraceFormat.CHUNK_RECORDS - 1) / TraceFormat.CHUNK_RECORDS)];
+		for (int i = 0; i < this.chunks.length; i++) {
+			final long start = TraceFormat.HEADER_SIZE + (i * TraceFormat.CHUNK_SIZE);
+			final long records = Math.min(TraceFormat.CHUNK_RECORDS, capacity - ((long) i * TraceFormat.CHUNK_RECORDS));
+			this.chunks[i] = channel.map(MapMode.READ_ONLY, start, records * TraceFormat.RECORD_SIZE);
+		}
+		this.recordCount = this.countRecords(capacity);
+		this.index = this.loadIndex(TraceFormat.indexPath(path));
+	}
+
+	/**
+	 * Open a trace file.
+	 * 
+	 * @param path
+	 * @return the reader.
+	 * @throws IOException
+	 *             If the file can not be read or is not a trace.
+	 */
+	public static TraceReader open(final Path path)
+			throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new TraceReader(path, channel);
+		} catch (final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Records are written in sequence: find the first empty record by
+	 * dichotomy.
+	 */
+	private long countRecords(final long capacity) {
+		long low = 0;
+		long high = capacity;
+		while (low < high) {
+			final long middle = (low + high) >>> 1;
+			if (this.chunk(middle).get(this.position(middle) + TraceFormat.DIRECTION_OFFSET) != 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Load the time index, completing or replacing it from the records if
+	 * it is shorter than the trace or unusable.
+	 */
+	private long[] loadIndex(final Path indexPath) {
+		final long[] entries = new long[(int) ((this.recordCount + TraceFormat.INDEX_INTERVAL - 1) / TraceFormat.INDEX_INTERVAL)];
+		int loaded = 0;
+		try {
+			final FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ);
+			try {
+				final ByteBuffer header = ByteBuffer.allocate(TraceFormat.INDEX_HEADER_SIZE);
+				indexChannel.read(header, 0);
+				if (TraceFormat.isIndexHeader(header)) {
+					final long available = (indexChannel.size() - TraceFormat.INDEX_HEADER_SIZE)
+							/ TraceFormat.INDEX_ENTRY_SIZE;
+					final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(entries.length, available)
+							* TraceFormat.INDEX_ENTRY_SIZE);
+					while (buffer.hasRemaining()
+							&& (indexChannel.read(buffer, TraceFormat.INDEX_HEADER_SIZE + buffer.position()) >= 0)) {
+					}
+					buffer.flip();
+					buffer.asLongBuffer().get(entries, 0, buffer.remaining() / TraceFormat.INDEX_ENTRY_SIZE);
+					loaded = buffer.remaining() / TraceFormat.INDEX_ENTRY_SIZE;
+				}
+			} finally {
+				indexChannel.close();
+			}
+		} catch (final IOException e) {
+			// No usable index: built from the records
+		}
+		for (int i = loaded; i < entries.length; i++) {
+			entries[i] = this.readNanos((long) i * TraceFormat.INDEX_INTERVAL);
+		}
+		return entries;
+	}
+
+	private ByteBuffer chunk(final long index) {
+		return this.chunks[(int) (index / TraceFormat.CHUNK_RECORDS)];
+	}
+
+	private int position(final long index) {
+		return (int) (index % TraceFormat.CHUNK_RECORDS) * TraceFormat.RECORD_SIZE;
+	}
+
+	private void checkIndex(final long index) {
+		if ((index < 0) || (index >= this.recordCount)) {
+			throw new IndexOutOfBoundsException("record " + index + " of " + this.recordCount);
+		}
+	}
+
+	public Path getPath() {
+		return this.path;
+	}
+
+	public long getRecordCount() {
+		return this.recordCount;
+	}
+
+	/** @return the wall clock time at which the recording started. */
+	public long getStartMillis() {
+		return this.startMillis;
+	}
+
+	/** @return the {@link System#nanoTime()} at which the recording started. */
+	public long getStartNanos() {
+		return this.startNanos;
+	}
+
+	/** @return the {@link System#nanoTime()} of the record {@code index}. */
+	public long getNanos(final long index) {
+		this.checkIndex(index);
+		return this.readNanos(index);
+	}
+
+	private long readNanos(final long index) {
+		return this.chunk(index).getLong(this.position(index) + TraceFormat.TIME_OFFSET);
+	}
+
+	/**
+	 * Find the first record at or after a time.
+	 * 
+	 * @param nanos
+	 *            {@link System#nanoTime()} to seek, as recorded.
+	 * @return the index of the first record whose time is not before
+	 *         {@code nanos}, or the record count if there is none.
+	 */
+	public long seekTime(final long nanos) {
+		// Last interval starting before nanos: the first record at or after
+		// nanos is in this interval, or is the first of the next one
+		int low = 0;
+		int high = this.index.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if ((this.index[middle] - nanos) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low == 0) {
+			return 0;
+		}
+		long first = (long) (low - 1) * TraceFormat.INDEX_INTERVAL;
+		long last = Math.min(first + TraceFormat.INDEX_INTERVAL, this.recordCount);
+		while (first < last) {
+			final long middle = (first + last) >>> 1;
+			if ((this.readNanos(middle) - nanos) < 0) {
+				first = middle + 1;
+			} else {
+				last = middle;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Find the pose in effect at a time: every frame carries the whole pose,
+	 * so this is the last matching frame recorded at or before {@code nanos}.
+	 * Records are read backward from {@code nanos}, only as far as this frame.
+	 * 
+	 * @param nanos
+	 *            {@link System#nanoTime()} to seek, as recorded.
+	 * @param direction
+	 *            <code>null</code> for frames of any direction.
+	 * @param source
+	 *            -1 for frames of any source.
+	 * @return the index of the frame, or -1 if no frame matches before
+	 *         {@code nanos}.
+	 */
+	public long seekPose(final long nanos, final TraceDirection direction, final int source) {
+		long i = this.seekTime(nanos + 1);
+		while (--i >= 0) {
+			if (this.matches(i, direction, source)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param index
+	 * @param direction
+	 *            <code>null</code> for any direction.
+	 * @param source
+	 *            -1 for any source.
+	 * @return whether the record {@code index} is of {@code direction} and of
+	 *         {@code source}.
+	 */
+	public boolean matches(final long index, final TraceDirection direction, final int source) {
+		return ((direction == null) || (this.getDirection(index) == direction))
+				&& ((source < 0) || (this.getSource(index) == source));
+	}
+
+	public TraceDirection getDirection(final long index) {
+		this.checkIndex(index);
+		return TraceDirection.fromCode(this.chunk(index).get(this.position(index) + TraceFormat.DIRECTION_OFFSET));
+	}
+
+	/** @return the index of the hexapod or of the link of the record. */
+	public int getSource(final long index) {
+		this.checkIndex(index);
+		return this.chunk(index).get(this.position(index) + TraceFormat.SOURCE_OFFSET) & 0xff;
+	}
+
+	/**
+	 * Move {@code view} over the message of the record {@code index}. The
+	 * view is read only.
+	 * 
+	 * @param index
+	 * @param view
+	 * @return {@code view}.
+	 */
+	public LegMessageView getMessage(final long index, final LegMessageView view) {
+		this.checkIndex(index);
+		return view.wrap(this.chunk(index), this.position(index) + TraceFormat.MESSAGE_OFFSET);
+	}
+
+	@Override
+	public void close()
+			throws IOException {
+		this.channel.close();
+	}
+}
@@ -0,0 +1,198 @@
+package net.isammoc.hexapod.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.isammoc.hexapod.communication.IHexapodMessage;
+
+/**
+ * Append frames to a trace file, with their {@link System#nanoTime()}.
+ * <p>
+ * The file is written through memory-mapped chunks of
+ * {@link TraceFormat#CHUNK_RECORDS} records: recording a frame is a few
+ * writes to memory, without any system call or allocation, except when a
+ * new chunk is mapped. The operating system writes the pages back to the
+ * file.
+ * <p>
+ * The time index is built along: an entry is written every
+ * {@link TraceFormat#INDEX_INTERVAL} records.
+ * <p>
+ * A recorder may be shared by several threads.
+ */
+public class TraceRecorder implements Closeable {
+	private final Path path;
+	private final FileChannel channel;
+	private final FileChannel index;
+	private final ByteBuffer indexEntry = ByteBuffer.allocate(TraceFormat.INDEX_ENTRY_SIZE);
+
+	private MappedByteBuffer chunk;
+	private long chunkStart;
+	private long records;
+	private long lastNanos;
+	private boolean closed;
+
+	private TraceRecorder(final Path path, final FileChannel channel, final FileChannel index) {
+		this.path = path;
+		this.channel = channel;
+		this.index = index;
+	}
+
+	/**
+	 * Create a trace file and its index, replacing any existing files.
+	 * <p>
+	 * An existing file is deleted rather than truncated: a file that is still
+	 * mapped must never shrink under its mappings.
+	 * 
+	 * @param path
+	 * @return the recorder.
+	 * @throws IOException
+	 */
+	public static TraceRecorder create(final Path path)
+			throws IOException {
+		final Path indexPath = TraceFormat.indexPath(path);
+		Files.deleteIfExists(path);
+		Files.deleteIfExists(indexPath);
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			channel.write(TraceFormat.header(System.currentTimeMillis(), System.nanoTime()), 0);
+			final FileChannel index = FileChannel.open(indexPath, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE);
+			try {
+				index.write(TraceFormat.indexHeader(), 0);
+				return new TraceRecorder(path, channel, index);
+			} catch (final IOException e) {
+				index.close();
+				throw e;
+			}
+		} catch (final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public Path getPath() {
+		return this.path;
+	}
+
+	/**
+	 * Record a frame, timestamped now.
+	 * 
+	 * @param direction
+	 * @param source
+	 *            Index of the hexapod or of the link of the frame.
+	 * @param msg
+	 * @throws IOException
+	 *             If a new chunk can not be mapped, or if the recorder is
+	 *             closed.
+	 */
+	public synchronized void record(final TraceDirection direction, final int source, final IHexapodMessage msg)
+			throws IOException {
+		// Timestamp under the lock, so that the times never go backward
+		this.record(System.nanoTime(), direction, source, msg);
+	}
+
+	/**
+	 * Record a frame.
+	 * 
+	 * @param nanos
+	 *            {@link System#nanoTime()} of the frame, not before the
+	 *            previous frame.
+	 * @param direction
+	 * @param source
+	 *            Index of the hexapod or of the link of the frame.
+	 * @param msg
+	 * @throws IllegalArgumentException
+	 *             If {@code nanos} is before the previous frame.
+	 * @throws IOException
+	 *             If a new chunk can not be mapped, if the index can not be
+	 *             written, or if the recorder is closed.
+	 */
+	public synchronized void record(final long nanos, final TraceDirection direction, final int source,
+			final IHexapodMessage msg)
+			throws IllegalArgumentException, IOException {
+		if (this.closed) {
+			throw new IOException("Trace " + this.path + " is closed");
+		}
+		if ((this.records > 0) && ((nanos - this.lastNanos) < 0)) {
+			throw new IllegalArgumentException("frame recorded before the previous one");
+		}
+		if ((this.chunk == null) || !this.chunk.hasRemaining()) {
+			this.mapNextChunk();
+		}
+		if ((this.records % TraceFormat.INDEX_INTERVAL) == 0) {
+			this.indexEntry.clear();
+			this.indexEntry.putLong(0, nanos);
+			this.index.write(this.indexEntry,
+					TraceFormat.indexEntryPosition(this.records / TraceFormat.INDEX_INTERVAL));
+		}
+		final int start = this.chunk.position();
+		this.chunk.putLong(nanos);
+		this.chunk.put(direction.getCode());
+		msg.writeTo(this.chunk);
+		this.chunk.put((byte) source);
+		this.chunk.position(start + TraceFormat.RECORD_SIZE);
+		this.lastNanos = nanos;
+		this.records++;
+	}
+
+	private void mapNextChunk()
+			throws IOException {
+		if (this.chunk != null) {
+			this.chunkStart += TraceFormat.CHUNK_SIZE;
+		} else {
+			this.chunkStart = TraceFormat.HEADER_SIZE;
+		}
+		this.chunk = this.channel.map(MapMode.READ_WRITE, this.chunkStart, TraceFormat.CHUNK_SIZE);
+	}
+
+	/** @return the number of frames recorded. */
+	public synchronized long getRecordCount() {
+		return this.records;
+	}
+
+	/**
+	 * Write the recorded frames to the storage device.
+	 */
+	public synchronized void force() {
+		if (this.chunk != null) {
+			this.chunk.force();
+		}
+	}
+
+	/**
+	 * Write the recorded frames back and cut the empty records at the end of
+	 * the last chunk.
+	 */
+	@Override
+	public synchronized void close()
+			throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			this.force();
+			this.chunk = null;
+			try {
+				this.channel.truncate(TraceFormat.recordPosition(this.records));
+			} catch (final IOException e) {
+				// Some systems refuse to truncate a mapped file: readers stop
+				// at the first empty record anyway.
+			}
+		} finally {
+			try {
+				this.channel.close();
+			} finally {
+				this.index.close();
+			}
+		}
+	}
+}
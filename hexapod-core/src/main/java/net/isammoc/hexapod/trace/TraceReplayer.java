@@ -0,0 +1,196 @@
+package net.isammoc.hexapod.trace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.isammoc.hexapod.communication.FrameEncoder;
+import net.isammoc.hexapod.communication.LegMessageView;
+import net.isammoc.hexapod.transport.HexapodTransport;
+import net.isammoc.hexapod.transport.HexapodTransports;
+
+/**
+ * Write the frames of a trace to a stream, as a controller would, so that a
+ * simulator decodes them through its usual path.
+ * <p>
+ * Frames are written at the pace they were recorded, scaled by a speed
+ * factor, or as fast as possible in batches of frames.
+ */
+public class TraceReplayer {
+	/** Speed to replay as fast as possible. */
+	public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+	private static final int BATCH_FRAMES = 256;
+
+	private final TraceReader reader;
+	private TraceDirection direction;
+	private int source = -1;
+
+	public TraceReplayer(final TraceReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Only replay the frames of {@code direction}.
+	 * 
+	 * @param direction
+	 *            <code>null</code> for all the frames.
+	 */
+	public void setDirection(final TraceDirection direction) {
+		this.direction = direction;
+	}
+
+	/**
+	 * Only replay the frames of {@code source}.
+	 * 
+	 * @param source
+	 *            -1 for all the frames.
+	 */
+	public void setSource(final int source) {
+		this.source = source;
+	}
+
+	/**
+	 * Replay the whole trace.
+	 * 
+	 * @see #replay(long, long, OutputStream, double)
+	 */
+	public long replay(final OutputStream out, final double speed)
+			throws IOException {
+		return this.replay(0, this.reader.getRecordCount(), out, speed);
+	}
+
+	/**
+	 * Replay the records from {@code first} inclusive to {@code last}
+	 * exclusive.
+	 * 
+	 * @param first
+	 * @param last
+	 * @param out
+	 * @param speed
+	 *            1 for real time, N for N times faster, {@link #MAX_SPEED} for
+	 *            as fast as possible.
+	 * @return the number of frames written.
+	 * @throws InterruptedIOException
+	 *             If the current thread is interrupted.
+	 * @throws IOException
+	 */
+	public long replay(final long first, final long last, final OutputStream out, final double speed)
+			throws IOException {
+		if (!(speed > 0)) {
+			throw new IllegalArgumentException("speed must be positive");
+		}
+		final boolean timed = speed != MAX_SPEED;
+		final ByteBuffer batch = ByteBuffer.allocate(BATCH_FRAMES * FrameEncoder.FRAME_LENGTH);
+		final LegMessageView view = new LegMessageView();
+		final long start = System.nanoTime();
+		long firstNanos = 0;
+		long frames = 0;
+		for (long i = first; i < last; i++) {
+			if (!this.matches(i)) {
+				continue;
+			}
+			if (timed) {
+				if (frames == 0) {
+					firstNanos = this.reader.getNanos(i);
+				}
+				waitUntil(start + (long) ((this.reader.getNanos(i) - firstNanos) / speed));
+			}
+			FrameEncoder.encode(this.reader.getMessage(i, view), batch);
+			frames++;
+			if (timed || !batch.hasRemaining()) {
+				flush(batch, out);
+				if (Thread.interrupted()) {
+					throw new InterruptedIOException();
+				}
+			}
+		}
+		flush(batch, out);
+		out.flush();
+		return frames;
+	}
+
+	private boolean matches(final long index) {
+		return this.reader.matches(index, this.direction, this.source);
+	}
+
+	private static void waitUntil(final long due)
+			throws InterruptedIOException {
+		long delay;
+		while ((delay = due - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(delay);
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	private static void flush(final ByteBuffer batch, final OutputStream out)
+			throws IOException {
+		if (batch.position() > 0) {
+			out.write(batch.array(), 0, batch.position());
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Replay a trace to a simulator.
+	 * 
+	 * @param args
+	 *            trace file, address of the simulator, and optionally the
+	 *            speed factor or <code>max</code>, then the section to
+	 *            replay, in milliseconds from the start of the recording.
+	 */
+	public static void main(final String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: TraceReplayer <trace> <address> [speed|max [from-ms [to-ms]]]");
+			return;
+		}
+		final double speed = (args.length > 2) ? ("max".equals(args[2]) ? MAX_SPEED : Double.parseDouble(args[2]))
+				: 1;
+		try {
+			final TraceReader reader = TraceReader.open(Paths.get(args[0]));
+			try {
+				final long first = (args.length > 3) ? reader.seekTime(reader.getStartNanos()
+						+ TimeUnit.MILLISECONDS.toNanos(Long.parseLong(args[3]))) : 0;
+				final long last = (args.length > 4) ? reader.seekTime(reader.getStartNanos()
+						+ TimeUnit.MILLISECONDS.toNanos(Long.parseLong(args[4]))) : reader.getRecordCount();
+				final HexapodTransport transport = HexapodTransports.connect(args[1], TraceReplayer.class.getName());
+				try {
+					// Acknowledgements are not checked, only drained
+					final InputStream in = transport.getInputStream();
+					final Thread drain = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								while (in.read() >= 0) {
+								}
+							} catch (final IOException e) {
+								// Closed
+							}
+						}
+					}, "hexapod-trace-drain");
+					drain.setDaemon(true);
+					drain.start();
+
+					final long start = System.nanoTime();
+					final long frames = new TraceReplayer(reader).replay(first, last, transport.getOutputStream(),
+							speed);
+					System.out.println(frames + " frames replayed in " + ((System.nanoTime() - start) / 1000000)
+							+ " ms");
+				} finally {
+					transport.close();
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
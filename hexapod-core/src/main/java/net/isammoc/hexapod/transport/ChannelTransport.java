@@ -0,0 +1,154 @@
+package net.isammoc.hexapod.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Transport over a pair of blocking NIO channels.
+ * <p>
+ * The streams call the channels directly. Unlike
+ * {@link java.nio.channels.Channels#newInputStream(ReadableByteChannel)}, they
+ * do not hold the blocking lock of the channel, so a thread blocked in a read
+ * never prevents another thread from writing on the same socket.
+ */
+public class ChannelTransport implements HexapodTransport {
+	private final String name;
+	private final ReadableByteChannel source;
+	private final WritableByteChannel sink;
+	private final InputStream in;
+	private final OutputStream out;
+
+	public ChannelTransport(final String name, final ReadableByteChannel source, final WritableByteChannel sink) {
+		this.name = name;
+		this.source = source;
+		this.sink = sink;
+		this.in = new ChannelInputStream(source);
+		this.out = new ChannelOutputStream(sink);
+	}
+
+	public ReadableByteChannel getSourceChannel() {
+		return this.source;
+	}
+
+	public WritableByteChannel getSinkChannel() {
+		return this.sink;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return this.in;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return this.out;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void close()
+			throws IOException {
+		try {
+			this.source.close();
+		} finally {
+			this.sink.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+	private static class ChannelInputStream extends InputStream {
+		private final ReadableByteChannel channel;
+		private final ByteBuffer single = ByteBuffer.allocate(1);
+		/** Last array read into, wrapped once. */
+		private byte[] array;
+		private ByteBuffer wrapped;
+
+		ChannelInputStream(final ReadableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public int read()
+				throws IOException {
+			this.single.clear();
+			final int len = this.channel.read(this.single);
+			return len < 0 ? -1 : this.single.get(0) & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len)
+				throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (b != this.array) {
+				this.array = b;
+				this.wrapped = ByteBuffer.wrap(b);
+			}
+			this.wrapped.limit(off + len).position(off);
+			return this.channel.read(this.wrapped);
+		}
+
+		@Override
+		public void close()
+				throws IOException {
+			this.channel.close();
+		}
+	}
+
+	private static class ChannelOutputStream extends OutputStream {
+		private final WritableByteChannel channel;
+		private final ByteBuffer single = ByteBuffer.allocate(1);
+		/** Last array written from, wrapped once. */
+		private byte[] array;
+		private ByteBuffer wrapped;
+
+		ChannelOutputStream(final WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public synchronized void write(final int b)
+				throws IOException {
+			this.single.clear();
+			this.single.put(0, (byte) b);
+			this.writeFully(this.single);
+		}
+
+		@Override
+		public synchronized void write(final byte[] b, final int off, final int len)
+				throws IOException {
+			if (b != this.array) {
+				this.array = b;
+				this.wrapped = ByteBuffer.wrap(b);
+			}
+			this.wrapped.limit(off + len).position(off);
+			this.writeFully(this.wrapped);
+		}
+
+		private void writeFully(final ByteBuffer buffer)
+				throws IOException {
+			while (buffer.hasRemaining()) {
+				this.channel.write(buffer);
+			}
+		}
+
+		@Override
+		public void close()
+				throws IOException {
+			this.channel.close();
+		}
+	}
+}
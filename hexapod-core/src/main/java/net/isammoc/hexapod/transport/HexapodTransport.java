@@ -0,0 +1,31 @@
+package net.isammoc.hexapod.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Bidirectional byte link to an hexapod, or to a simulator.
+ * <p>
+ * The input and the output can be used concurrently from two threads.
+ */
+public interface HexapodTransport extends Closeable {
+
+	/**
+	 * @return the stream of bytes received. Always the same instance.
+	 * @throws IOException
+	 */
+	InputStream getInputStream() throws IOException;
+
+	/**
+	 * @return the stream of bytes to send. Always the same instance.
+	 * @throws IOException
+	 */
+	OutputStream getOutputStream() throws IOException;
+
+	/**
+	 * @return a human readable description of the link.
+	 */
+	String getName();
+}
@@ -0,0 +1,154 @@
+package net.isammoc.hexapod.transport;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Paths;
+
+import net.isammoc.hexapod.HexapodException;
+
+/**
+ * Open transports from a textual address:
+ * <ul>
+ * <li><code>tcp://host:port</code>, or <code>tcp://:port</code> to listen on
+ * any address,</li>
+ * <li><code>unix:/path/to/socket</code>,</li>
+ * <li>anything else is the name of a serial port.</li>
+ * </ul>
+ */
+public class HexapodTransports {
+	private static final String TCP = "tcp://";
+	private static final String UNIX = "unix:";
+
+	/**
+	 * Open a transport as a client: connect to a socket, or open the serial
+	 * port.
+	 * 
+	 * @param address
+	 * @param owner
+	 *            Name of the application owning the serial port.
+	 * @return the opened transport.
+	 * @throws HexapodException
+	 *             If the transport can not be opened.
+	 */
+	public static HexapodTransport connect(final String address, final String owner)
+			throws HexapodException {
+		try {
+			if (address.startsWith(TCP)) {
+				final String hostPort = address.substring(TCP.length());
+				final String host = host(hostPort);
+				return SocketTransport.connectTcp(host == null ? "localhost" : host, port(hostPort));
+			}
+			if (address.startsWith(UNIX)) {
+				return SocketTransport.connectUnix(Paths.get(address.substring(UNIX.length())));
+			}
+		} catch (final IOException e) {
+			throw new HexapodException("Can not connect to '" + address + "'", e);
+		}
+		return SerialTransport.open(address, SerialTransport.DEFAULT_BAUD_RATE, owner);
+	}
+
+	/**
+	 * Open a transport as a server: wait for a single connection on a socket,
+	 * or open the serial port.
+	 * 
+	 * @param address
+	 * @param owner
+	 *            Name of the application owning the serial port.
+	 * @return the opened transport.
+	 * @throws HexapodException
+	 *             If the transport can not be opened.
+	 */
+	public static HexapodTransport accept(final String address, final String owner)
+			throws HexapodException {
+		try {
+			if (address.startsWith(TCP)) {
+				final String hostPort = address.substring(TCP.length());
+				return SocketTransport.acceptTcp(host(hostPort), port(hostPort));
+			}
+			if (address.startsWith(UNIX)) {
+				return SocketTransport.acceptUnix(Paths.get(address.substring(UNIX.length())));
+			}
+		} catch (final IOException e) {
+			throw new HexapodException("Can not listen on '" + address + "'", e);
+		}
+		return SerialTransport.open(address, SerialTransport.DEFAULT_BAUD_RATE, owner);
+	}
+
+	/**
+	 * Open a server socket on a socket address, to accept connections
+	 * without blocking.
+	 * 
+	 * @param address
+	 *            <code>tcp://[host]:port</code> or <code>unix:path</code>.
+	 * @return the bound server channel, in blocking mode.
+	 * @throws HexapodException
+	 *             If {@code address} is not a socket address or can not be
+	 *             bound.
+	 */
+	public static ServerSocketChannel openServer(final String address)
+			throws HexapodException {
+		try {
+			if (address.startsWith(TCP)) {
+				final String hostPort = address.substring(TCP.length());
+				return SocketTransport.openTcpServer(host(hostPort), port(hostPort));
+			}
+			if (address.startsWith(UNIX)) {
+				return SocketTransport.openUnixServer(Paths.get(address.substring(UNIX.length())));
+			}
+		} catch (final IOException e) {
+			throw new HexapodException("Can not listen on '" + address + "'", e);
+		}
+		throw new HexapodException("Not a socket address: '" + address + "'");
+	}
+
+	/**
+	 * Derive the address of the n-th of several endpoints from a base socket
+	 * address: the port is incremented by {@code index} for TCP, and
+	 * <code>-index</code> is appended to the path for Unix-domain sockets.
+	 * Index 0 is the base address itself.
+	 * 
+	 * @param address
+	 *            A socket address.
+	 * @param index
+	 * @return the address of the endpoint.
+	 */
+	public static String indexedAddress(final String address, final int index) {
+		if (index == 0) {
+			return address;
+		}
+		if (address.startsWith(TCP)) {
+			final String hostPort = address.substring(TCP.length());
+			final String host = host(hostPort);
+			return TCP + (host == null ? "" : host) + ":" + (port(hostPort) + index);
+		}
+		if (address.startsWith(UNIX)) {
+			return address + "-" + index;
+		}
+		throw new IllegalArgumentException("Not a socket address: '" + address + "'");
+	}
+
+	/**
+	 * @return <code>true</code> if {@code address} is a socket address, not a
+	 *         serial port name.
+	 */
+	public static boolean isSocketAddress(final String address) {
+		return address.startsWith(TCP) || address.startsWith(UNIX);
+	}
+
+	static String host(final String hostPort) {
+		final int colon = hostPort.lastIndexOf(':');
+		if (colon <= 0) {
+			return null;
+		}
+		return hostPort.substring(0, colon);
+	}
+
+	static int port(final String hostPort) {
+		final int colon = hostPort.lastIndexOf(':');
+		try {
+			return Integer.parseInt(hostPort.substring(colon + 1));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid port in '" + hostPort + "'", e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package net.isammoc.hexapod.transport;
+
+import java.io.IOException;
+import java.nio.channels.Pipe;
+
+/**
+ * In-process transport: two {@link Pipe}s cross-connecting two ends.
+ * <p>
+ * Lets a controller and the simulator run in the same JVM without any port,
+ * for tests and replays. The channels are selectable.
+ */
+public class PipeTransport extends ChannelTransport {
+	private final Pipe.SourceChannel source;
+	private final Pipe.SinkChannel sink;
+	private PipeTransport peer;
+
+	private PipeTransport(final String name, final Pipe.SourceChannel source, final Pipe.SinkChannel sink) {
+		super(name, source, sink);
+		this.source = source;
+		this.sink = sink;
+	}
+
+	/**
+	 * Create a connected pair of ends. The other end is available with
+	 * {@link #getPeer()}.
+	 * 
+	 * @return one end of the pair.
+	 * @throws IOException
+	 */
+	public static PipeTransport open()
+			throws IOException {
+		final Pipe forward = Pipe.open();
+		final Pipe backward;
+		try {
+			backward = Pipe.open();
+		} catch (final IOException e) {
+			forward.source().close();
+			forward.sink().close();
+			throw e;
+		}
+		final PipeTransport end = new PipeTransport("pipe:a", backward.source(), forward.sink());
+		end.peer = new PipeTransport("pipe:b", forward.source(), backward.sink());
+		end.peer.peer = end;
+		return end;
+	}
+
+	/**
+	 * @return the other end: what is written here is read there and
+	 *         conversely.
+	 */
+	public PipeTransport getPeer() {
+		return this.peer;
+	}
+
+	@Override
+	public Pipe.SourceChannel getSourceChannel() {
+		return this.source;
+	}
+
+	@Override
+	public Pipe.SinkChannel getSinkChannel() {
+		return this.sink;
+	}
+}
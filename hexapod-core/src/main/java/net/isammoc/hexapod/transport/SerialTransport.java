@@ -0,0 +1,106 @@
+package net.isammoc.hexapod.transport;
+
+import gnu.io.CommPort;
+import gnu.io.CommPortIdentifier;
+import gnu.io.NoSuchPortException;
+import gnu.io.PortInUseException;
+import gnu.io.SerialPort;
+import gnu.io.UnsupportedCommOperationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.isammoc.hexapod.HexapodException;
+
+/**
+ * Transport over a RXTX serial port, 8 data bits, 1 stop bit, no parity.
+ */
+public class SerialTransport implements HexapodTransport {
+	/** Baud rate of the hexapod board. */
+	public static final int DEFAULT_BAUD_RATE = 9600;
+
+	private final String portName;
+	private final SerialPort serial;
+	private final InputStream in;
+	private final OutputStream out;
+
+	private SerialTransport(final String portName, final SerialPort serial)
+			throws IOException {
+		this.portName = portName;
+		this.serial = serial;
+		this.in = serial.getInputStream();
+		this.out = serial.getOutputStream();
+	}
+
+	/**
+	 * Open and configure a serial port.
+	 * 
+	 * @param portName
+	 *            Name of the port, like <code>COM1</code> or
+	 *            <code>/dev/ttyUSB0</code>.
+	 * @param baudRate
+	 * @param owner
+	 *            Name of the application owning the port.
+	 * @return the opened transport.
+	 * @throws HexapodException
+	 *             If the port does not exist, is already owned, is not a
+	 *             serial port or can not be configured.
+	 */
+	public static SerialTransport open(final String portName, final int baudRate, final String owner)
+			throws HexapodException {
+		final CommPortIdentifier portIdentifier;
+		try {
+			portIdentifier = CommPortIdentifier.getPortIdentifier(portName);
+		} catch (final NoSuchPortException e) {
+			throw new HexapodException("port '" + portName + "' not found", e);
+		}
+		final CommPort commPort;
+		try {
+			commPort = portIdentifier.open(owner, 2000);
+		} catch (final PortInUseException e) {
+			throw new HexapodException("Port '" + portName + "' is already owned by : "
+					+ portIdentifier.getCurrentOwner(), e);
+		}
+		if (!(commPort instanceof SerialPort)) {
+			commPort.close();
+			throw new HexapodException("portName '" + portName + "' does not refer to a serial port");
+		}
+		final SerialPort serial = (SerialPort) commPort;
+		try {
+			serial.setSerialPortParams(baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1,
+					SerialPort.PARITY_NONE);
+			return new SerialTransport(portName, serial);
+		} catch (final UnsupportedCommOperationException e) {
+			serial.close();
+			throw new HexapodException("Can not configure port", e);
+		} catch (final IOException e) {
+			serial.close();
+			throw new HexapodException("Can not open port streams", e);
+		}
+	}
+
+	public SerialPort getSerialPort() {
+		return this.serial;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return this.in;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return this.out;
+	}
+
+	@Override
+	public String getName() {
+		return this.portName;
+	}
+
+	@Override
+	public void close() {
+		this.serial.close();
+	}
+}
@@ -0,0 +1,149 @@
+package net.isammoc.hexapod.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Transport over a connected TCP or Unix-domain {@link SocketChannel}.
+ * <p>
+ * Neither has the bandwidth limit of the serial line: they let a controller
+ * drive the simulator at thousands of frames per second on the same machine.
+ */
+public class SocketTransport extends ChannelTransport {
+	private final SocketChannel channel;
+
+	public SocketTransport(final String name, final SocketChannel channel) {
+		super(name, channel, channel);
+		this.channel = channel;
+	}
+
+	public SocketChannel getChannel() {
+		return this.channel;
+	}
+
+	/**
+	 * Connect to a TCP server. Nagle's algorithm is disabled: frames are
+	 * small and latency matters more than packet count.
+	 * 
+	 * @param host
+	 * @param port
+	 * @return the connected transport.
+	 * @throws IOException
+	 */
+	public static SocketTransport connectTcp(final String host, final int port)
+			throws IOException {
+		final SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		return new SocketTransport("tcp://" + host + ":" + port, channel);
+	}
+
+	/**
+	 * Listen on a TCP port and wait for a single connection.
+	 * 
+	 * @param host
+	 *            Address to bind, <code>null</code> for any.
+	 * @param port
+	 * @return the accepted transport.
+	 * @throws IOException
+	 */
+	public static SocketTransport acceptTcp(final String host, final int port)
+			throws IOException {
+		final ServerSocketChannel server = openTcpServer(host, port);
+		try {
+			final SocketChannel channel = server.accept();
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			return new SocketTransport("tcp://" + channel.getRemoteAddress(), channel);
+		} finally {
+			server.close();
+		}
+	}
+
+	/**
+	 * Open a blocking TCP server socket.
+	 * 
+	 * @param host
+	 *            Address to bind, <code>null</code> for any.
+	 * @param port
+	 * @return the bound server channel.
+	 * @throws IOException
+	 */
+	public static ServerSocketChannel openTcpServer(final String host, final int port)
+			throws IOException {
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		final InetSocketAddress address = host == null ? new InetSocketAddress(port)
+				: new InetSocketAddress(host, port);
+		return bind(server, address);
+	}
+
+	/**
+	 * Connect to a Unix-domain socket.
+	 * 
+	 * @param path
+	 * @return the connected transport.
+	 * @throws IOException
+	 */
+	public static SocketTransport connectUnix(final Path path)
+			throws IOException {
+		final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			channel.connect(UnixDomainSocketAddress.of(path));
+		} catch (final IOException e) {
+			channel.close();
+			throw e;
+		}
+		return new SocketTransport("unix:" + path, channel);
+	}
+
+	/**
+	 * Listen on a Unix-domain socket and wait for a single connection. The
+	 * socket file is removed once the connection is accepted.
+	 * 
+	 * @param path
+	 * @return the accepted transport.
+	 * @throws IOException
+	 */
+	public static SocketTransport acceptUnix(final Path path)
+			throws IOException {
+		final ServerSocketChannel server = openUnixServer(path);
+		try {
+			return new SocketTransport("unix:" + path, server.accept());
+		} finally {
+			server.close();
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/**
+	 * Open a blocking Unix-domain server socket. A stale socket file left at
+	 * {@code path} is replaced.
+	 * 
+	 * @param path
+	 * @return the bound server channel.
+	 * @throws IOException
+	 */
+	public static ServerSocketChannel openUnixServer(final Path path)
+			throws IOException {
+		Files.deleteIfExists(path);
+		return bind(ServerSocketChannel.open(StandardProtocolFamily.UNIX), UnixDomainSocketAddress.of(path));
+	}
+
+	private static ServerSocketChannel bind(final ServerSocketChannel server, final SocketAddress address)
+			throws IOException {
+		try {
+			server.bind(address);
+			return server;
+		} catch (final IOException e) {
+			server.close();
+			throw e;
+		}
+	}
+}
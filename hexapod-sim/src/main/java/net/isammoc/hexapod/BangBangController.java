@@ -0,0 +1,29 @@
+package net.isammoc.hexapod;
+
+import com.jme3.math.FastMath;
+
+/**
+ * Full motor velocity toward the wanted angle, then a fifth of it within
+ * PI / 80 and a tenth within PI / 100. Stateless.
+ */
+public class BangBangController implements JointController {
+
+	@Override
+	public float control(final int joint, final float error, final float tpf) {
+		final float distance = Math.abs(error);
+		final float velocity;
+		if (distance < (FastMath.PI / 100)) {
+			velocity = HexapodNode.MOTOR_VELOCITY / 10;
+		} else if (distance < (FastMath.PI / 80)) {
+			velocity = HexapodNode.MOTOR_VELOCITY / 5;
+		} else {
+			velocity = HexapodNode.MOTOR_VELOCITY;
+		}
+		return error > 0 ? velocity : -velocity;
+	}
+
+	@Override
+	public void reset(final int joint) {
+		// Nothing to forget
+	}
+}
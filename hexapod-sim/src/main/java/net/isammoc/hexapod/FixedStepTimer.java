@@ -0,0 +1,70 @@
+package net.isammoc.hexapod;
+
+import com.jme3.system.Timer;
+
+/**
+ * A {@link Timer} which advances by a fixed step on each frame, whatever the
+ * wall clock time the frame took.
+ * <p>
+ * Without a frame rate limit, the simulation then runs as fast as the CPU
+ * allows, and the physics always integrates the same steps.
+ */
+public class FixedStepTimer extends Timer {
+	private static final long RESOLUTION = 1000000000L;
+
+	private final float step;
+	private final long stepNanos;
+	private volatile long frames;
+
+	/**
+	 * @param step
+	 *            simulated seconds per frame.
+	 */
+	public FixedStepTimer(final float step) {
+		if (!(step > 0)) {
+			throw new IllegalArgumentException("step must be positive");
+		}
+		this.step = step;
+		this.stepNanos = (long) (step * RESOLUTION);
+	}
+
+	public float getStep() {
+		return this.step;
+	}
+
+	/** @return the number of frames since the last reset. */
+	public long getFrames() {
+		return this.frames;
+	}
+
+	/** @return the simulated time, in nanoseconds. */
+	@Override
+	public long getTime() {
+		return this.frames * this.stepNanos;
+	}
+
+	@Override
+	public long getResolution() {
+		return RESOLUTION;
+	}
+
+	@Override
+	public float getFrameRate() {
+		return 1 / this.step;
+	}
+
+	@Override
+	public float getTimePerFrame() {
+		return this.step;
+	}
+
+	@Override
+	public void update() {
+		this.frames++;
+	}
+
+	@Override
+	public void reset() {
+		this.frames = 0;
+	}
+}
@@ -0,0 +1,264 @@
+package net.isammoc.hexapod;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import net.isammoc.hexapod.communication.HexapodProtocol;
+import net.isammoc.hexapod.management.HexapodMBeans;
+import net.isammoc.hexapod.management.RobotLinkMonitor;
+import net.isammoc.hexapod.transport.HexapodTransports;
+
+/**
+ * Command server of several simulated hexapods, on a single thread.
+ * <p>
+ * Each hexapod listens on its own socket address and accepts one controller
+ * at a time. A single selector demultiplexes the connections of all the
+ * hexapods to their {@link RobotSession}, so the number of threads does not
+ * grow with the number of hexapods. The settle timeouts of all sessions are
+ * handled by the selector timeout, and a hexapod that stops wakes the
+ * selector up.
+ * <p>
+ * The link of each hexapod is registered as a {@link RobotLinkMonitor} MBean
+ * until the server is closed.
+ */
+public class HexapodCommandServer implements Runnable, Closeable {
+	private static final int READ_SIZE = 4096;
+
+	private final Selector selector;
+	private final List<Endpoint> endpoints = new CopyOnWriteArrayList<Endpoint>();
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_SIZE);
+
+	public HexapodCommandServer()
+			throws IOException {
+		this.selector = Selector.open();
+	}
+
+	/**
+	 * Listen for the controller of a hexapod. May be called while the server
+	 * runs.
+	 * 
+	 * @param id
+	 *            Index of the hexapod.
+	 * @param target
+	 *            Receives the poses of the hexapod.
+	 * @param protocol
+	 *            Acknowledgement protocol of the controller.
+	 * @param address
+	 *            <code>tcp://[host]:port</code> or <code>unix:path</code>.
+	 * @return the session of the hexapod.
+	 * @throws HexapodException
+	 *             If the address can not be bound.
+	 */
+	public RobotSession addRobot(final int id, final LegMessageAware target, final HexapodProtocol protocol,
+			final String address)
+			throws HexapodException {
+		final ServerSocketChannel server = HexapodTransports.openServer(address);
+		final Endpoint endpoint = new Endpoint(new RobotSession(id, target, protocol, READ_SIZE));
+		try {
+			server.configureBlocking(false);
+			server.register(this.selector, SelectionKey.OP_ACCEPT, endpoint);
+		} catch (final IOException e) {
+			closeQuietly(server);
+			throw new HexapodException("Can not listen on '" + address + "'", e);
+		}
+		endpoint.mbeanName = HexapodMBeans.register(new RobotLinkMonitor(endpoint.session), "RobotLink", address);
+		this.endpoints.add(endpoint);
+		this.selector.wakeup();
+		return endpoint.session;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				final long now = System.nanoTime();
+				long next = Long.MAX_VALUE;
+				for (final Endpoint endpoint : this.endpoints) {
+					next = Math.min(next, endpoint.session.poll(now));
+					this.flush(endpoint);
+				}
+				if (next == Long.MAX_VALUE) {
+					this.selector.select();
+				} else {
+					this.selector.select(TimeUnit.NANOSECONDS.toMillis(next - now) + 1);
+				}
+
+				final Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					final SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						this.accept(key);
+					} else {
+						final Endpoint endpoint = (Endpoint) key.attachment();
+						if (key.isReadable()) {
+							this.read(endpoint);
+						}
+						if ((endpoint.key != null) && key.isWritable()) {
+							this.flush(endpoint);
+						}
+					}
+				}
+			}
+		} catch (final ClosedSelectorException e) {
+			// Closed: only finish thread.
+		} catch (final IOException e) {
+			e.printStackTrace();
+		} finally {
+			this.close();
+		}
+	}
+
+	private void accept(final SelectionKey key)
+			throws IOException {
+		final Endpoint endpoint = (Endpoint) key.attachment();
+		final SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+		if (channel == null) {
+			return;
+		}
+		if (endpoint.key != null) {
+			System.out.println("Hexapod " + endpoint.session.getId() + " already has a controller");
+			channel.close();
+			return;
+		}
+		try {
+			channel.configureBlocking(false);
+			if (channel.getLocalAddress() instanceof InetSocketAddress) {
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			endpoint.key = channel.register(this.selector, SelectionKey.OP_READ, endpoint);
+			endpoint.session.open(endpoint);
+		} catch (final IOException e) {
+			e.printStackTrace();
+			channel.close();
+		}
+	}
+
+	private void read(final Endpoint endpoint) {
+		try {
+			this.readBuffer.clear();
+			if (endpoint.getChannel().read(this.readBuffer) < 0) {
+				this.disconnect(endpoint);
+				return;
+			}
+			final long received = System.nanoTime();
+			this.readBuffer.flip();
+			endpoint.session.decode(this.readBuffer, received);
+			this.flush(endpoint);
+		} catch (final IOException e) {
+			e.printStackTrace();
+			this.disconnect(endpoint);
+		}
+	}
+
+	/**
+	 * Write the acknowledgements of {@code endpoint}, then only wait for
+	 * reading if they are all written: a read never overflows the
+	 * acknowledgements of a session.
+	 */
+	private void flush(final Endpoint endpoint) {
+		if (endpoint.key == null) {
+			return;
+		}
+		try {
+			final int ops = endpoint.session.flush(endpoint.getChannel()) ? SelectionKey.OP_READ
+					: SelectionKey.OP_WRITE;
+			if (endpoint.key.interestOps() != ops) {
+				endpoint.key.interestOps(ops);
+			}
+		} catch (final IOException e) {
+			e.printStackTrace();
+			this.disconnect(endpoint);
+		}
+	}
+
+	private void disconnect(final Endpoint endpoint) {
+		final SocketChannel channel = endpoint.getChannel();
+		endpoint.key = null;
+		endpoint.session.close();
+		closeQuietly(channel);
+	}
+
+	/**
+	 * Close the connections and the listening sockets. Called by the server
+	 * thread when it ends: interrupt it to stop the server.
+	 */
+	@Override
+	public void close() {
+		try {
+			for (final SelectionKey key : this.selector.keys()) {
+				if (key.channel() instanceof ServerSocketChannel) {
+					final ServerSocketChannel server = (ServerSocketChannel) key.channel();
+					try {
+						if (server.getLocalAddress() instanceof UnixDomainSocketAddress) {
+							Files.deleteIfExists(((UnixDomainSocketAddress) server.getLocalAddress()).getPath());
+						}
+					} catch (final IOException e) {
+						e.printStackTrace();
+					}
+				}
+				closeQuietly(key.channel());
+			}
+		} catch (final ClosedSelectorException e) {
+			// Already closed
+			return;
+		}
+		for (final Endpoint endpoint : this.endpoints) {
+			endpoint.key = null;
+			endpoint.session.close();
+			HexapodMBeans.unregister(endpoint.mbeanName);
+			endpoint.mbeanName = null;
+		}
+		closeQuietly(this.selector);
+	}
+
+	/**
+	 * A hexapod and the key of its connection. Wakes the selector up when the
+	 * hexapod stops.
+	 */
+	private class Endpoint implements Runnable {
+		private final RobotSession session;
+		private SelectionKey key;
+		private ObjectName mbeanName;
+
+		private Endpoint(final RobotSession session) {
+			this.session = session;
+		}
+
+		private SocketChannel getChannel() {
+			return (SocketChannel) this.key.channel();
+		}
+
+		@Override
+		public void run() {
+			HexapodCommandServer.this.selector.wakeup();
+		}
+	}
+
+	private static void closeQuietly(final Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -1,73 +1,62 @@
-package net.isammoc.hexapod;
-
-import net.isammoc.hexapod.communication.LegMessage;
-
-import com.jme3.math.FastMath;
-
-public class HexapodConverter {
-	private static final float STEP = FastMath.PI / 256;
-	private final WantedAnglesAware hexapod;
-
-	public HexapodConverter(final WantedAnglesAware hexapod) {
-		this.hexapod = hexapod;
-	}
-
-	public void setMessage(final LegMessage msg) {
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-				this.setValue(leg, articulation, msg.getUnsignedByte(leg, articulation));
-			}
-		}
-	}
-
-	public void setValue(final HexapodLeg leg, final HexapodArticulation articulation, final int value) {
-		final float var;
-		final float sens;
-		final int realValue;
-		switch (leg) {
-			case RIGHT_FRONT:
-			case RIGHT_MIDDLE:
-			case RIGHT_REAR:
-				realValue = value;
-				switch (articulation) {
-					case SHOULDER:
-						var = 127 * STEP;
-						sens = -1;
-						break;
-					case ELBOW:
-						var = 226 * STEP - FastMath.HALF_PI;
-						sens = -1;
-						break;
-					case WRIST:
-						var = -71 * STEP;
-						sens = 1;
-						break;
-					default:
-						var = 0;
-						sens = 1;
-				}
-				break;
-			case LEFT_FRONT:
-			case LEFT_MIDDLE:
-			case LEFT_REAR:
-			default:
-				realValue = 254 - value;
-				switch (articulation) {
-					case SHOULDER:
-						var = 127 * STEP + FastMath.PI;
-						sens = 1;
-						break;
-					case ELBOW:
-						var = 226 * STEP - FastMath.HALF_PI;
-						sens = -1;
-						break;
-					case WRIST:
-					default:
-						var = -71 * STEP;
-						sens = 1;
-						break;
-				}
-		}
-		this.hexapod.setWantedAngle(leg, articulation, sens * realValue * STEP + var);
-	}
-}
+package net.isammoc.hexapod;
+
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.communication.LegMessageView;
+import net.isammoc.hexapod.trace.TraceReader;
+
+public class HexapodConverter implements LegMessageAware {
+	private final WantedAnglesAware hexapod;
+	private final ServoCalibration calibration;
+
+	public HexapodConverter(final WantedAnglesAware hexapod) {
+		this(hexapod, ServoCalibration.DEFAULT);
+	}
+
+	/**
+	 * @param hexapod
+	 * @param calibration
+	 *            mapping of the servo bytes to the angles of {@code hexapod}.
+	 */
+	public HexapodConverter(final WantedAnglesAware hexapod, final ServoCalibration calibration) {
+		this.hexapod = hexapod;
+		this.calibration = calibration;
+	}
+
+	public ServoCalibration getCalibration() {
+		return this.calibration;
+	}
+
+	@Override
+	public void setMessage(final ILegMessage msg) {
+		for (int i = 0; i < HexapodServo.JOINT_COUNT; i++) {
+			final HexapodServo servo = HexapodServo.fromJointIndex(i);
+			this.hexapod.setWantedAngle(servo.getLeg(), servo.getArticulation(),
+					this.calibration.toAngle(i, msg.getUnsignedByte(i)));
+		}
+	}
+
+	/**
+	 * Set the pose commanded at a time of a trace.
+	 * 
+	 * @param trace
+	 * @param nanos
+	 *            {@link System#nanoTime()} to seek, as recorded.
+	 * @param source
+	 *            index of the hexapod, -1 for any.
+	 * @return <code>false</code> if no frame was recorded before
+	 *         {@code nanos}, the pose is then left unchanged.
+	 */
+	public boolean setPose(final TraceReader trace, final long nanos, final int source) {
+		final long index = trace.seekPose(nanos, null, source);
+		if (index < 0) {
+			return false;
+		}
+		this.setMessage(trace.getMessage(index, new LegMessageView()));
+		return true;
+	}
+
+	public void setValue(final HexapodLeg leg, final HexapodArticulation articulation, final int value) {
+		this.hexapod.setWantedAngle(leg, articulation,
+				this.calibration.toAngle(HexapodServo.jointIndex(leg, articulation), value));
+	}
+}
@@ -37,23 +37,33 @@ import gnu.io.CommPortIdentifier;
 import java.awt.BorderLayout;
 import java.awt.Canvas;
 import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
 
+import net.isammoc.hexapod.communication.HexapodProtocol;
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.trace.TraceRecorder;
+import net.isammoc.hexapod.transport.HexapodTransports;
+
 import com.jme3.app.Application;
 import com.jme3.app.SimpleApplication;
 import com.jme3.system.AppSettings;
@@ -61,6 +71,8 @@ import com.jme3.system.JmeCanvasContext;
 import com.jme3.system.JmeSystem;
 
 public class HexapodFrame {
+	/** Period of the refresh of the spinners, in milliseconds. */
+	private static final int DISPLAY_PERIOD = 40;
 
 	private static JmeCanvasContext context;
 	private static Canvas canvas;
@@ -121,9 +133,42 @@ public class HexapodFrame {
 
 	public static void main(final String[] args) {
 		try {
+			final List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+			final HexapodProtocol protocol = arguments.remove("--pipelined") ? HexapodProtocol.PIPELINED
+					: HexapodProtocol.LEGACY;
+			final TraceRecorder recorder;
+			final int trace = arguments.indexOf("--trace");
+			if (trace >= 0) {
+				if (trace + 1 >= arguments.size()) {
+					throw new IllegalArgumentException("--trace needs a file");
+				}
+				recorder = TraceRecorder.create(Paths.get(arguments.get(trace + 1)));
+				arguments.subList(trace, trace + 2).clear();
+			} else {
+				recorder = null;
+			}
+			final ServoCalibration calibration;
+			final int profile = arguments.indexOf("--calibration");
+			if (profile >= 0) {
+				if (profile + 1 >= arguments.size()) {
+					throw new IllegalArgumentException("--calibration needs a file");
+				}
+				calibration = ServoCalibration.load(Paths.get(arguments.get(profile + 1)));
+				arguments.subList(profile, profile + 2).clear();
+			} else {
+				calibration = ServoCalibration.DEFAULT;
+			}
+			final int controller = arguments.indexOf("--controller");
+			if (controller >= 0) {
+				if (controller + 1 >= arguments.size()) {
+					throw new IllegalArgumentException("--controller needs a type");
+				}
+				HexapodJME.setControllerType(JointControllerType.parse(arguments.get(controller + 1)));
+				arguments.subList(controller, controller + 2).clear();
+			}
 			final String portName;
-			if (args.length > 0) {
-				portName = args[0];
+			if (arguments.size() > 0) {
+				portName = arguments.get(0);
 			} else {
 				final ArrayList<String> ports = new ArrayList<String>();
 
@@ -145,7 +190,21 @@ public class HexapodFrame {
 				}
 			}
 
+			final int robots = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 1;
+			if ((robots > 1) && ((portName == null) || !HexapodTransports.isSocketAddress(portName))) {
+				throw new IllegalArgumentException("Several hexapods need a tcp:// or unix: address");
+			}
+			HexapodJME.setRobotCount(robots);
+			HexapodJME.setCalibration(calibration);
+
 			final HexapodControlPanel[] handler = new HexapodControlPanel[1];
+			final PoseMailbox display = new PoseMailbox();
+			final Timer refresh = new Timer(DISPLAY_PERIOD, new ActionListener() {
+				@Override
+				public void actionPerformed(final ActionEvent e) {
+					display.deliver(handler[0]);
+				}
+			});
 			SwingUtilities.invokeAndWait(new Runnable() {
 				@Override
 				public void run() {
@@ -154,44 +213,98 @@ public class HexapodFrame {
 					createFrame();
 					frame.getContentPane().add(canvas);
 					final HexapodNode hexapod = ((HexapodJME) app).getHexapod();
-					handler[0] = new HexapodControlPanel(new HexapodConverter(hexapod));
+					handler[0] = new HexapodControlPanel((HexapodJME) app, 0);
 					frame.getContentPane().add(handler[0], BorderLayout.EAST);
 
 					final JLabel movingLabel = new JLabel("...");
 					movingLabel.setOpaque(true);
-					hexapod.addPropertyChangeListener(HexapodNode.PROPERTY_MOVING,
-							new PropertyChangeListener() {
-
-								@Override
-								public void propertyChange(final PropertyChangeEvent evt) {
-									if ((Boolean) evt.getNewValue()) {
-										// MOVING
-										movingLabel.setBackground(Color.RED);
-									} else {
-										// STOPPED
-										movingLabel.setBackground(Color.GREEN);
-										command.notifyHexapodStopped();
-									}
-								}
-							});
+					hexapod.addMotionListener(new HexapodMotionAdapter() {
+
+						@Override
+						public void servoStarted(final HexapodServo servo) {
+							movingLabel.setBackground(Color.RED);
+							if (command != null) {
+								command.notifyHexapodStarted();
+							}
+						}
+
+						@Override
+						public void robotSettled() {
+							movingLabel.setBackground(Color.GREEN);
+							if (command != null) {
+								command.notifyHexapodStopped();
+							}
+						}
+					});
 					frame.getContentPane().add(movingLabel, BorderLayout.SOUTH);
 
 					frame.pack();
 					startApp();
 					frame.setLocationRelativeTo(null);
 					frame.setVisible(true);
+					refresh.start();
+				}
+			});
+
+			// The first hexapod receives its poses on the physics ticks, its
+			// spinners show them at display rate
+			final PoseMailbox simulation = ((HexapodJME) app).getPoseMailbox(0);
+			final LegMessageAware first = new LegMessageAware() {
+				@Override
+				public void setMessage(final ILegMessage msg) {
+					simulation.setMessage(msg);
+					display.setMessage(msg);
+				}
+			};
+			frame.addWindowListener(new WindowAdapter() {
+				@Override
+				public void windowClosed(final WindowEvent e) {
+					refresh.stop();
 				}
 			});
 
 			if (portName != null) {
 				final ExecutorService executor = Executors.newSingleThreadExecutor();
-				command = new MessageReaderRunnable(portName, handler[0].getSpinModels());
+				if (robots > 1) {
+					// One thread serves all the hexapods, one address each
+					final HexapodCommandServer server = new HexapodCommandServer();
+					final List<HexapodNode> hexapods = ((HexapodJME) app).getHexapods();
+					for (int i = 0; i < robots; i++) {
+						final RobotSession session = server.addRobot(i,
+								i == 0 ? first : ((HexapodJME) app).getPoseMailbox(i), protocol,
+								HexapodTransports.indexedAddress(portName, i));
+						session.setRecorder(recorder);
+						hexapods.get(i).addMotionListener(new HexapodMotionAdapter() {
+
+							@Override
+							public void servoStarted(final HexapodServo servo) {
+								session.notifyHexapodStarted();
+							}
 
-				executor.execute(command);
+							@Override
+							public void robotSettled() {
+								session.notifyHexapodStopped();
+							}
+						});
+					}
+					executor.execute(server);
+				} else {
+					command = new MessageReaderRunnable(portName, first, protocol);
+					command.getSession().setRecorder(recorder);
+					executor.execute(command);
+				}
 				frame.addWindowListener(new WindowAdapter() {
 					@Override
 					public void windowClosed(final WindowEvent e) {
 						executor.shutdownNow();
+						if (recorder != null) {
+							try {
+								executor.awaitTermination(1, TimeUnit.SECONDS);
+								recorder.close();
+							} catch (final Exception ex) {
+								ex.printStackTrace();
+							}
+						}
 					}
 				});
 			}
@@ -0,0 +1,229 @@
+package net.isammoc.hexapod;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.communication.HexapodProtocol;
+import net.isammoc.hexapod.trace.TraceRecorder;
+import net.isammoc.hexapod.transport.HexapodTransports;
+
+import com.jme3.system.AppSettings;
+import com.jme3.system.JmeContext.Type;
+
+/**
+ * Simulation without display, faster than real time.
+ * <p>
+ * The application runs in the headless context of jME, without frame rate
+ * limit, and a {@link FixedStepTimer} advances the physics by the same step
+ * on every frame, in as many substeps as that step needs. Commands are
+ * received as by {@link HexapodFrame}. The real-time factor, simulated time
+ * over wall clock time, is reported periodically and when the simulation
+ * stops.
+ */
+public class HexapodHeadless extends HexapodJME {
+	/** Default simulated seconds per frame. */
+	public static final float DEFAULT_STEP = 1f / 60;
+
+	private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+	private final FixedStepTimer clock;
+	private final float duration;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private long startNanos;
+	private long lastReport;
+
+	/**
+	 * @param step
+	 *            simulated seconds per frame.
+	 * @param duration
+	 *            simulated seconds after which the simulation stops, 0 to run
+	 *            until stopped.
+	 */
+	public HexapodHeadless(final float step, final float duration) {
+		this.clock = new FixedStepTimer(step);
+		this.duration = duration;
+		this.setTimer(this.clock);
+		this.setMaxPhysicsFrame(step);
+		final AppSettings settings = new AppSettings(true);
+		settings.setFrameRate(-1);
+		settings.setAudioRenderer(null);
+		this.setSettings(settings);
+		this.setShowSettings(false);
+	}
+
+	@Override
+	public void simpleUpdate(final float tpf) {
+		super.simpleUpdate(tpf);
+		final long now = System.nanoTime();
+		if (this.startNanos == 0) {
+			this.startNanos = now;
+			this.lastReport = now;
+			this.clock.reset();
+		} else if ((now - this.lastReport) >= REPORT_INTERVAL) {
+			this.lastReport = now;
+			this.report();
+		}
+		if ((this.duration > 0) && (this.getSimulatedSeconds() >= this.duration)) {
+			this.stop();
+		}
+	}
+
+	/** @return the simulated seconds since the first frame. */
+	public float getSimulatedSeconds() {
+		return this.clock.getTimeInSeconds();
+	}
+
+	/** @return the simulated time over the wall clock time. */
+	public float getRealTimeFactor() {
+		final long elapsed = System.nanoTime() - this.startNanos;
+		return (this.startNanos == 0) || (elapsed == 0) ? 0 : (this.clock.getTime() / (float) elapsed);
+	}
+
+	private void report() {
+		System.out.println(String.format("%.1f s simulated in %.1f s, real-time factor %.2f",
+				this.getSimulatedSeconds(), (System.nanoTime() - this.startNanos) / 1e9f, this.getRealTimeFactor()));
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		if (this.startNanos != 0) {
+			this.report();
+		}
+		this.stopped.countDown();
+	}
+
+	/**
+	 * Wait for the simulation to stop.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void awaitStop()
+			throws InterruptedException {
+		this.stopped.await();
+	}
+
+	/**
+	 * Run a headless simulation.
+	 * 
+	 * @param args
+	 *            address to receive commands from, optionally the number of
+	 *            hexapods, and the options of {@link HexapodFrame} plus
+	 *            <code>--step &lt;seconds&gt;</code> and
+	 *            <code>--duration &lt;seconds&gt;</code> of simulated time.
+	 *            The servo calibration is read from the profile of
+	 *            <code>--calibration &lt;file&gt;</code>, if any, and the
+	 *            control law is chosen by
+	 *            <code>--controller bang-bang|pid</code>.
+	 */
+	public static void main(final String[] args) {
+		try {
+			final List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+			final HexapodProtocol protocol = arguments.remove("--pipelined") ? HexapodProtocol.PIPELINED
+					: HexapodProtocol.LEGACY;
+			final String trace = removeOption(arguments, "--trace");
+			final String step = removeOption(arguments, "--step");
+			final String duration = removeOption(arguments, "--duration");
+			final String calibrationFile = removeOption(arguments, "--calibration");
+			final String controller = removeOption(arguments, "--controller");
+			if (arguments.isEmpty()) {
+				System.err.println("Usage: HexapodHeadless <address> [robots] [--pipelined] [--trace <file>]"
+						+ " [--step <seconds>] [--duration <seconds>] [--calibration <file>]"
+						+ " [--controller bang-bang|pid]");
+				return;
+			}
+			final String portName = arguments.get(0);
+			final int robots = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 1;
+			if ((robots > 1) && !HexapodTransports.isSocketAddress(portName)) {
+				throw new IllegalArgumentException("Several hexapods need a tcp:// or unix: address");
+			}
+			final TraceRecorder recorder = trace == null ? null : TraceRecorder.create(Paths.get(trace));
+
+			HexapodJME.setRobotCount(robots);
+			if (calibrationFile != null) {
+				HexapodJME.setCalibration(ServoCalibration.load(Paths.get(calibrationFile)));
+			}
+			if (controller != null) {
+				HexapodJME.setControllerType(JointControllerType.parse(controller));
+			}
+			final HexapodHeadless app = new HexapodHeadless(step == null ? DEFAULT_STEP : Float.parseFloat(step),
+					duration == null ? 0 : Float.parseFloat(duration));
+			final List<HexapodNode> hexapods = app.getHexapods();
+			app.start(Type.Headless);
+
+			final ExecutorService executor = Executors.newSingleThreadExecutor();
+			if (robots > 1) {
+				// One thread serves all the hexapods, one address each
+				final HexapodCommandServer server = new HexapodCommandServer();
+				for (int i = 0; i < robots; i++) {
+					final RobotSession session = server.addRobot(i, app.getPoseMailbox(i), protocol,
+							HexapodTransports.indexedAddress(portName, i));
+					session.setRecorder(recorder);
+					hexapods.get(i).addMotionListener(new HexapodMotionAdapter() {
+
+						@Override
+						public void servoStarted(final HexapodServo servo) {
+							session.notifyHexapodStarted();
+						}
+
+						@Override
+						public void robotSettled() {
+							session.notifyHexapodStopped();
+						}
+					});
+				}
+				executor.execute(server);
+			} else {
+				final MessageReaderRunnable command = new MessageReaderRunnable(portName, app.getPoseMailbox(0),
+						protocol);
+				command.getSession().setRecorder(recorder);
+				hexapods.get(0).addMotionListener(new HexapodMotionAdapter() {
+
+					@Override
+					public void servoStarted(final HexapodServo servo) {
+						command.notifyHexapodStarted();
+					}
+
+					@Override
+					public void robotSettled() {
+						command.notifyHexapodStopped();
+					}
+				});
+				executor.execute(command);
+			}
+
+			app.awaitStop();
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+			if (recorder != null) {
+				recorder.close();
+			}
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Remove {@code option} and its value from {@code arguments}.
+	 * 
+	 * @return the value of {@code option}, or <code>null</code> if absent.
+	 */
+	private static String removeOption(final List<String> arguments, final String option) {
+		final int index = arguments.indexOf(option);
+		if (index < 0) {
+			return null;
+		}
+		if (index + 1 >= arguments.size()) {
+			throw new IllegalArgumentException(option + " needs a value");
+		}
+		final String value = arguments.get(index + 1);
+		arguments.subList(index, index + 2).clear();
+		return value;
+	}
+}
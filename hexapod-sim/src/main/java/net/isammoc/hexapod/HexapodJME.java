@@ -1,80 +1,412 @@
-package net.isammoc.hexapod;
-
-import com.jme3.app.SimpleApplication;
-import com.jme3.bullet.BulletAppState;
-import com.jme3.bullet.collision.shapes.BoxCollisionShape;
-import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
-import com.jme3.math.Transform;
-import com.jme3.math.Vector2f;
-import com.jme3.math.Vector3f;
-import com.jme3.renderer.queue.RenderQueue.ShadowMode;
-import com.jme3.scene.Geometry;
-import com.jme3.scene.shape.Box;
-import com.jme3.system.JmeContext.Type;
-
-public class HexapodJME extends SimpleApplication {
-	private static final float FLOOR_FRICTION = 10000f;
-
-	private BulletAppState bulletAppState;
-	private final HexapodNode hexapod = new HexapodNode();
-	private static boolean PHYSICS_ACTIVE = true;
-
-	@Override
-	public void simpleInitApp() {
-		// Init physics space
-		this.bulletAppState = new BulletAppState();
-		this.stateManager.attach(this.bulletAppState);
-		this.bulletAppState.setActive(PHYSICS_ACTIVE);
-		this.bulletAppState.getPhysicsSpace().setAccuracy(0.005f);
-
-		// Camera position
-		this.cam.setLocation(this.cam.getLocation().add(new Vector3f(10, 10, 10)));
-		this.cam.setDirection(Vector3f.UNIT_Y.mult(-10).add(this.cam.getLocation().mult(-1)).normalize());
-		this.flyCam.setMoveSpeed(50);
-
-		this.initFloor();
-
-		this.hexapod.setLocalTransform(new Transform(new Vector3f(0, 10, 0)));
-
-		// Add hexapod to the world
-		this.rootNode.attachChild(this.hexapod);
-		this.bulletAppState.getPhysicsSpace().addAll(this.hexapod);
-		this.bulletAppState.getPhysicsSpace().enableDebug(this.assetManager);
-	}
-
-	@Override
-	public void simpleUpdate(final float tpf) {
-		super.simpleUpdate(tpf);
-		this.hexapod.simpleUpdate(tpf);
-	}
-
-	/** Make a solid floor and add it to the scene. */
-	public void initFloor() {
-
-		final Material floor_mat = new Material(this.assetManager, "Common/MatDefs/Misc/SolidColor.j3md");
-		floor_mat.setColor("m_Color", ColorRGBA.Gray);
-		final Box floorBox = new Box(Vector3f.ZERO, 100f, 0.1f, 50f);
-		floorBox.scaleTextureCoordinates(new Vector2f(30, 60));
-		final Geometry floor = new Geometry("floor", floorBox);
-		floor.setMaterial(floor_mat);
-		floor.setShadowMode(ShadowMode.Receive);
-		final RigidBodyControl floorControl = new RigidBodyControl(new BoxCollisionShape(new Vector3f(100f,
-				0.1f, 50f)), 0);
-		floor.addControl(floorControl);
-		floorControl.setPhysicsLocation(new Vector3f(0, -0.1f, 0));
-		floorControl.setFriction(FLOOR_FRICTION);
-		this.rootNode.attachChild(floor);
-		this.bulletAppState.getPhysicsSpace().add(floorControl);
-	}
-
-	public static void main(final String[] args) {
-		final HexapodJME hexapod = new HexapodJME();
-		hexapod.start(Type.Display);
-	}
-
-	public HexapodNode getHexapod() {
-		return this.hexapod;
-	}
-}
+package net.isammoc.hexapod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import jdk.jfr.EventType;
+
+import net.isammoc.hexapod.communication.LatencyHistogram;
+import net.isammoc.hexapod.events.ControlEvent;
+import net.isammoc.hexapod.events.ConvertEvent;
+import net.isammoc.hexapod.events.PhysicsStepEvent;
+import net.isammoc.hexapod.events.RenderEvent;
+import net.isammoc.hexapod.management.HexapodMBeans;
+import net.isammoc.hexapod.management.HexapodNodeMonitor;
+import net.isammoc.hexapod.management.SimulationMonitor;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppState;
+import com.jme3.bullet.BulletAppState;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.JmeContext.Type;
+
+/**
+ * Simulation of hexapods on a floor.
+ * <p>
+ * Once initialized, the simulation is registered as a
+ * {@link SimulationMonitor} MBean, and each hexapod as a
+ * {@link HexapodNodeMonitor}, until the application is destroyed.
+ * <p>
+ * The phases of the frames are Flight Recorder events, disabled by default:
+ * each {@link PhysicsStepEvent}, with the {@link ConvertEvent} and
+ * {@link ControlEvent} of each hexapod, then the {@link RenderEvent}.
+ */
+public class HexapodJME extends SimpleApplication {
+	private static final float FLOOR_FRICTION = 10000f;
+	private static final float ROBOT_SPACING = 25f;
+	private static final int ROBOTS_PER_ROW = 8;
+	/** Duration of a physics substep, in seconds. */
+	private static final float PHYSICS_ACCURACY = 0.005f;
+
+	private BulletAppState bulletAppState;
+	private final List<HexapodNode> hexapods;
+	/** Longest frame whose physics is entirely stepped, in seconds. */
+	private float maxPhysicsFrame = 4 * PHYSICS_ACCURACY;
+	private final PoseMailbox[] mailboxes;
+	private final HexapodConverter[] converters;
+	private final List<ObjectName> mbeanNames = new ArrayList<ObjectName>();
+	private final LatencyHistogram physicsStepTime = new LatencyHistogram();
+	private long stepStartNanos;
+	/** Number of physics substeps so far. */
+	private long steps;
+	/** Event of the current substep, <code>null</code> when not recorded. */
+	private PhysicsStepEvent stepEvent;
+	/** Number of rendered frames so far. */
+	private long frames;
+	/** Event of the current frame, <code>null</code> when not recorded. */
+	private RenderEvent renderEvent;
+	private volatile long simulatedNanos;
+	private volatile boolean physicsPaused = !PHYSICS_ACTIVE;
+	private static boolean PHYSICS_ACTIVE = true;
+	private static int ROBOT_COUNT = 1;
+	private static JointControllerType CONTROLLER_TYPE = JointControllerType.BANG_BANG;
+	private static ServoCalibration CALIBRATION = ServoCalibration.DEFAULT;
+	// Kept in fields from a callback to the next, the step and render events
+	// escape, and are only created when enabled
+	private static final EventType PHYSICS_STEP_EVENT = EventType.getEventType(PhysicsStepEvent.class);
+	private static final EventType RENDER_EVENT = EventType.getEventType(RenderEvent.class);
+
+	/**
+	 * Give the latest poses to the hexapods, before their own ticks, and time
+	 * the substeps from there.
+	 */
+	private final PhysicsTickListener poseDelivery = new PhysicsTickListener() {
+		@Override
+		public void prePhysicsTick(final PhysicsSpace space, final float tpf) {
+			PhysicsStepEvent stepEvent = null;
+			if (PHYSICS_STEP_EVENT.isEnabled()) {
+				stepEvent = new PhysicsStepEvent();
+				stepEvent.begin();
+			}
+			HexapodJME.this.stepEvent = stepEvent;
+			for (int i = 0; i < HexapodJME.this.mailboxes.length; i++) {
+				final ConvertEvent event = new ConvertEvent();
+				event.begin();
+				if (HexapodJME.this.mailboxes[i].deliver(HexapodJME.this.converters[i]) && event.shouldCommit()) {
+					event.robot = i;
+					event.step = HexapodJME.this.steps;
+					event.commit();
+				}
+			}
+			HexapodJME.this.stepStartNanos = System.nanoTime();
+		}
+
+		@Override
+		public void physicsTick(final PhysicsSpace space, final float tpf) {
+			HexapodJME.this.physicsStepTime.record(System.nanoTime() - HexapodJME.this.stepStartNanos);
+			HexapodJME.this.simulatedNanos += (long) (tpf * TimeUnit.SECONDS.toNanos(1));
+			final PhysicsStepEvent stepEvent = HexapodJME.this.stepEvent;
+			if ((stepEvent != null) && stepEvent.shouldCommit()) {
+				stepEvent.step = HexapodJME.this.steps;
+				stepEvent.robots = HexapodJME.this.mailboxes.length;
+				stepEvent.commit();
+			}
+			HexapodJME.this.steps++;
+		}
+	};
+
+	/**
+	 * Start the {@link RenderEvent} of the frame once the physics is stepped,
+	 * the states being rendered in their order of attachment.
+	 */
+	private final AppState renderStart = new AbstractAppState() {
+		@Override
+		public void render(final RenderManager rm) {
+			RenderEvent event = null;
+			if (RENDER_EVENT.isEnabled()) {
+				event = new RenderEvent();
+				event.begin();
+			}
+			HexapodJME.this.renderEvent = event;
+		}
+	};
+
+	/**
+	 * Set the number of hexapods of the next created application.
+	 * 
+	 * @param count
+	 */
+	public static void setRobotCount(final int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("At least one hexapod is needed");
+		}
+		ROBOT_COUNT = count;
+	}
+
+	/**
+	 * Set the control law of the hexapods of the next created application.
+	 * 
+	 * @param type
+	 */
+	public static void setControllerType(final JointControllerType type) {
+		if (type == null) {
+			throw new NullPointerException("type must not be null");
+		}
+		CONTROLLER_TYPE = type;
+	}
+
+	/**
+	 * Set the servo calibration of the poses received by the mailboxes of the
+	 * next created application.
+	 * 
+	 * @param calibration
+	 */
+	public static void setCalibration(final ServoCalibration calibration) {
+		if (calibration == null) {
+			throw new NullPointerException("calibration must not be null");
+		}
+		CALIBRATION = calibration;
+	}
+
+	public HexapodJME() {
+		final List<HexapodNode> nodes = new ArrayList<HexapodNode>(ROBOT_COUNT);
+		this.mailboxes = new PoseMailbox[ROBOT_COUNT];
+		this.converters = new HexapodConverter[ROBOT_COUNT];
+		for (int i = 0; i < ROBOT_COUNT; i++) {
+			final HexapodNode hexapod = new HexapodNode(HexapodNode.FLOOR_FRICTION, HexapodNode.MOTOR_IMPULSE,
+					CONTROLLER_TYPE.create());
+			hexapod.setRobot(i);
+			nodes.add(hexapod);
+			this.mailboxes[i] = new PoseMailbox();
+			this.converters[i] = new HexapodConverter(hexapod, CALIBRATION);
+		}
+		this.hexapods = Collections.unmodifiableList(nodes);
+	}
+
+	@Override
+	public void simpleInitApp() {
+		// Init physics space
+		this.bulletAppState = new BulletAppState();
+		this.stateManager.attach(this.bulletAppState);
+		this.bulletAppState.setActive(PHYSICS_ACTIVE);
+		this.bulletAppState.getPhysicsSpace().setAccuracy(PHYSICS_ACCURACY);
+		this.bulletAppState.getPhysicsSpace().setMaxSubSteps(maxSubSteps(this.maxPhysicsFrame, PHYSICS_ACCURACY));
+		this.bulletAppState.getPhysicsSpace().addTickListener(this.poseDelivery);
+		this.stateManager.attach(this.renderStart);
+
+		// Camera position
+		this.cam.setLocation(this.cam.getLocation().add(new Vector3f(10, 10, 10)));
+		this.cam.setDirection(Vector3f.UNIT_Y.mult(-10).add(this.cam.getLocation().mult(-1)).normalize());
+		if (this.flyCam != null) {
+			// No input, hence no fly camera, when headless
+			this.flyCam.setMoveSpeed(50);
+		}
+
+		this.initFloor();
+
+		// Add hexapods to the world, in rows centered on the origin
+		final int columns = Math.min(this.hexapods.size(), ROBOTS_PER_ROW);
+		final int rows = (this.hexapods.size() + ROBOTS_PER_ROW - 1) / ROBOTS_PER_ROW;
+		for (int i = 0; i < this.hexapods.size(); i++) {
+			final HexapodNode hexapod = this.hexapods.get(i);
+			final float x = ((i % ROBOTS_PER_ROW) - (columns - 1) / 2f) * ROBOT_SPACING;
+			final float z = ((i / ROBOTS_PER_ROW) - (rows - 1) / 2f) * ROBOT_SPACING;
+			hexapod.setLocalTransform(new Transform(new Vector3f(x, 10, z)));
+			this.rootNode.attachChild(hexapod);
+			this.bulletAppState.getPhysicsSpace().addAll(hexapod);
+			this.bulletAppState.getPhysicsSpace().addTickListener(hexapod);
+		}
+		if (this.context.getType() != Type.Headless) {
+			this.bulletAppState.getPhysicsSpace().enableDebug(this.assetManager);
+		}
+
+		this.mbeanNames.add(HexapodMBeans.register(new SimulationMonitor(this), "Simulation", this.getClass()
+				.getSimpleName()));
+		for (int i = 0; i < this.hexapods.size(); i++) {
+			this.mbeanNames.add(HexapodMBeans.register(new HexapodNodeMonitor(this.hexapods.get(i)), "HexapodNode",
+					"robot-" + i));
+		}
+	}
+
+	@Override
+	public void simpleRender(final RenderManager rm) {
+		final RenderEvent event = this.renderEvent;
+		if ((event != null) && event.shouldCommit()) {
+			event.frame = this.frames;
+			event.commit();
+		}
+		this.frames++;
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		for (final ObjectName name : this.mbeanNames) {
+			HexapodMBeans.unregister(name);
+		}
+		this.mbeanNames.clear();
+	}
+
+	/**
+	 * @return wall time of the physics substeps, from the delivery of the
+	 *         poses to the end of the substep, the control of the hexapods
+	 *         included.
+	 */
+	public LatencyHistogram getPhysicsStepTime() {
+		return this.physicsStepTime;
+	}
+
+	/** @return simulated time of the physics substeps so far. */
+	public long getSimulatedNanos() {
+		return this.simulatedNanos;
+	}
+
+	public boolean isPhysicsPaused() {
+		return this.physicsPaused;
+	}
+
+	/**
+	 * Pause or resume the physics, from the next frame. May be called from any
+	 * thread.
+	 * 
+	 * @param paused
+	 */
+	public void setPhysicsPaused(final boolean paused) {
+		this.physicsPaused = paused;
+		this.enqueue(new Callable<Void>() {
+			@Override
+			public Void call() {
+				HexapodJME.this.bulletAppState.setActive(!paused);
+				return null;
+			}
+		});
+	}
+
+	/** @return the duration of a physics substep, in seconds. */
+	public float getPhysicsAccuracy() {
+		return this.bulletAppState.getPhysicsSpace().getAccuracy();
+	}
+
+	/**
+	 * Change the duration of a physics substep, from the next frame. May be
+	 * called from any thread. The number of substeps per frame follows, so
+	 * that as long a frame is stepped entirely.
+	 * 
+	 * @param accuracy
+	 *            in seconds.
+	 */
+	public void setPhysicsAccuracy(final float accuracy) {
+		if (!(accuracy > 0)) {
+			throw new IllegalArgumentException("accuracy must be positive");
+		}
+		this.enqueue(new Callable<Void>() {
+			@Override
+			public Void call() {
+				final PhysicsSpace space = HexapodJME.this.bulletAppState.getPhysicsSpace();
+				space.setAccuracy(accuracy);
+				space.setMaxSubSteps(maxSubSteps(HexapodJME.this.maxPhysicsFrame, accuracy));
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Set the longest frame whose physics is entirely stepped. The physics of
+	 * a longer frame is cut to that duration, and the simulation falls behind
+	 * the clock. Must be called before the application is initialized.
+	 * 
+	 * @param seconds
+	 *            4 physics substeps by default, as in jME.
+	 */
+	protected void setMaxPhysicsFrame(final float seconds) {
+		if (!(seconds > 0)) {
+			throw new IllegalArgumentException("seconds must be positive");
+		}
+		this.maxPhysicsFrame = seconds;
+	}
+
+	/**
+	 * @return the number of substeps of the given accuracy needed to step a
+	 *         frame of the given duration, at least 1.
+	 */
+	private static int maxSubSteps(final float frame, final float accuracy) {
+		return Math.max(1, (int) Math.ceil(frame / accuracy));
+	}
+
+	/** Make a solid floor and add it to the scene. */
+	public void initFloor() {
+
+		final Material floor_mat = new Material(this.assetManager, "Common/MatDefs/Misc/SolidColor.j3md");
+		floor_mat.setColor("m_Color", ColorRGBA.Gray);
+		final Box floorBox = new Box(Vector3f.ZERO, 100f, 0.1f, 50f);
+		floorBox.scaleTextureCoordinates(new Vector2f(30, 60));
+		final Geometry floor = new Geometry("floor", floorBox);
+		floor.setMaterial(floor_mat);
+		floor.setShadowMode(ShadowMode.Receive);
+		final RigidBodyControl floorControl = new RigidBodyControl(new BoxCollisionShape(new Vector3f(100f,
+				0.1f, 50f)), 0);
+		floor.addControl(floorControl);
+		floorControl.setPhysicsLocation(new Vector3f(0, -0.1f, 0));
+		floorControl.setFriction(FLOOR_FRICTION);
+		this.rootNode.attachChild(floor);
+		this.bulletAppState.getPhysicsSpace().add(floorControl);
+	}
+
+	public static void main(final String[] args) {
+		final HexapodJME hexapod = new HexapodJME();
+		hexapod.start(Type.Display);
+	}
+
+	/** @return the first hexapod. */
+	public HexapodNode getHexapod() {
+		return this.hexapods.get(0);
+	}
+
+	public List<HexapodNode> getHexapods() {
+		return this.hexapods;
+	}
+
+	/**
+	 * @param robot
+	 *            index of the hexapod.
+	 * @return the mailbox to publish the poses of the hexapod to, from a
+	 *         single thread; the latest one is applied before the next
+	 *         physics substep.
+	 */
+	public PoseMailbox getPoseMailbox(final int robot) {
+		return this.mailboxes[robot];
+	}
+
+	/**
+	 * Set a joint of a hexapod to a servo byte, from the next frame. May be
+	 * called from any thread: the joint is set on the render thread, which
+	 * steps the physics and delivers the mailboxes, so that the wanted angles
+	 * of a hexapod have a single writer.
+	 * 
+	 * @param robot
+	 *            index of the hexapod.
+	 * @param leg
+	 * @param articulation
+	 * @param value
+	 *            servo byte, converted with the calibration of the hexapod.
+	 */
+	public void setServoValue(final int robot, final HexapodLeg leg, final HexapodArticulation articulation,
+			final int value) {
+		final HexapodConverter converter = this.converters[robot];
+		this.enqueue(new Callable<Void>() {
+			@Override
+			public Void call() {
+				converter.setValue(leg, articulation, value);
+				return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,18 @@
+package net.isammoc.hexapod;
+
+/**
+ * An empty {@link HexapodMotionListener}, to override only the needed events.
+ */
+public class HexapodMotionAdapter implements HexapodMotionListener {
+	@Override
+	public void servoStarted(final HexapodServo servo) {
+	}
+
+	@Override
+	public void servoSettled(final HexapodServo servo) {
+	}
+
+	@Override
+	public void robotSettled() {
+	}
+}
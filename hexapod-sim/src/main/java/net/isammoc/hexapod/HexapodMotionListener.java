@@ -0,0 +1,26 @@
+package net.isammoc.hexapod;
+
+/**
+ * Moving transitions of the joints of a hexapod.
+ * <p>
+ * Transitions are detected once per tick, on the thread of the simulation:
+ * a joint that starts and settles within a tick is not reported.
+ * 
+ * @see HexapodMotionAdapter
+ */
+public interface HexapodMotionListener {
+	/**
+	 * The joint of {@code servo} started moving.
+	 */
+	void servoStarted(final HexapodServo servo);
+
+	/**
+	 * The joint of {@code servo} reached its wanted angle.
+	 */
+	void servoSettled(final HexapodServo servo);
+
+	/**
+	 * The last moving joint settled, after its {@link #servoSettled}.
+	 */
+	void robotSettled();
+}
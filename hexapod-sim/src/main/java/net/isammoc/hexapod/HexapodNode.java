@@ -1,369 +1,497 @@
-package net.isammoc.hexapod;
-
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
-import java.util.EnumMap;
-import java.util.Map;
-
-import net.isammoc.hexapod.HexapodVelocitiesHandler.DIRECTION;
-
-import com.jme3.bullet.collision.PhysicsCollisionObject;
-import com.jme3.bullet.collision.shapes.BoxCollisionShape;
-import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
-import com.jme3.bullet.collision.shapes.CollisionShape;
-import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
-import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.bullet.joints.HingeJoint;
-import com.jme3.math.FastMath;
-import com.jme3.math.Matrix3f;
-import com.jme3.math.Quaternion;
-import com.jme3.math.Transform;
-import com.jme3.math.Vector3f;
-import com.jme3.scene.Node;
-import com.jme3.scene.Spatial;
-
-public class HexapodNode extends Node implements WantedAnglesAware {
-	public static final String PROPERTY_MOVING = "moving";
-	private static final float FLOOR_FRICTION = 10000f;
-	private static final float MASS_BASE = 50f;
-	private static final float MASS_SHOULDER = 5f;
-	private static final float MASS_ARM = 5f;
-	private static final float MASS_HAND = 10f;
-	private static final float MOTOR_IMPULSE = 5f;
-	private static final float MOTOR_VELOCITY = 2f;
-
-	private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
-	private final boolean moving = false;
-	private final HexapodVelocitiesHandler velocities = new HexapodVelocitiesHandler();
-
-	/** Joints of the hexapod. */
-	private Map<HexapodLeg, Map<HexapodArticulation, HingeJoint>> joints;
-	{
-		this.joints = new EnumMap<HexapodLeg, Map<HexapodArticulation, HingeJoint>>(HexapodLeg.class);
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			this.joints.put(leg, new EnumMap<HexapodArticulation, HingeJoint>(HexapodArticulation.class));
-		}
-	}
-
-	/** Model for joints */
-	private Map<HexapodLeg, Map<HexapodArticulation, Float>> wantedAngles;
-	{
-		this.wantedAngles = new EnumMap<HexapodLeg, Map<HexapodArticulation, Float>>(HexapodLeg.class);
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			this.wantedAngles.put(leg, new EnumMap<HexapodArticulation, Float>(HexapodArticulation.class));
-			for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-				this.wantedAngles.get(leg).put(articulation, 0f);
-			}
-		}
-	}
-
-	/** Angles for model equals 0. */
-	private Map<HexapodLeg, Map<HexapodArticulation, Float>> zeroAngles;
-	{
-		this.zeroAngles = new EnumMap<HexapodLeg, Map<HexapodArticulation, Float>>(HexapodLeg.class);
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			this.zeroAngles.put(leg, new EnumMap<HexapodArticulation, Float>(HexapodArticulation.class));
-		}
-	}
-
-	/** Hexapod shape factory. */
-	private final HexapodShapeFactory shapeFactory = new HexapodShapeFactory();
-
-	public HexapodNode() {
-		super("hexapod");
-
-		final RigidBodyControl baseControl = new RigidBodyControl(this.shapeFactory.createBaseShape(),
-				MASS_BASE);
-		final Node baseNode = new Node("base");
-		baseNode.addControl(baseControl);
-		baseNode.setName("base");
-		this.attachChild(baseNode);
-
-		this.createLeg(baseControl, HexapodLeg.LEFT_FRONT, new Vector3f(3.0f, 1f, 4.5f), +0.588f);
-		this.createLeg(baseControl, HexapodLeg.LEFT_MIDDLE, new Vector3f(3.8f, 1f, 0f), FastMath.HALF_PI);
-		this.createLeg(baseControl, HexapodLeg.LEFT_REAR, new Vector3f(3.0f, 1f, -4.5f), FastMath.PI - 0.588f);
-		this.createLeg(baseControl, HexapodLeg.RIGHT_FRONT, new Vector3f(-3.0f, 1f, 4.5f), -0.588f);
-		this.createLeg(baseControl, HexapodLeg.RIGHT_MIDDLE, new Vector3f(-3.8f, 1f, 0f), -FastMath.HALF_PI);
-		this.createLeg(baseControl, HexapodLeg.RIGHT_REAR, new Vector3f(-3.0f, 1f, -4.5f),
-				0.588f - FastMath.PI);
-
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-				final HingeJoint joint = this.joints.get(leg).get(articulation);
-				this.zeroAngles.get(leg).put(articulation, joint.getHingeAngle() % FastMath.TWO_PI);
-			}
-		}
-		this.velocities.addPropertyChangeListener(PROPERTY_MOVING, new PropertyChangeListener() {
-
-			@Override
-			public void propertyChange(final PropertyChangeEvent evt) {
-				HexapodNode.this.pcs.firePropertyChange(PROPERTY_MOVING, evt.getOldValue(), evt.getNewValue());
-			}
-		});
-	}
-
-	/**
-	 * Helper to place a node. Delete collision between hexapod parts.
-	 * 
-	 * @param transform
-	 *            Location and orientation of the node.
-	 * @param node
-	 *            node to place.
-	 */
-	private void placeNode(final Transform transform, final RigidBodyControl node) {
-		node.setCollisionGroup(PhysicsCollisionObject.COLLISION_GROUP_02);
-		node.setCollideWithGroups(PhysicsCollisionObject.COLLISION_GROUP_01);
-		node.setFriction(FLOOR_FRICTION);
-		node.setPhysicsLocation(transform.getTranslation());
-		node.setPhysicsRotation(transform.getRotation().toRotationMatrix());
-	}
-
-	/**
-	 * Create a leg and attach it to the base.
-	 * 
-	 * @param base
-	 *            The hexapod base node.
-	 * @param leg
-	 *            the enum of the leg to create
-	 * @param baseTransform
-	 *            transform of the base.
-	 * @param pivotBase
-	 *            location of the joint with the base.
-	 * @param angle
-	 *            start angle of the leg.
-	 */
-	private void createLeg(final RigidBodyControl base, final HexapodLeg leg, final Vector3f pivotBase,
-			final float angle) {
-		final Transform transform = new Transform(pivotBase, new Quaternion().fromAngleAxis(angle,
-				Vector3f.UNIT_Y));
-
-		final RigidBodyControl shoulderControl = this.createShoulder(leg, transform);
-
-		final HingeJoint shoulder = new HingeJoint(base, shoulderControl, pivotBase, Vector3f.ZERO,
-				Vector3f.UNIT_Y, Vector3f.UNIT_Y);
-		shoulder.enableMotor(true, 0, 1);
-		shoulder.setCollisionBetweenLinkedBodys(false);
-		this.joints.get(leg).put(HexapodArticulation.SHOULDER, shoulder);
-	}
-
-	/**
-	 * Create the shoulder for the specified leg.
-	 * 
-	 * @param leg
-	 *            Enumeration of the shoulder to create.
-	 * @param transform
-	 *            Location and orientation combined.
-	 * @return the node.
-	 */
-	private RigidBodyControl createShoulder(final HexapodLeg leg, final Transform transform) {
-		final RigidBodyControl shoulderControl = new RigidBodyControl(
-				this.shapeFactory.createShoulderShape(), MASS_SHOULDER);
-		final Node shoulderNode = new Node("shoulder");
-		shoulderNode.addControl(shoulderControl);
-		this.placeNode(transform, shoulderControl);
-		this.attachChild(shoulderNode);
-
-		final RigidBodyControl armControl = this.createArm(leg,
-				new Transform(new Vector3f(0, 0, 2f)).combineWithParent(transform));
-
-		final HingeJoint elbow = new HingeJoint(shoulderControl, armControl, new Vector3f(0, 0, 1.3f),
-				Vector3f.ZERO, Vector3f.UNIT_X, Vector3f.UNIT_X);
-		elbow.setCollisionBetweenLinkedBodys(false);
-		elbow.enableMotor(true, 0, 1);
-		this.joints.get(leg).put(HexapodArticulation.ELBOW, elbow);
-
-		return shoulderControl;
-	}
-
-	private RigidBodyControl createArm(final HexapodLeg leg, final Transform transform) {
-		final RigidBodyControl armControl = new RigidBodyControl(this.shapeFactory.createArmShape(), MASS_ARM);
-		final Node armNode = new Node("arm");
-		armNode.addControl(armControl);
-		this.placeNode(transform, armControl);
-		this.attachChild(armNode);
-
-		final RigidBodyControl handControl = this.createHand(new Transform(new Vector3f(2, 4.6f, 0))
-				.combineWithParent(transform));
-		final Quaternion quaternion = new Quaternion();
-		quaternion.fromAngleAxis(FastMath.PI / 3, Vector3f.UNIT_X);
-
-		final HingeJoint wrist = new HingeJoint(armControl, handControl, new Vector3f(0.25f, 4.6f, 0.25f),
-				Vector3f.ZERO, Vector3f.UNIT_X, Vector3f.UNIT_X);
-		wrist.enableMotor(true, 0, 1);
-		wrist.setCollisionBetweenLinkedBodys(false);
-		this.joints.get(leg).put(HexapodArticulation.WRIST, wrist);
-
-		return armControl;
-	}
-
-	private RigidBodyControl createHand(final Transform transform) {
-		final RigidBodyControl handControl = new RigidBodyControl(this.shapeFactory.createHandShape(),
-				MASS_HAND);
-		final Node handNode = new Node("hand");
-		handNode.addControl(handControl);
-		this.placeNode(transform, handControl);
-		this.attachChild(handNode);
-
-		return handControl;
-	}
-
-	public void simpleUpdate(final float tpf) {
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-				final HingeJoint joint = this.joints.get(leg).get(articulation);
-				final float current = joint.getHingeAngle() % FastMath.TWO_PI;
-				float wantedAngle = (this.zeroAngles.get(leg).get(articulation) + this.wantedAngles.get(leg)
-						.get(articulation)) % FastMath.TWO_PI;
-
-				if (current - wantedAngle > FastMath.PI) {
-					wantedAngle += FastMath.TWO_PI;
-				}
-
-				if (wantedAngle - current > FastMath.PI) {
-					wantedAngle -= FastMath.TWO_PI;
-				}
-
-				final float diff = Math.abs((current - wantedAngle) % FastMath.TWO_PI);
-				if (diff < (FastMath.PI / 100)) {
-					if (current - wantedAngle < 0) {
-						joint.enableMotor(true, MOTOR_VELOCITY / 10, MOTOR_IMPULSE);
-					} else {
-						joint.enableMotor(true, -MOTOR_VELOCITY / 10, MOTOR_IMPULSE);
-					}
-					this.velocities.setVelocity(leg, articulation, DIRECTION.NONE);
-				} else if (diff < (FastMath.PI / 80)) {
-					if (current - wantedAngle < 0) {
-						joint.enableMotor(true, MOTOR_VELOCITY / 5, MOTOR_IMPULSE);
-					} else {
-						joint.enableMotor(true, MOTOR_VELOCITY / 5, MOTOR_IMPULSE);
-					}
-					this.velocities.setVelocity(leg, articulation, DIRECTION.NONE);
-				} else {
-					if (current - wantedAngle < 0) {
-						joint.enableMotor(true, MOTOR_VELOCITY, MOTOR_IMPULSE);
-						this.velocities.setVelocity(leg, articulation, DIRECTION.FORWARD);
-					} else {
-						joint.enableMotor(true, -MOTOR_VELOCITY, MOTOR_IMPULSE);
-						this.velocities.setVelocity(leg, articulation, DIRECTION.BACKWARD);
-					}
-				}
-			}
-		}
-	}
-
-	@Override
-	public void setWantedAngle(final HexapodLeg leg, final HexapodArticulation articulation, final float value) {
-		this.wantedAngles.get(leg).put(articulation, value);
-		final HingeJoint joint = this.joints.get(leg).get(articulation);
-		final float current = joint.getHingeAngle() % FastMath.TWO_PI;
-		float wantedAngle = (this.zeroAngles.get(leg).get(articulation) + this.wantedAngles.get(leg).get(
-				articulation))
-				% FastMath.TWO_PI;
-		if (current - wantedAngle > FastMath.PI) {
-			wantedAngle += FastMath.TWO_PI;
-		}
-
-		if (wantedAngle - current > FastMath.PI) {
-			wantedAngle -= FastMath.TWO_PI;
-		}
-
-		if (Math.abs((current - wantedAngle) % FastMath.TWO_PI) < FastMath.PI / 90) {
-			joint.enableMotor(true, 0, MOTOR_IMPULSE);
-			this.velocities.setVelocity(leg, articulation, DIRECTION.NONE);
-		} else {
-			if (current - wantedAngle < 0) {
-				joint.enableMotor(true, MOTOR_VELOCITY, MOTOR_IMPULSE);
-				this.velocities.setVelocity(leg, articulation, DIRECTION.FORWARD);
-			} else {
-				joint.enableMotor(true, -MOTOR_VELOCITY, MOTOR_IMPULSE);
-				this.velocities.setVelocity(leg, articulation, DIRECTION.BACKWARD);
-			}
-			joint.getBodyA().activate();
-			joint.getBodyB().activate();
-		}
-	}
-
-	@Override
-	public void setLocalTransform(final Transform t) {
-		super.setLocalTransform(t);
-
-		for (final Spatial child : this.getChildren()) {
-			final RigidBodyControl control = child.getControl(RigidBodyControl.class);
-			control.setPhysicsLocation(control.getPhysicsLocation().add(t.getTranslation()));
-			control.setPhysicsRotation(control.getPhysicsRotation().mult(t.getRotation()));
-			child.setLocalTransform(child.getLocalTransform().combineWithParent(t));
-		}
-	}
-
-	public void addPropertyChangeListener(final PropertyChangeListener listener) {
-		this.pcs.addPropertyChangeListener(listener);
-	}
-
-	public void removePropertyChangeListener(final PropertyChangeListener listener) {
-		this.pcs.removePropertyChangeListener(listener);
-	}
-
-	public void addPropertyChangeListener(final String propertyName, final PropertyChangeListener listener) {
-		this.pcs.addPropertyChangeListener(propertyName, listener);
-	}
-
-	public void removePropertyChangeListener(final String propertyName, final PropertyChangeListener listener) {
-		this.pcs.removePropertyChangeListener(propertyName, listener);
-	}
-
-	public boolean hasListeners(final String propertyName) {
-		return this.pcs.hasListeners(propertyName);
-	}
-
-	private static class HexapodShapeFactory {
-		public CollisionShape createBaseShape() {
-			final CompoundCollisionShape chassisShape = new CompoundCollisionShape();
-			final CapsuleCollisionShape rf_lb = new CapsuleCollisionShape(.3f, 10.81f);
-			final CapsuleCollisionShape lf_rb = new CapsuleCollisionShape(.3f, 10.81f);
-			final CapsuleCollisionShape lm_rm = new CapsuleCollisionShape(.3f, 7.6f);
-
-			final Matrix3f rotX = new Matrix3f();
-			rotX.fromAngleNormalAxis(FastMath.HALF_PI, Vector3f.UNIT_X);
-
-			final Matrix3f rotY = new Matrix3f();
-			rotY.fromAngleAxis(0.588f, Vector3f.UNIT_Y);
-
-			chassisShape.addChildShape(rf_lb, Vector3f.ZERO, rotY.mult(rotX));
-
-			rotY.fromAngleAxis(-0.588f, Vector3f.UNIT_Y);
-
-			chassisShape.addChildShape(lf_rb, Vector3f.ZERO, rotY.mult(rotX));
-
-			final Matrix3f rotZ = new Matrix3f();
-			rotZ.fromAngleNormalAxis(FastMath.HALF_PI, Vector3f.UNIT_Z);
-
-			chassisShape.addChildShape(lm_rm, Vector3f.ZERO, rotZ);
-
-			return chassisShape;
-		}
-
-		public CollisionShape createShoulderShape() {
-			final CompoundCollisionShape epauleShape = new CompoundCollisionShape();
-			epauleShape.addChildShape(new BoxCollisionShape(new Vector3f(0.35f, .35f, 0.65f)), new Vector3f(
-					0, 0, 0.65f));
-			return epauleShape;
-		}
-
-		public CollisionShape createArmShape() {
-			final CompoundCollisionShape armShape = new CompoundCollisionShape();
-			final BoxCollisionShape box = new BoxCollisionShape(new Vector3f(.25f, 2.3f, 1f));
-
-			final Matrix3f rot = Matrix3f.IDENTITY;
-			rot.fromAngleAxis((FastMath.PI / 9) * 1, Vector3f.UNIT_X.mult(-1));
-			armShape.addChildShape(box, new Vector3f(.5f, 2.3f, .0f));
-			return armShape;
-		}
-
-		public CollisionShape createHandShape() {
-			final CompoundCollisionShape handShape = new CompoundCollisionShape();
-			handShape.addChildShape(new CapsuleCollisionShape(.5f, 11.2f), new Vector3f(.5f, -2.9f, .5f));
-			return handShape;
-		}
-	}
-}
+package net.isammoc.hexapod;
+
+import java.util.Arrays;
+
+import net.isammoc.hexapod.HexapodVelocitiesHandler.DIRECTION;
+import net.isammoc.hexapod.events.ControlEvent;
+import net.isammoc.hexapod.kinematics.LegGeometry;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.bullet.joints.HingeJoint;
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+
+/**
+ * Physical model of the hexapod. Once added to a physics space, it must also
+ * be registered as its tick listener, so that the joints are controlled once
+ * per physics substep, whatever the frame rate:
+ * 
+ * <pre>
+ * space.addAll(hexapod);
+ * space.addTickListener(hexapod);
+ * </pre>
+ */
+public class HexapodNode extends Node implements WantedAnglesAware, PhysicsTickListener {
+	/** Default friction of the parts of the hexapod. */
+	public static final float FLOOR_FRICTION = 10000f;
+	private static final float MASS_BASE = 50f;
+	private static final float MASS_SHOULDER = 5f;
+	private static final float MASS_ARM = 5f;
+	private static final float MASS_HAND = 10f;
+	/** Default maximum impulse of the motors. */
+	public static final float MOTOR_IMPULSE = 5f;
+	/** Maximum velocity of the motors, in radians per second. */
+	public static final float MOTOR_VELOCITY = 2f;
+	/** A joint closer than this to its wanted angle does not move. */
+	private static final float SETTLED_ERROR = FastMath.PI / 80;
+	/** A joint closer than this to its wanted angle is braked. */
+	private static final float HELD_ERROR = FastMath.PI / 180;
+	private static final int ALL_JOINTS = (1 << HexapodServo.JOINT_COUNT) - 1;
+
+	private final HexapodVelocitiesHandler velocities = new HexapodVelocitiesHandler();
+	private final float friction;
+	private final float motorImpulse;
+	private final RigidBodyControl baseControl;
+	private volatile JointController controller;
+
+	/** Joints of the hexapod, indexed by servo ordinal. */
+	private final HingeJoint[] joints = new HingeJoint[HexapodServo.JOINT_COUNT];
+
+	/** Model for joints */
+	private final JointState wantedAngles = new JointState();
+
+	/** Wanted angles seen by the controller, to reset it when they change. */
+	private final JointState controlledAngles = new JointState();
+
+	/** Hinge angles, read once per tick. */
+	private final JointState hingeAngles = new JointState();
+
+	/** Velocities last given to the motors, NaN until the first tick. */
+	private final float[] motorVelocities = new float[HexapodServo.JOINT_COUNT];
+
+	/**
+	 * Joints braked on their wanted angle, bit {@code i} for the joint of servo
+	 * ordinal {@code i}, until pushed further than {@link #SETTLED_ERROR}.
+	 */
+	private int held;
+
+	/** Index of the hexapod, reported by its events. */
+	private int robot = -1;
+
+	/** Number of physics ticks so far. */
+	private long ticks;
+
+	/** Angles for model equals 0. */
+	private final JointState zeroAngles = new JointState();
+
+	/** Hexapod shape factory. */
+	private final HexapodShapeFactory shapeFactory = new HexapodShapeFactory();
+
+	public HexapodNode() {
+		this(FLOOR_FRICTION, MOTOR_IMPULSE);
+	}
+
+	/**
+	 * Creates a hexapod with a {@link BangBangController}.
+	 * 
+	 * @see #HexapodNode(float, float, JointController)
+	 */
+	public HexapodNode(final float friction, final float motorImpulse) {
+		this(friction, motorImpulse, new BangBangController());
+	}
+
+	/**
+	 * @param friction
+	 *            friction of the parts of the hexapod.
+	 * @param motorImpulse
+	 *            maximum impulse of the motors.
+	 * @param controller
+	 *            control law of the motors, for this hexapod only.
+	 */
+	public HexapodNode(final float friction, final float motorImpulse, final JointController controller) {
+		super("hexapod");
+		this.friction = friction;
+		this.motorImpulse = motorImpulse;
+		this.controller = controller;
+
+		final RigidBodyControl baseControl = new RigidBodyControl(this.shapeFactory.createBaseShape(),
+				MASS_BASE);
+		final Node baseNode = new Node("base");
+		baseNode.addControl(baseControl);
+		this.baseControl = baseControl;
+		baseNode.setName("base");
+		this.attachChild(baseNode);
+
+		this.createLeg(baseControl, HexapodLeg.LEFT_FRONT);
+		this.createLeg(baseControl, HexapodLeg.LEFT_MIDDLE);
+		this.createLeg(baseControl, HexapodLeg.LEFT_REAR);
+		this.createLeg(baseControl, HexapodLeg.RIGHT_FRONT);
+		this.createLeg(baseControl, HexapodLeg.RIGHT_MIDDLE);
+		this.createLeg(baseControl, HexapodLeg.RIGHT_REAR);
+
+		for (int i = 0; i < HexapodServo.JOINT_COUNT; i++) {
+			this.zeroAngles.set(i, this.joints[i].getHingeAngle() % FastMath.TWO_PI);
+		}
+		Arrays.fill(this.motorVelocities, Float.NaN);
+	}
+
+	/**
+	 * Helper to place a node. Delete collision between hexapod parts.
+	 * 
+	 * @param transform
+	 *            Location and orientation of the node.
+	 * @param node
+	 *            node to place.
+	 */
+	private void placeNode(final Transform transform, final RigidBodyControl node) {
+		node.setCollisionGroup(PhysicsCollisionObject.COLLISION_GROUP_02);
+		node.setCollideWithGroups(PhysicsCollisionObject.COLLISION_GROUP_01);
+		node.setFriction(this.friction);
+		node.setPhysicsLocation(transform.getTranslation());
+		node.setPhysicsRotation(transform.getRotation().toRotationMatrix());
+	}
+
+	/**
+	 * Create a leg and attach it to the base.
+	 * 
+	 * @param base
+	 *            The hexapod base node.
+	 * @param leg
+	 *            the enum of the leg to create, placed as in
+	 *            {@link LegGeometry}.
+	 */
+	private void createLeg(final RigidBodyControl base, final HexapodLeg leg) {
+		final Vector3f pivotBase = new Vector3f(LegGeometry.getPivotX(leg), LegGeometry.getPivotY(leg),
+				LegGeometry.getPivotZ(leg));
+		final Transform transform = new Transform(pivotBase, new Quaternion().fromAngleAxis(
+				LegGeometry.getMountAngle(leg), Vector3f.UNIT_Y));
+
+		final RigidBodyControl shoulderControl = this.createShoulder(leg, transform);
+
+		final HingeJoint shoulder = new HingeJoint(base, shoulderControl, pivotBase, Vector3f.ZERO,
+				Vector3f.UNIT_Y, Vector3f.UNIT_Y);
+		shoulder.enableMotor(true, 0, 1);
+		shoulder.setCollisionBetweenLinkedBodys(false);
+		this.joints[HexapodServo.jointIndex(leg, HexapodArticulation.SHOULDER)] = shoulder;
+	}
+
+	/**
+	 * Create the shoulder for the specified leg.
+	 * 
+	 * @param leg
+	 *            Enumeration of the shoulder to create.
+	 * @param transform
+	 *            Location and orientation combined.
+	 * @return the node.
+	 */
+	private RigidBodyControl createShoulder(final HexapodLeg leg, final Transform transform) {
+		final RigidBodyControl shoulderControl = new RigidBodyControl(
+				this.shapeFactory.createShoulderShape(), MASS_SHOULDER);
+		final Node shoulderNode = new Node("shoulder");
+		shoulderNode.addControl(shoulderControl);
+		this.placeNode(transform, shoulderControl);
+		this.attachChild(shoulderNode);
+
+		final RigidBodyControl armControl = this.createArm(leg,
+				new Transform(new Vector3f(0, 0, 2f)).combineWithParent(transform));
+
+		final HingeJoint elbow = new HingeJoint(shoulderControl, armControl, new Vector3f(0, 0,
+				LegGeometry.ELBOW_OFFSET), Vector3f.ZERO, Vector3f.UNIT_X, Vector3f.UNIT_X);
+		elbow.setCollisionBetweenLinkedBodys(false);
+		elbow.enableMotor(true, 0, 1);
+		this.joints[HexapodServo.jointIndex(leg, HexapodArticulation.ELBOW)] = elbow;
+
+		return shoulderControl;
+	}
+
+	private RigidBodyControl createArm(final HexapodLeg leg, final Transform transform) {
+		final RigidBodyControl armControl = new RigidBodyControl(this.shapeFactory.createArmShape(), MASS_ARM);
+		final Node armNode = new Node("arm");
+		armNode.addControl(armControl);
+		this.placeNode(transform, armControl);
+		this.attachChild(armNode);
+
+		final RigidBodyControl handControl = this.createHand(new Transform(new Vector3f(2,
+				LegGeometry.ARM_LENGTH, 0)).combineWithParent(transform));
+		final Quaternion quaternion = new Quaternion();
+		quaternion.fromAngleAxis(FastMath.PI / 3, Vector3f.UNIT_X);
+
+		final HingeJoint wrist = new HingeJoint(armControl, handControl, new Vector3f(0.25f,
+				LegGeometry.ARM_LENGTH, 0.25f), Vector3f.ZERO, Vector3f.UNIT_X, Vector3f.UNIT_X);
+		wrist.enableMotor(true, 0, 1);
+		wrist.setCollisionBetweenLinkedBodys(false);
+		this.joints[HexapodServo.jointIndex(leg, HexapodArticulation.WRIST)] = wrist;
+
+		return armControl;
+	}
+
+	private RigidBodyControl createHand(final Transform transform) {
+		final RigidBodyControl handControl = new RigidBodyControl(this.shapeFactory.createHandShape(),
+				MASS_HAND);
+		final Node handNode = new Node("hand");
+		handNode.addControl(handControl);
+		this.placeNode(transform, handControl);
+		this.attachChild(handNode);
+
+		return handControl;
+	}
+
+	/**
+	 * @return the wanted angle of {@code joint} in the frame of its hinge,
+	 *         taken on the same turn as {@code current}.
+	 */
+	private float getWantedHingeAngle(final int joint, final float current) {
+		float wantedAngle = (this.zeroAngles.get(joint) + this.wantedAngles.get(joint)) % FastMath.TWO_PI;
+		if (current - wantedAngle > FastMath.PI) {
+			wantedAngle += FastMath.TWO_PI;
+		}
+
+		if (wantedAngle - current > FastMath.PI) {
+			wantedAngle -= FastMath.TWO_PI;
+		}
+		return wantedAngle;
+	}
+
+	/**
+	 * Drive the motors toward the wanted angles, before each physics substep.
+	 * <p>
+	 * The hinge angles are read once, then a motor is only updated when its
+	 * velocity changes. A joint on its wanted angle is braked at velocity 0,
+	 * so that once all of them are, bullet lets the hexapod sleep; a sleeping
+	 * hexapod without new wanted angles costs a single check per tick. The
+	 * control of an awake hexapod is a {@link ControlEvent}.
+	 * 
+	 * @param space
+	 *            the physics space of the hexapod.
+	 * @param tpf
+	 *            the duration of the substep, the accuracy of the space.
+	 */
+	@Override
+	public void prePhysicsTick(final PhysicsSpace space, final float tpf) {
+		final ControlEvent event = new ControlEvent();
+		event.begin();
+		final long tick = this.ticks++;
+		final JointController control = this.controller;
+		boolean commanded = false;
+		for (int i = 0; i < HexapodServo.JOINT_COUNT; i++) {
+			final float wanted = this.wantedAngles.get(i);
+			if (wanted != this.controlledAngles.get(i)) {
+				this.controlledAngles.set(i, wanted);
+				this.held &= ~(1 << i);
+				control.reset(i);
+				this.joints[i].getBodyA().activate();
+				this.joints[i].getBodyB().activate();
+				commanded = true;
+			}
+		}
+		if (!commanded && (this.held == ALL_JOINTS) && !this.baseControl.isActive()) {
+			return;
+		}
+
+		for (int i = 0; i < HexapodServo.JOINT_COUNT; i++) {
+			this.hingeAngles.set(i, this.joints[i].getHingeAngle() % FastMath.TWO_PI);
+		}
+
+		for (int i = 0; i < HexapodServo.JOINT_COUNT; i++) {
+			final int bit = 1 << i;
+			final float current = this.hingeAngles.get(i);
+			final float error = this.getWantedHingeAngle(i, current) - current;
+			final float magnitude = Math.abs(error);
+			if (((this.held & bit) != 0) && (magnitude >= SETTLED_ERROR)) {
+				// Pushed away from its wanted angle
+				this.held &= ~bit;
+				control.reset(i);
+			}
+
+			final float velocity;
+			if ((this.held & bit) != 0) {
+				velocity = 0;
+			} else if (magnitude < HELD_ERROR) {
+				this.held |= bit;
+				velocity = 0;
+			} else {
+				velocity = control.control(i, error, tpf);
+			}
+			if (velocity != this.motorVelocities[i]) {
+				this.motorVelocities[i] = velocity;
+				this.joints[i].enableMotor(true, velocity, this.motorImpulse);
+			}
+
+			if (magnitude < SETTLED_ERROR) {
+				this.velocities.setVelocity(i, DIRECTION.NONE);
+			} else {
+				this.velocities.setVelocity(i, velocity > 0 ? DIRECTION.FORWARD : DIRECTION.BACKWARD);
+			}
+		}
+		this.velocities.fireTransitions();
+		if (event.shouldCommit()) {
+			event.robot = this.robot;
+			event.step = tick;
+			event.movingJoints = Integer.bitCount(~this.held & ALL_JOINTS);
+			event.commit();
+		}
+	}
+
+	@Override
+	public void physicsTick(final PhysicsSpace space, final float tpf) {
+		// Nothing to do after a substep
+	}
+
+	/**
+	 * @param joint
+	 *            ordinal of the servo of the joint.
+	 * @return the angle of the joint at the last physics tick, in the frame of
+	 *         the wanted angles, between -PI and PI.
+	 */
+	public float getJointAngle(final int joint) {
+		float angle = (this.hingeAngles.get(joint) - this.zeroAngles.get(joint)) % FastMath.TWO_PI;
+		if (angle > FastMath.PI) {
+			angle -= FastMath.TWO_PI;
+		} else if (angle < -FastMath.PI) {
+			angle += FastMath.TWO_PI;
+		}
+		return angle;
+	}
+
+	/**
+	 * @param joint
+	 *            ordinal of the servo of the joint.
+	 */
+	public float getWantedAngle(final int joint) {
+		return this.wantedAngles.get(joint);
+	}
+
+	/** @return the index of the hexapod, -1 if unknown. */
+	public int getRobot() {
+		return this.robot;
+	}
+
+	/**
+	 * @param robot
+	 *            index of the hexapod in the simulation, reported by its
+	 *            events.
+	 */
+	public void setRobot(final int robot) {
+		this.robot = robot;
+	}
+
+	public JointController getController() {
+		return this.controller;
+	}
+
+	/**
+	 * Change the control law of the motors, from the next tick.
+	 * 
+	 * @param controller
+	 *            for this hexapod only.
+	 */
+	public void setController(final JointController controller) {
+		this.controller = controller;
+	}
+
+	/**
+	 * Set a wanted angle, applied from the next physics tick; may be called
+	 * from any thread.
+	 */
+	@Override
+	public void setWantedAngle(final HexapodLeg leg, final HexapodArticulation articulation, final float value) {
+		this.wantedAngles.set(HexapodServo.jointIndex(leg, articulation), value);
+	}
+
+	@Override
+	public void setLocalTransform(final Transform t) {
+		super.setLocalTransform(t);
+
+		for (final Spatial child : this.getChildren()) {
+			final RigidBodyControl control = child.getControl(RigidBodyControl.class);
+			control.setPhysicsLocation(control.getPhysicsLocation().add(t.getTranslation()));
+			control.setPhysicsRotation(control.getPhysicsRotation().mult(t.getRotation()));
+			child.setLocalTransform(child.getLocalTransform().combineWithParent(t));
+		}
+	}
+
+	/** @return the physics of the base, which carries the legs. */
+	public RigidBodyControl getBaseControl() {
+		return this.baseControl;
+	}
+
+	public boolean isMoving() {
+		return this.velocities.isMoving();
+	}
+
+	public boolean isMoving(final HexapodServo servo) {
+		return this.velocities.isMoving(servo);
+	}
+
+	/** @see HexapodVelocitiesHandler#getMovingMask() */
+	public int getMovingMask() {
+		return this.velocities.getMovingMask();
+	}
+
+	/**
+	 * Listen to the moving transitions of the joints, notified from
+	 * {@link #prePhysicsTick(PhysicsSpace, float)}.
+	 * 
+	 * @param listener
+	 */
+	public void addMotionListener(final HexapodMotionListener listener) {
+		this.velocities.addMotionListener(listener);
+	}
+
+	public void removeMotionListener(final HexapodMotionListener listener) {
+		this.velocities.removeMotionListener(listener);
+	}
+
+	private static class HexapodShapeFactory {
+		public CollisionShape createBaseShape() {
+			final CompoundCollisionShape chassisShape = new CompoundCollisionShape();
+			final CapsuleCollisionShape rf_lb = new CapsuleCollisionShape(.3f, 10.81f);
+			final CapsuleCollisionShape lf_rb = new CapsuleCollisionShape(.3f, 10.81f);
+			final CapsuleCollisionShape lm_rm = new CapsuleCollisionShape(.3f, 7.6f);
+
+			final Matrix3f rotX = new Matrix3f();
+			rotX.fromAngleNormalAxis(FastMath.HALF_PI, Vector3f.UNIT_X);
+
+			final Matrix3f rotY = new Matrix3f();
+			rotY.fromAngleAxis(0.588f, Vector3f.UNIT_Y);
+
+			chassisShape.addChildShape(rf_lb, Vector3f.ZERO, rotY.mult(rotX));
+
+			rotY.fromAngleAxis(-0.588f, Vector3f.UNIT_Y);
+
+			chassisShape.addChildShape(lf_rb, Vector3f.ZERO, rotY.mult(rotX));
+
+			final Matrix3f rotZ = new Matrix3f();
+			rotZ.fromAngleNormalAxis(FastMath.HALF_PI, Vector3f.UNIT_Z);
+
+			chassisShape.addChildShape(lm_rm, Vector3f.ZERO, rotZ);
+
+			return chassisShape;
+		}
+
+		public CollisionShape createShoulderShape() {
+			final CompoundCollisionShape epauleShape = new CompoundCollisionShape();
+			epauleShape.addChildShape(new BoxCollisionShape(new Vector3f(0.35f, .35f, 0.65f)), new Vector3f(
+					0, 0, 0.65f));
+			return epauleShape;
+		}
+
+		public CollisionShape createArmShape() {
+			final CompoundCollisionShape armShape = new CompoundCollisionShape();
+			final BoxCollisionShape box = new BoxCollisionShape(new Vector3f(.25f, 2.3f, 1f));
+
+			final Matrix3f rot = Matrix3f.IDENTITY;
+			rot.fromAngleAxis((FastMath.PI / 9) * 1, Vector3f.UNIT_X.mult(-1));
+			armShape.addChildShape(box, new Vector3f(.5f, 2.3f, .0f));
+			return armShape;
+		}
+
+		public CollisionShape createHandShape() {
+			final CompoundCollisionShape handShape = new CompoundCollisionShape();
+			handShape.addChildShape(new CapsuleCollisionShape(.5f, 11.2f), new Vector3f(.5f, -2.9f, .5f));
+			return handShape;
+		}
+	}
+}
@@ -1,82 +1,146 @@
-package net.isammoc.hexapod;
-
-import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
-import java.util.EnumMap;
-import java.util.Map;
-
-public class HexapodVelocitiesHandler {
-	private static final float MOTOR_VELOCITY = 1f;
-	public static final String PROPERTY_MOVING = "moving";
-	private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
-
-	public enum DIRECTION {
-		FORWARD,
-		BACKWARD,
-		NONE
-	}
-
-	/** Model for joints */
-	private Map<HexapodLeg, Map<HexapodArticulation, Float>> velocities;
-	{
-		this.velocities = new EnumMap<HexapodLeg, Map<HexapodArticulation, Float>>(HexapodLeg.class);
-		for (final HexapodLeg leg : HexapodLeg.values()) {
-			this.velocities.put(leg, new EnumMap<HexapodArticulation, Float>(HexapodArticulation.class));
-			for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-				this.velocities.get(leg).put(articulation, 0f);
-			}
-		}
-	}
-
-	public void setVelocity(final HexapodLeg leg, final HexapodArticulation articulation,
-			final DIRECTION direction) {
-		final boolean old = this.isMoving();
-		final float value;
-		switch (direction) {
-			case FORWARD:
-				value = MOTOR_VELOCITY;
-				break;
-			case BACKWARD:
-				value = MOTOR_VELOCITY;
-				break;
-			case NONE:
-			default:
-				value = 0f;
-		}
-		this.velocities.get(leg).put(articulation, value);
-		this.pcs.firePropertyChange(PROPERTY_MOVING, old, this.isMoving());
-	}
-
-	public float getVelocityValue(final HexapodLeg leg, final HexapodArticulation articulation) {
-		return this.velocities.get(leg).get(articulation);
-	}
-
-	public boolean isMoving() {
-		boolean moving = false;
-		ext: for (final HexapodLeg leg : HexapodLeg.values()) {
-			for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-				if (this.velocities.get(leg).get(articulation) != 0f) {
-					moving = true;
-					break ext;
-				}
-			}
-		}
-		return moving;
-	}
-
-	public void addPropertyChangeListener(final PropertyChangeListener listener) {
-		this.pcs.addPropertyChangeListener(listener);
-	}
-
-	public void removePropertyChangeListener(final PropertyChangeListener listener) {
-		this.pcs.removePropertyChangeListener(listener);
-	}
-
-	public void addPropertyChangeListener(final String propertyName, final PropertyChangeListener listener) {
-		this.pcs.addPropertyChangeListener(propertyName, listener);
-	}
-
-	public void removePropertyChangeListener(final String propertyName, final PropertyChangeListener listener) {
-		this.pcs.removePropertyChangeListener(propertyName, listener);
-	}
-}
+package net.isammoc.hexapod;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Velocities of the joints of a hexapod, and whether each of them moves.
+ * <p>
+ * Moving joints are held in a bit mask, bit {@code i} for the joint of servo
+ * ordinal {@code i}: updating a joint costs a bit operation, and
+ * {@link #fireTransitions()}, called once per tick, only notifies the
+ * listeners of the joints whose bit changed since the previous tick.
+ * <p>
+ * Velocities are set from the physics ticks of the hexapod, the thread which
+ * also fires the transitions; the mask may be read from any thread, and is
+ * updated with a compare and set should another thread set a velocity.
+ */
+public class HexapodVelocitiesHandler {
+	private static final float MOTOR_VELOCITY = 1f;
+	private static final HexapodMotionListener[] NO_LISTENERS = new HexapodMotionListener[0];
+
+	public enum DIRECTION {
+		FORWARD,
+		BACKWARD,
+		NONE
+	}
+
+	/** Model for joints */
+	private final JointState velocities = new JointState();
+
+	/** Joints moving now. */
+	private final AtomicInteger moving = new AtomicInteger();
+	/** Joints moving at the previous call to {@link #fireTransitions()}. */
+	private int reported;
+
+	private volatile HexapodMotionListener[] listeners = NO_LISTENERS;
+
+	public void setVelocity(final HexapodLeg leg, final HexapodArticulation articulation,
+			final DIRECTION direction) {
+		this.setVelocity(HexapodServo.jointIndex(leg, articulation), direction);
+	}
+
+	/**
+	 * @param joint
+	 *            ordinal of the servo of the joint.
+	 * @param direction
+	 */
+	public void setVelocity(final int joint, final DIRECTION direction) {
+		final float value;
+		switch (direction) {
+			case FORWARD:
+				value = MOTOR_VELOCITY;
+				break;
+			case BACKWARD:
+				value = MOTOR_VELOCITY;
+				break;
+			case NONE:
+			default:
+				value = 0f;
+		}
+		this.velocities.set(joint, value);
+		final int bit = 1 << joint;
+		int current;
+		int next;
+		do {
+			current = this.moving.get();
+			next = value != 0f ? current | bit : current & ~bit;
+		} while ((next != current) && !this.moving.compareAndSet(current, next));
+	}
+
+	public float getVelocityValue(final HexapodLeg leg, final HexapodArticulation articulation) {
+		return this.velocities.get(leg, articulation);
+	}
+
+	public float getVelocityValue(final int joint) {
+		return this.velocities.get(joint);
+	}
+
+	public boolean isMoving() {
+		return this.moving.get() != 0;
+	}
+
+	public boolean isMoving(final HexapodServo servo) {
+		return (this.moving.get() & (1 << servo.ordinal())) != 0;
+	}
+
+	/**
+	 * @return the moving joints, bit {@code i} set for the joint of servo
+	 *         ordinal {@code i}.
+	 */
+	public int getMovingMask() {
+		return this.moving.get();
+	}
+
+	/**
+	 * Notify the listeners of the joints which started or settled since the
+	 * previous call, then of the hexapod if it settled. Does nothing, and
+	 * allocates nothing, if no joint changed.
+	 * <p>
+	 * Must be called once per tick, always from the same thread.
+	 */
+	public void fireTransitions() {
+		final int current = this.moving.get();
+		final int changed = current ^ this.reported;
+		if (changed == 0) {
+			return;
+		}
+		this.reported = current;
+		final HexapodMotionListener[] listeners = this.listeners;
+		for (int bits = changed; bits != 0; bits &= bits - 1) {
+			final int joint = Integer.numberOfTrailingZeros(bits);
+			final HexapodServo servo = HexapodServo.fromJointIndex(joint);
+			final boolean started = (current & (1 << joint)) != 0;
+			for (final HexapodMotionListener listener : listeners) {
+				if (started) {
+					listener.servoStarted(servo);
+				} else {
+					listener.servoSettled(servo);
+				}
+			}
+		}
+		if (current == 0) {
+			for (final HexapodMotionListener listener : listeners) {
+				listener.robotSettled();
+			}
+		}
+	}
+
+	public synchronized void addMotionListener(final HexapodMotionListener listener) {
+		final HexapodMotionListener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+		this.listeners = listeners;
+	}
+
+	public synchronized void removeMotionListener(final HexapodMotionListener listener) {
+		for (int i = 0; i < this.listeners.length; i++) {
+			if (this.listeners[i] == listener) {
+				final HexapodMotionListener[] listeners = new HexapodMotionListener[this.listeners.length - 1];
+				System.arraycopy(this.listeners, 0, listeners, 0, i);
+				System.arraycopy(this.listeners, i + 1, listeners, i, listeners.length - i);
+				this.listeners = listeners;
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package net.isammoc.hexapod;
+
+/**
+ * Control law of the motors of the joints of a hexapod.
+ * <p>
+ * A controller is called for every joint on every tick, from the thread of
+ * the simulation, and may keep state per joint. A controller belongs to a
+ * single hexapod.
+ */
+public interface JointController {
+	/**
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 * @param error
+	 *            wanted angle minus current angle, between -PI and PI.
+	 * @param tpf
+	 *            seconds since the previous tick.
+	 * @return the velocity of the motor of {@code joint}, in radians per
+	 *         second.
+	 */
+	float control(final int joint, final float error, final float tpf);
+
+	/**
+	 * Forget the state of {@code joint}, as its wanted angle changed. Called
+	 * from the thread of the simulation, before {@link #control}.
+	 * 
+	 * @param joint
+	 *            index of the joint, as in {@link HexapodServo#jointIndex}.
+	 */
+	void reset(final int joint);
+}
@@ -0,0 +1,38 @@
+package net.isammoc.hexapod;
+
+import java.util.Locale;
+
+/**
+ * Control laws a hexapod can be built with.
+ */
+public enum JointControllerType {
+	/** {@link BangBangController} */
+	BANG_BANG {
+		@Override
+		public JointController create() {
+			return new BangBangController();
+		}
+	},
+	/** {@link PidController}, with its default gains. */
+	PID {
+		@Override
+		public JointController create() {
+			return new PidController();
+		}
+	};
+
+	/** @return a new controller, for one hexapod. */
+	public abstract JointController create();
+
+	/**
+	 * @param name
+	 *            name of a type, case and dashes ignored, as
+	 *            <code>bang-bang</code>.
+	 * @return the type.
+	 * @throws IllegalArgumentException
+	 *             If no type has this name.
+	 */
+	public static JointControllerType parse(final String name) throws IllegalArgumentException {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+	}
+}
@@ -0,0 +1,7 @@
+package net.isammoc.hexapod;
+
+import net.isammoc.hexapod.communication.ILegMessage;
+
+public interface LegMessageAware {
+	void setMessage(final ILegMessage msg);
+}
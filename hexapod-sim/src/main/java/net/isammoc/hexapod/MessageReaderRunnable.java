@@ -1,101 +1,173 @@
-package net.isammoc.hexapod;
-
-import gnu.io.CommPort;
-import gnu.io.CommPortIdentifier;
-import gnu.io.SerialPort;
-
-import java.io.InterruptedIOException;
-import java.io.OutputStream;
-import java.net.ProtocolException;
-import java.util.Map;
-
-import javax.swing.SpinnerNumberModel;
-
-import net.isammoc.hexapod.communication.HexapodMessageInputStream;
-import net.isammoc.hexapod.communication.LegMessage;
-
-public class MessageReaderRunnable implements Runnable {
-	private final String portName;
-	private final Map<HexapodLeg, Map<HexapodArticulation, SpinnerNumberModel>> model;
-	private boolean waiting;
-
-	private static final int ACK = 49; // '1' ASCII
-	private static final int NACK = 48; // '0' ASCII
-
-	public MessageReaderRunnable(final String portName,
-			final Map<HexapodLeg, Map<HexapodArticulation, SpinnerNumberModel>> model) {
-		this.portName = portName;
-		this.model = model;
-	}
-
-	@Override
-	public void run() {
-		try {
-			SerialPort serial;
-			final CommPortIdentifier portIdentifier = CommPortIdentifier.getPortIdentifier(this.portName);
-			final CommPort commPort = portIdentifier.open(HexapodFrame.class.getName(), 2000);
-			try {
-				if (!(commPort instanceof SerialPort)) {
-					commPort.close();
-					throw new ClassCastException("portName '" + this.portName
-							+ "' does not refer to a serial port");
-				}
-
-				serial = (SerialPort) commPort;
-				serial.setSerialPortParams(9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1,
-						SerialPort.PARITY_NONE);
-				final HexapodMessageInputStream in = new HexapodMessageInputStream(serial.getInputStream());
-				final OutputStream out = serial.getOutputStream();
-				while (true) {
-					System.out.print("Lecture message...");
-					try {
-						final LegMessage readMessage = in.readMessage();
-						this.waiting = true;
-						for (final HexapodLeg leg : HexapodLeg.values()) {
-							for (final HexapodArticulation articulation : HexapodArticulation.values()) {
-								// TODO
-								this.model.get(leg).get(articulation)
-										.setValue(readMessage.getUnsignedByte(leg, articulation));
-							}
-						}
-						while (in.read() != -1) {
-						}
-						synchronized (this) {
-							if (this.waiting) {
-								System.out.print("Attente de fin d'action...");
-								this.wait(5000);
-							}
-							if (this.waiting) {
-								System.out.println("Failed");
-								out.write(NACK);
-							} else {
-								System.out.println("OK");
-								out.write(ACK);
-							}
-							out.flush();
-						}
-					} catch (final ProtocolException e) {
-						System.out.println("Failed");
-						out.write(NACK);
-					}
-				}
-			} finally {
-				commPort.close();
-			}
-		} catch (final InterruptedIOException e) {
-			// Nothing... only finish thread.
-			e.printStackTrace();
-		} catch (final Exception e) {
-			e.printStackTrace();
-		}
-	}
-
-	public void notifyHexapodStopped() {
-		if (this.waiting) {
-			synchronized (this) {
-				this.waiting = false;
-				this.notifyAll();
-			}
-		}
-	}
-}
+package net.isammoc.hexapod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import net.isammoc.hexapod.communication.HexapodMessageInputStream;
+import net.isammoc.hexapod.communication.HexapodProtocol;
+import net.isammoc.hexapod.management.HexapodMBeans;
+import net.isammoc.hexapod.management.RobotLinkMonitor;
+import net.isammoc.hexapod.transport.HexapodTransport;
+import net.isammoc.hexapod.transport.HexapodTransports;
+
+/**
+ * Serve a single hexapod over a blocking transport, such as a serial port.
+ * <p>
+ * The reading thread hands each chunk of bytes read to a {@link RobotSession},
+ * which decodes them and measures the link. Acknowledgements are written as soon as a pose
+ * settles or times out, by a timer thread, so that the reading thread never
+ * waits for the hexapod: in {@link HexapodProtocol#PIPELINED} mode the
+ * controller may send the next poses meanwhile.
+ * <p>
+ * While running, the link is registered as a {@link RobotLinkMonitor} MBean.
+ */
+public class MessageReaderRunnable implements Runnable {
+	private final String address;
+	private final RobotSession session;
+	private HexapodTransport transport;
+
+	/** Timer polling the session, guarded by the session. */
+	private ScheduledExecutorService timer;
+	private ScheduledFuture<?> nextPoll;
+	private WritableByteChannel out;
+
+	private final Runnable pollTask = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (MessageReaderRunnable.this.session) {
+				try {
+					MessageReaderRunnable.this.poll();
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	};
+
+	/**
+	 * @param address
+	 *            serial port name, <code>tcp://[host]:port</code> or
+	 *            <code>unix:path</code> to wait for a controller on.
+	 * @param target
+	 *            Receives the poses.
+	 * @param protocol
+	 *            Acknowledgement protocol of the controller.
+	 */
+	public MessageReaderRunnable(final String address, final LegMessageAware target,
+			final HexapodProtocol protocol) {
+		this.address = address;
+		this.session = new RobotSession(0, target, protocol, HexapodMessageInputStream.CHUNK_SIZE);
+	}
+
+	/**
+	 * @param transport
+	 *            an opened transport, closed when the runnable ends.
+	 * @param target
+	 *            Receives the poses.
+	 * @param protocol
+	 *            Acknowledgement protocol of the controller.
+	 */
+	public MessageReaderRunnable(final HexapodTransport transport, final LegMessageAware target,
+			final HexapodProtocol protocol) {
+		this(transport.getName(), target, protocol);
+		this.transport = transport;
+	}
+
+	public RobotSession getSession() {
+		return this.session;
+	}
+
+	@Override
+	public void run() {
+		final ObjectName mbeanName = HexapodMBeans.register(new RobotLinkMonitor(this.session), "RobotLink",
+				this.address);
+		try {
+			if (this.transport == null) {
+				this.transport = HexapodTransports.accept(this.address, HexapodFrame.class.getName());
+			}
+			try {
+				final InputStream in = this.transport.getInputStream();
+				synchronized (this.session) {
+					this.timer = Executors.newSingleThreadScheduledExecutor();
+					this.out = Channels.newChannel(this.transport.getOutputStream());
+					this.session.open(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								MessageReaderRunnable.this.timer.execute(MessageReaderRunnable.this.pollTask);
+							} catch (final RejectedExecutionException e) {
+								// Stopped
+							}
+						}
+					});
+				}
+				final byte[] chunk = new byte[HexapodMessageInputStream.CHUNK_SIZE];
+				final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+				int len;
+				while ((len = in.read(chunk)) >= 0) {
+					final long received = System.nanoTime();
+					if (Thread.interrupted()) {
+						throw new InterruptedIOException();
+					}
+					synchronized (this.session) {
+						buffer.clear();
+						buffer.limit(len);
+						this.session.decode(buffer, received);
+						this.poll();
+					}
+				}
+			} finally {
+				synchronized (this.session) {
+					this.session.close();
+					if (this.timer != null) {
+						this.timer.shutdownNow();
+					}
+				}
+				this.transport.close();
+			}
+		} catch (final InterruptedIOException e) {
+			// Nothing... only finish thread.
+			e.printStackTrace();
+		} catch (final Exception e) {
+			e.printStackTrace();
+		} finally {
+			HexapodMBeans.unregister(mbeanName);
+		}
+	}
+
+	/**
+	 * Poll the session, write its acknowledgements and schedule the next poll
+	 * at its deadline. Called with the lock of the session.
+	 */
+	private void poll()
+			throws IOException {
+		final long next = this.session.poll(System.nanoTime());
+		this.session.flush(this.out);
+		if (this.nextPoll != null) {
+			this.nextPoll.cancel(false);
+			this.nextPoll = null;
+		}
+		if (next != Long.MAX_VALUE) {
+			this.nextPoll = this.timer.schedule(this.pollTask, next - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	public void notifyHexapodStarted() {
+		this.session.notifyHexapodStarted();
+	}
+
+	public void notifyHexapodStopped() {
+		this.session.notifyHexapodStopped();
+	}
+}
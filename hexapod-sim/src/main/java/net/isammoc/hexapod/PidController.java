@@ -0,0 +1,98 @@
+package net.isammoc.hexapod;
+
+/**
+ * Proportional, integral and derivative control of the motor velocity, with
+ * gains per articulation.
+ * <p>
+ * As the motors follow a velocity, the proportional term alone brings a
+ * joint to its wanted angle exponentially, in about 1 / kp seconds, without
+ * the overshoot of a full speed approach; the integral term cancels the
+ * error left by the weight of the body, and is bounded to a quarter of the
+ * motor velocity so that it cannot wind up. The output is bounded to
+ * {@link HexapodNode#MOTOR_VELOCITY}.
+ * <p>
+ * The default gains are untuned: they are derived from the settle time
+ * above, and were never compared with the bang-bang controller in the
+ * physics. Tune them with <code>BatchSimulator --controller bang-bang,pid</code>
+ * before relying on them.
+ */
+public class PidController implements JointController {
+	/** Default proportional gain, per second. Untuned. */
+	public static final float DEFAULT_KP = 15f;
+	/** Default integral gain of the shoulders, which bear no weight. Untuned. */
+	public static final float DEFAULT_SHOULDER_KI = 1f;
+	/** Default integral gain of the elbows and wrists. Untuned. */
+	public static final float DEFAULT_KI = 4f;
+	/** Default derivative gain. Untuned. */
+	public static final float DEFAULT_KD = 0.05f;
+
+	private static final float MAX_INTEGRAL_VELOCITY = HexapodNode.MOTOR_VELOCITY / 4;
+
+	/** Articulation ordinal of each joint. */
+	private static final int[] ARTICULATIONS = new int[HexapodServo.JOINT_COUNT];
+	static {
+		for (int joint = 0; joint < HexapodServo.JOINT_COUNT; joint++) {
+			ARTICULATIONS[joint] = HexapodServo.fromJointIndex(joint).getArticulation().ordinal();
+		}
+	}
+
+	// Indexed by articulation ordinal
+	private final float[] kp = new float[HexapodArticulation.values().length];
+	private final float[] ki = new float[HexapodArticulation.values().length];
+	private final float[] kd = new float[HexapodArticulation.values().length];
+
+	// Indexed by joint
+	private final float[] integrals = new float[HexapodServo.JOINT_COUNT];
+	private final float[] lastErrors = new float[HexapodServo.JOINT_COUNT];
+	private final boolean[] primed = new boolean[HexapodServo.JOINT_COUNT];
+
+	/** Creates a controller with the default gains. */
+	public PidController() {
+		this.setGains(HexapodArticulation.SHOULDER, DEFAULT_KP, DEFAULT_SHOULDER_KI, DEFAULT_KD);
+		this.setGains(HexapodArticulation.ELBOW, DEFAULT_KP, DEFAULT_KI, DEFAULT_KD);
+		this.setGains(HexapodArticulation.WRIST, DEFAULT_KP, DEFAULT_KI, DEFAULT_KD);
+	}
+
+	/**
+	 * @param articulation
+	 * @param kp
+	 *            velocity per radian of error.
+	 * @param ki
+	 *            velocity per radian second of accumulated error.
+	 * @param kd
+	 *            velocity per radian per second of change of the error.
+	 */
+	public void setGains(final HexapodArticulation articulation, final float kp, final float ki, final float kd) {
+		this.kp[articulation.ordinal()] = kp;
+		this.ki[articulation.ordinal()] = ki;
+		this.kd[articulation.ordinal()] = kd;
+	}
+
+	@Override
+	public float control(final int joint, final float error, final float tpf) {
+		final int articulation = ARTICULATIONS[joint];
+		final float ki = this.ki[articulation];
+		float derivative = 0;
+		if (tpf > 0) {
+			if (this.primed[joint]) {
+				derivative = (error - this.lastErrors[joint]) / tpf;
+			}
+			if (ki > 0) {
+				final float limit = MAX_INTEGRAL_VELOCITY / ki;
+				this.integrals[joint] = Math.max(-limit, Math.min(limit, this.integrals[joint] + (error * tpf)));
+			}
+		}
+		this.lastErrors[joint] = error;
+		this.primed[joint] = true;
+
+		final float velocity = (this.kp[articulation] * error) + (ki * this.integrals[joint])
+				+ (this.kd[articulation] * derivative);
+		return Math.max(-HexapodNode.MOTOR_VELOCITY, Math.min(HexapodNode.MOTOR_VELOCITY, velocity));
+	}
+
+	@Override
+	public void reset(final int joint) {
+		this.integrals[joint] = 0;
+		this.primed[joint] = false;
+	}
+}
@@ -0,0 +1,61 @@
+package net.isammoc.hexapod;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.communication.LegMessage;
+
+/**
+ * Hand the latest pose over from a single producer thread, the reader of the
+ * frames, to a single consumer thread, such as the physics ticks.
+ * <p>
+ * A triple buffer: the producer copies each pose into its own buffer, then
+ * swaps it with the shared one; the consumer swaps its own buffer with the
+ * shared one when a pose was published since. Neither side waits nor
+ * allocates, the consumer always receives a whole pose, and the poses
+ * published between two deliveries are skipped.
+ */
+public class PoseMailbox implements LegMessageAware {
+	/** Flag of {@link #shared}, set while it holds an undelivered pose. */
+	private static final int FRESH = 4;
+
+	private final LegMessage[] buffers = { new LegMessage(), new LegMessage(), new LegMessage() };
+
+	/** Index of the buffer between the two threads, and {@link #FRESH}. */
+	private final AtomicInteger shared = new AtomicInteger(1);
+
+	/** Index of the buffer of the producer. */
+	private int back = 0;
+
+	/** Index of the buffer of the consumer. */
+	private int front = 2;
+
+	/**
+	 * Publish the servo bytes of {@code msg}, from the producer thread only.
+	 */
+	@Override
+	public void setMessage(final ILegMessage msg) {
+		final LegMessage buffer = this.buffers[this.back];
+		for (int i = 0; i < HexapodServo.JOINT_COUNT; i++) {
+			buffer.setUnsignedByte(i, msg.getUnsignedByte(i));
+		}
+		this.back = this.shared.getAndSet(this.back | FRESH) & ~FRESH;
+	}
+
+	/**
+	 * Give the latest pose to {@code target}, from the consumer thread only.
+	 * 
+	 * @param target
+	 *            must not keep the message, which is reused.
+	 * @return <code>false</code> if no pose was published since the previous
+	 *         delivery, {@code target} is then left unchanged.
+	 */
+	public boolean deliver(final LegMessageAware target) {
+		if ((this.shared.get() & FRESH) == 0) {
+			return false;
+		}
+		this.front = this.shared.getAndSet(this.front) & ~FRESH;
+		target.setMessage(this.buffers[this.front]);
+		return true;
+	}
+}
@@ -0,0 +1,318 @@
+package net.isammoc.hexapod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.communication.BasicMessage;
+import net.isammoc.hexapod.communication.FrameDecoder;
+import net.isammoc.hexapod.communication.FrameSink;
+import net.isammoc.hexapod.communication.HexapodProtocol;
+import net.isammoc.hexapod.communication.LegMessageView;
+import net.isammoc.hexapod.communication.LinkStatistics;
+import net.isammoc.hexapod.events.DecodeEvent;
+import net.isammoc.hexapod.trace.TraceDirection;
+import net.isammoc.hexapod.trace.TraceRecorder;
+
+/**
+ * Link between one simulated hexapod and its controller: the frame decoder of
+ * the connection, the poses waiting to be executed and the acknowledgements
+ * waiting to be written.
+ * <p>
+ * A pose is applied to the hexapod, then acknowledged once the hexapod
+ * stopped, or rejected if it is still moving after
+ * {@link #SETTLE_TIMEOUT_MILLIS}. Poses received while the hexapod moves are
+ * queued, up to {@link HexapodProtocol#DEFAULT_WINDOW}, and executed in order.
+ * Acknowledgements follow the {@link HexapodProtocol} of the session.
+ * <p>
+ * The session does no I/O by itself and never blocks: its owner feeds it with
+ * the received bytes, polls it when the hexapod stopped or a timeout expires,
+ * and writes the acknowledgements. A session is not thread safe: only
+ * {@link #notifyHexapodStarted()}, {@link #notifyHexapodStopped()} and the
+ * {@link LinkStatistics} may be used concurrently.
+ */
+public class RobotSession implements FrameSink {
+	public static final long SETTLE_TIMEOUT_MILLIS = 5000;
+
+	private static final long SETTLE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(SETTLE_TIMEOUT_MILLIS);
+	private static final int PENDING_CAPACITY = HexapodProtocol.DEFAULT_WINDOW;
+
+	private final int id;
+	private final LegMessageAware target;
+	private final HexapodProtocol protocol;
+	private final FrameDecoder decoder = new FrameDecoder(this);
+	private final LinkStatistics statistics = new LinkStatistics(this.decoder);
+	private final ByteBuffer pending = ByteBuffer.allocate(PENDING_CAPACITY * BasicMessage.MESSAGE_LENGTH);
+	private final LegMessageView pendingView = new LegMessageView();
+	private final ByteBuffer acks;
+	private volatile TraceRecorder recorder;
+
+	private int pendingHead;
+	private int pendingCount;
+	private boolean open;
+	/** <code>true</code> from applying a pose to its acknowledgement. */
+	private boolean executing;
+	private int executingSequence;
+	private long deadline;
+	/** {@link System#nanoTime()} of the reading of the bytes being decoded. */
+	private long receivedNanos;
+	/** {@link System#nanoTime()} of the execution, published by waiting. */
+	private long executedNanos;
+
+	/** Cleared by the render thread when the hexapod stops. */
+	private volatile boolean waiting;
+	/** Set by the render thread when the pose in execution starts moving. */
+	private volatile boolean moved;
+	private volatile Runnable wakeup;
+
+	/**
+	 * @param id
+	 *            Index of the hexapod.
+	 * @param target
+	 *            Receives the poses to execute.
+	 * @param protocol
+	 * @param readSize
+	 *            Maximum number of bytes decoded at once. A byte may at worst
+	 *            reject a frame, so this sizes the acknowledgement buffer.
+	 */
+	public RobotSession(final int id, final LegMessageAware target, final HexapodProtocol protocol,
+			final int readSize) {
+		this.id = id;
+		this.target = target;
+		this.protocol = protocol;
+		this.acks = ByteBuffer.allocate((readSize + PENDING_CAPACITY + 1) * protocol.getAckLength());
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public HexapodProtocol getProtocol() {
+		return this.protocol;
+	}
+
+	public FrameDecoder getDecoder() {
+		return this.decoder;
+	}
+
+	/** @return the counters and latencies of the link, live. */
+	public LinkStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * @return number of poses waiting for the one in execution; may be stale
+	 *         when read from another thread than the owner.
+	 */
+	public int getQueueDepth() {
+		return this.pendingCount;
+	}
+
+	/** @return <code>true</code> while a controller is connected. */
+	public boolean isOpen() {
+		return this.open;
+	}
+
+	/**
+	 * Start serving a controller.
+	 * 
+	 * @param wakeup
+	 *            Called from the render thread when the hexapod stops, so that
+	 *            the owner polls the session.
+	 */
+	public void open(final Runnable wakeup) {
+		this.wakeup = wakeup;
+		this.open = true;
+	}
+
+	/** Forget the controller and everything in flight with it. */
+	public void close() {
+		this.open = false;
+		this.wakeup = null;
+		this.decoder.reset();
+		this.pendingCount = 0;
+		this.acks.clear();
+		this.executing = false;
+		this.waiting = false;
+	}
+
+	/**
+	 * Decode the remaining bytes of {@code src}. Decoded poses are executed
+	 * or queued.
+	 * 
+	 * @param src
+	 * @throws IOException
+	 */
+	public void decode(final ByteBuffer src)
+			throws IOException {
+		this.decode(src, System.nanoTime());
+	}
+
+	/**
+	 * Decode the remaining bytes of {@code src}. Decoded poses are executed
+	 * or queued, within a {@link DecodeEvent}.
+	 * 
+	 * @param src
+	 * @param receivedNanos
+	 *            {@link System#nanoTime()} of the reading of the bytes, from
+	 *            which the decode latency is measured.
+	 * @throws IOException
+	 */
+	public void decode(final ByteBuffer src, final long receivedNanos)
+			throws IOException {
+		final DecodeEvent event = new DecodeEvent();
+		event.begin();
+		final int bytes = src.remaining();
+		this.receivedNanos = receivedNanos;
+		final int frames = this.decoder.decode(src);
+		if (event.shouldCommit()) {
+			event.robot = this.id;
+			event.bytes = bytes;
+			event.frames = frames;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Record every frame received from now on.
+	 * 
+	 * @param recorder
+	 *            <code>null</code> to stop recording.
+	 */
+	public void setRecorder(final TraceRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	@Override
+	public void frameReceived(final LegMessageView frame) {
+		this.statistics.recordDecode(System.nanoTime() - this.receivedNanos);
+		if (this.recorder != null) {
+			try {
+				this.recorder.record(TraceDirection.RECEIVED, this.id, frame);
+			} catch (final IOException e) {
+				// Stop recording, but keep driving the hexapod
+				e.printStackTrace();
+				this.recorder = null;
+			}
+		}
+		if (!this.executing) {
+			this.execute(frame);
+		} else if (this.pendingCount < PENDING_CAPACITY) {
+			final int slot = (this.pendingHead + this.pendingCount) % PENDING_CAPACITY;
+			this.pendingView.wrap(this.pending, slot * BasicMessage.MESSAGE_LENGTH).copyFrom(frame);
+			this.pendingCount++;
+		} else {
+			this.statistics.recordOverflow();
+			this.acknowledge(false, frame.getUnsignedByte(HexapodProtocol.SEQUENCE_INDEX));
+		}
+	}
+
+	@Override
+	public void frameRejected() {
+		this.acknowledge(false, HexapodProtocol.UNKNOWN_SEQUENCE);
+	}
+
+	private void execute(final LegMessageView pose) {
+		this.executing = true;
+		this.executingSequence = pose.getUnsignedByte(HexapodProtocol.SEQUENCE_INDEX);
+		this.executedNanos = System.nanoTime();
+		this.moved = false;
+		this.waiting = true;
+		this.deadline = this.executedNanos + SETTLE_TIMEOUT;
+		this.target.setMessage(pose);
+	}
+
+	/**
+	 * Acknowledge the pose in execution if the hexapod stopped or timed out,
+	 * then start the next queued pose.
+	 * 
+	 * @param now
+	 *            {@link System#nanoTime()} of the poll.
+	 * @return the time at which the session must be polled again, or
+	 *         {@link Long#MAX_VALUE} if it waits for nothing.
+	 */
+	public long poll(final long now) {
+		if (!this.executing) {
+			return Long.MAX_VALUE;
+		}
+		if (this.waiting) {
+			if (now - this.deadline < 0) {
+				return this.deadline;
+			}
+			this.waiting = false;
+			this.statistics.recordTimeout();
+			this.acknowledge(false, this.executingSequence);
+		} else {
+			this.acknowledge(true, this.executingSequence);
+		}
+		this.statistics.recordAckLatency(now - this.executedNanos);
+		this.executing = false;
+		if (this.pendingCount == 0) {
+			return Long.MAX_VALUE;
+		}
+		this.execute(this.pendingView.wrap(this.pending, this.pendingHead * BasicMessage.MESSAGE_LENGTH));
+		this.pendingHead = (this.pendingHead + 1) % PENDING_CAPACITY;
+		this.pendingCount--;
+		return this.deadline;
+	}
+
+	private void acknowledge(final boolean accepted, final int sequence) {
+		if (this.open) {
+			this.protocol.putAck(this.acks, accepted, sequence);
+			this.statistics.recordAck(accepted);
+		}
+	}
+
+	/** @return <code>true</code> if acknowledgements wait to be written. */
+	public boolean hasAcks() {
+		return this.acks.position() > 0;
+	}
+
+	/**
+	 * Write the pending acknowledgements to {@code out}. Never blocks on a
+	 * non-blocking channel.
+	 * 
+	 * @param out
+	 * @return <code>true</code> if everything was written.
+	 * @throws IOException
+	 */
+	public boolean flush(final WritableByteChannel out)
+			throws IOException {
+		if (this.acks.position() > 0) {
+			this.acks.flip();
+			try {
+				out.write(this.acks);
+			} finally {
+				this.acks.compact();
+			}
+		}
+		return this.acks.position() == 0;
+	}
+
+	/**
+	 * Called from the render thread when a joint of the hexapod starts moving,
+	 * to measure the first motion latency of the pose in execution.
+	 */
+	public void notifyHexapodStarted() {
+		if (this.waiting && !this.moved) {
+			this.moved = true;
+			this.statistics.recordFirstMotion(System.nanoTime() - this.executedNanos);
+		}
+	}
+
+	/**
+	 * Called from the render thread when the hexapod stops: wake the owner up
+	 * so that the pose is acknowledged.
+	 */
+	public void notifyHexapodStopped() {
+		if (this.waiting) {
+			this.waiting = false;
+			this.statistics.recordSettle(System.nanoTime() - this.executedNanos);
+			final Runnable wakeup = this.wakeup;
+			if (wakeup != null) {
+				wakeup.run();
+			}
+		}
+	}
+}
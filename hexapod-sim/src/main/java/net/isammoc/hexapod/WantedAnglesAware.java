@@ -1,5 +1,5 @@
-package net.isammoc.hexapod;
-
-public interface WantedAnglesAware {
-	void setWantedAngle(final HexapodLeg leg, final HexapodArticulation articulation, final float value);
-}
+package net.isammoc.hexapod;
+
+public interface WantedAnglesAware {
+	void setWantedAngle(final HexapodLeg leg, final HexapodArticulation articulation, final float value);
+}
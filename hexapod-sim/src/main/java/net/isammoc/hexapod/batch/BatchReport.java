@@ -0,0 +1,85 @@
+package net.isammoc.hexapod.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of a batch of worlds, in the order of the worlds.
+ */
+public class BatchReport {
+	private final List<WorldResult> results;
+	private final long wallNanos;
+	private final int parallelism;
+
+	BatchReport(final List<WorldResult> results, final long wallNanos, final int parallelism) {
+		this.results = Collections.unmodifiableList(new ArrayList<WorldResult>(results));
+		this.wallNanos = wallNanos;
+		this.parallelism = parallelism;
+	}
+
+	public List<WorldResult> getResults() {
+		return this.results;
+	}
+
+	/** @return the wall clock time of the whole batch. */
+	public long getWallNanos() {
+		return this.wallNanos;
+	}
+
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/** @return the simulated seconds of all the worlds. */
+	public double getSimulatedSeconds() {
+		double seconds = 0;
+		for (final WorldResult result : this.results) {
+			seconds += result.getSimulatedSeconds();
+		}
+		return seconds;
+	}
+
+	/** @return the simulated time of all the worlds over the wall clock time. */
+	public double getRealTimeFactor() {
+		return this.wallNanos == 0 ? 0 : this.getSimulatedSeconds() / (this.wallNanos / 1e9);
+	}
+
+	public int getFalls() {
+		int falls = 0;
+		for (final WorldResult result : this.results) {
+			falls += result.getFalls();
+		}
+		return falls;
+	}
+
+	/**
+	 * @return a table of the results, a line per world, then the totals.
+	 */
+	public String format() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-24s %-10s %10s %10s %10s %6s %8s %10s %10s %10s%n", "world", "controller",
+				"friction", "impulse", "distance", "falls", "settles", "mean ticks", "max ticks", "unsettled"));
+		for (final WorldResult result : this.results) {
+			sb.append(String.format("%-24s %-10s %10.4g %10.4g %10.3f %6d ", result.getName(), result.getParameters()
+					.getController(), result.getParameters().getFriction(), result.getParameters().getMotorImpulse(),
+					result.getDistance(), result.getFalls()));
+			if (result.isSettleMeasured()) {
+				sb.append(String.format("%8d %10.1f %10d %10d%n", result.getSettles(), result.getMeanSettleSteps(),
+						result.getMaxSettleSteps(), result.getUnsettled()));
+			} else {
+				// Streamed poses are replaced before they are reached
+				sb.append(String.format("%8s %10s %10s %10s%n", "-", "-", "-", "-"));
+			}
+		}
+		sb.append(String.format("%d worlds, %.1f s simulated in %.1f s on %d threads, real-time factor %.2f, %d falls%n",
+				this.results.size(), this.getSimulatedSeconds(), this.wallNanos / 1e9, this.parallelism,
+				this.getRealTimeFactor(), this.getFalls()));
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return this.format();
+	}
+}
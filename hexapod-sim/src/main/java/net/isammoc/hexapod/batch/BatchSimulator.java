@@ -0,0 +1,172 @@
+package net.isammoc.hexapod.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import net.isammoc.hexapod.HexapodNode;
+import net.isammoc.hexapod.JointControllerType;
+import net.isammoc.hexapod.gait.GaitGenerator;
+import net.isammoc.hexapod.gait.GaitType;
+
+/**
+ * Run many independent worlds in parallel, for parameter sweeps.
+ * <p>
+ * Each world is a fork-join task: it is built, stepped to its end and
+ * destroyed by the worker which runs it, so that the physics of a world is
+ * only touched by one thread and no locking is needed. The pool balances the
+ * worlds over the workers, one per core by default.
+ */
+public class BatchSimulator {
+	private final ForkJoinPool pool;
+
+	/** Creates a simulator with a worker per core. */
+	public BatchSimulator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public BatchSimulator(final int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Run {@code worlds} and wait for all of them.
+	 * 
+	 * @param worlds
+	 * @return the report, with the results in the order of {@code worlds}.
+	 */
+	public BatchReport run(final List<SimulationWorld> worlds) {
+		final long start = System.nanoTime();
+		final List<WorldResult> results = this.pool.invoke(new BatchTask(worlds));
+		return new BatchReport(results, System.nanoTime() - start, this.pool.getParallelism());
+	}
+
+	public void shutdown() {
+		this.pool.shutdown();
+	}
+
+	private static class BatchTask extends RecursiveTask<List<WorldResult>> {
+		private static final long serialVersionUID = 1L;
+		private final List<SimulationWorld> worlds;
+
+		BatchTask(final List<SimulationWorld> worlds) {
+			this.worlds = worlds;
+		}
+
+		@Override
+		protected List<WorldResult> compute() {
+			final List<WorldTask> tasks = new ArrayList<WorldTask>(this.worlds.size());
+			for (final SimulationWorld world : this.worlds) {
+				tasks.add(new WorldTask(world));
+			}
+			invokeAll(tasks);
+			final List<WorldResult> results = new ArrayList<WorldResult>(tasks.size());
+			for (final WorldTask task : tasks) {
+				results.add(task.join());
+			}
+			return results;
+		}
+	}
+
+	private static class WorldTask extends RecursiveTask<WorldResult> {
+		private static final long serialVersionUID = 1L;
+		private final SimulationWorld world;
+
+		WorldTask(final SimulationWorld world) {
+			this.world = world;
+		}
+
+		@Override
+		protected WorldResult compute() {
+			return this.world.run();
+		}
+	}
+
+	/**
+	 * Sweep control law, friction, motor impulse and gait period.
+	 * <p>
+	 * Without <code>--gait</code>, the hexapod lifts its tripods in turn
+	 * without walking, its elbows moved by the amplitude; with it, a
+	 * {@link GaitCommander} walks forward with the stride and foot lift.
+	 * 
+	 * @param args
+	 *            <code>--controller bang-bang,pid --friction a,b,..
+	 *            --impulse a,b,.. --period a,b,..
+	 *            --amplitude n --gait tripod|wave|ripple --stride distance
+	 *            --lift height --duration seconds --threads n</code>, all
+	 *            optional.
+	 */
+	public static void main(final String[] args) {
+		float[] frictions = { HexapodNode.FLOOR_FRICTION };
+		float[] impulses = { HexapodNode.MOTOR_IMPULSE };
+		float[] periods = { 1f };
+		JointControllerType[] controllers = { JointControllerType.BANG_BANG };
+		int amplitude = 40;
+		GaitType gait = null;
+		float stride = 3f;
+		float lift = 1.5f;
+		float duration = 60;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			final String value = args[i + 1];
+			if ("--friction".equals(args[i])) {
+				frictions = parseFloats(value);
+			} else if ("--impulse".equals(args[i])) {
+				impulses = parseFloats(value);
+			} else if ("--period".equals(args[i])) {
+				periods = parseFloats(value);
+			} else if ("--controller".equals(args[i])) {
+				final String[] names = value.split(",");
+				controllers = new JointControllerType[names.length];
+				for (int j = 0; j < names.length; j++) {
+					controllers[j] = JointControllerType.parse(names[j]);
+				}
+			} else if ("--amplitude".equals(args[i])) {
+				amplitude = Integer.parseInt(value);
+			} else if ("--gait".equals(args[i])) {
+				gait = GaitType.valueOf(value.toUpperCase(Locale.ROOT));
+			} else if ("--stride".equals(args[i])) {
+				stride = Float.parseFloat(value);
+			} else if ("--lift".equals(args[i])) {
+				lift = Float.parseFloat(value);
+			} else if ("--duration".equals(args[i])) {
+				duration = Float.parseFloat(value);
+			} else if ("--threads".equals(args[i])) {
+				threads = Integer.parseInt(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		final List<SimulationWorld> worlds = new ArrayList<SimulationWorld>();
+		for (final JointControllerType controller : controllers) {
+			for (final float friction : frictions) {
+				for (final float impulse : impulses) {
+					for (final float period : periods) {
+						final WorldCommander commander = gait == null ? PoseCycle.alternateTripods(period,
+								amplitude) : new GaitCommander(new GaitGenerator(gait, stride, 0, lift, 1 / period));
+						worlds.add(new SimulationWorld(String.format("period=%g", period), new WorldParameters(
+								friction, impulse, WorldParameters.DEFAULT_STEP, duration, controller), commander));
+					}
+				}
+			}
+		}
+		final BatchSimulator simulator = new BatchSimulator(threads);
+		try {
+			System.out.print(simulator.run(worlds).format());
+		} finally {
+			simulator.shutdown();
+		}
+	}
+
+	private static float[] parseFloats(final String values) {
+		final String[] split = values.split(",");
+		final float[] floats = new float[split.length];
+		for (int i = 0; i < split.length; i++) {
+			floats[i] = Float.parseFloat(split[i].trim());
+		}
+		return floats;
+	}
+}
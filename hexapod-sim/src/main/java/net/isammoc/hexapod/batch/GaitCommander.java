@@ -0,0 +1,35 @@
+package net.isammoc.hexapod.batch;
+
+import net.isammoc.hexapod.LegMessageAware;
+import net.isammoc.hexapod.communication.LegMessage;
+import net.isammoc.hexapod.gait.GaitGenerator;
+
+/**
+ * Stream the poses of a gait, one per step of the world.
+ */
+public class GaitCommander implements WorldCommander {
+	private final GaitGenerator generator;
+	private final LegMessage pose = new LegMessage();
+	private float last;
+
+	/**
+	 * @param generator
+	 *            owned by the commander from now on.
+	 */
+	public GaitCommander(final GaitGenerator generator) {
+		this.generator = generator;
+	}
+
+	@Override
+	public void update(final float time, final LegMessageAware hexapod) {
+		this.generator.next(time - this.last, this.pose);
+		this.last = time;
+		hexapod.setMessage(this.pose);
+	}
+
+	/** @return <code>true</code>: a gait never waits for a pose to be reached. */
+	@Override
+	public boolean isStreamed() {
+		return true;
+	}
+}
@@ -0,0 +1,70 @@
+package net.isammoc.hexapod.batch;
+
+import net.isammoc.hexapod.HexapodArticulation;
+import net.isammoc.hexapod.HexapodLeg;
+import net.isammoc.hexapod.LegMessageAware;
+import net.isammoc.hexapod.communication.ILegMessage;
+import net.isammoc.hexapod.communication.LegMessage;
+
+/**
+ * Send a cycle of poses, each for a fixed period.
+ */
+public class PoseCycle implements WorldCommander {
+	private final ILegMessage[] poses;
+	private final float period;
+	private int current = -1;
+
+	/**
+	 * @param period
+	 *            simulated seconds per pose.
+	 * @param poses
+	 */
+	public PoseCycle(final float period, final ILegMessage... poses) {
+		if ((poses.length == 0) || !(period > 0)) {
+			throw new IllegalArgumentException("At least one pose and a positive period are needed");
+		}
+		this.poses = poses.clone();
+		this.period = period;
+	}
+
+	/**
+	 * Lift the legs of each tripod in turn: right front, left middle and
+	 * right rear, then the others.
+	 * 
+	 * @param period
+	 *            simulated seconds per pose.
+	 * @param amplitude
+	 *            elbow offset of the lifted legs, in servo units of the right
+	 *            legs: the bytes of the left legs are mirrored.
+	 * @return the cycle.
+	 */
+	public static PoseCycle alternateTripods(final float period, final int amplitude) {
+		final LegMessage first = new LegMessage();
+		final LegMessage second = new LegMessage();
+		for (final HexapodLeg leg : HexapodLeg.values()) {
+			final boolean firstTripod = (leg == HexapodLeg.RIGHT_FRONT) || (leg == HexapodLeg.LEFT_MIDDLE)
+					|| (leg == HexapodLeg.RIGHT_REAR);
+			final boolean right = (leg == HexapodLeg.RIGHT_FRONT) || (leg == HexapodLeg.RIGHT_MIDDLE)
+					|| (leg == HexapodLeg.RIGHT_REAR);
+			// A left elbow lifts as its byte decreases
+			(firstTripod ? first : second).setUnsignedByte(leg, HexapodArticulation.ELBOW,
+					right ? 127 + amplitude : 127 - amplitude);
+		}
+		return new PoseCycle(period, first, second);
+	}
+
+	@Override
+	public void update(final float time, final LegMessageAware hexapod) {
+		final int index = (int) (time / this.period) % this.poses.length;
+		if (index != this.current) {
+			this.current = index;
+			hexapod.setMessage(this.poses[index]);
+		}
+	}
+
+	/** @return <code>false</code>: each pose is held for a whole period. */
+	@Override
+	public boolean isStreamed() {
+		return false;
+	}
+}
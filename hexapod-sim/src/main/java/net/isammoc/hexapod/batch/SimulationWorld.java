@@ -0,0 +1,177 @@
+package net.isammoc.hexapod.batch;
+
+import net.isammoc.hexapod.HexapodConverter;
+import net.isammoc.hexapod.HexapodMotionAdapter;
+import net.isammoc.hexapod.HexapodNode;
+import net.isammoc.hexapod.LegMessageAware;
+import net.isammoc.hexapod.communication.ILegMessage;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsSpace.BroadphaseType;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+
+/**
+ * A hexapod on a floor, in its own physics space, without rendering.
+ * <p>
+ * The physics objects are created, stepped and destroyed by {@link #run()},
+ * on the calling thread only: worlds run on different threads share nothing.
+ */
+public class SimulationWorld {
+	/** The base is fallen when its up axis is more than 60 degrees off the vertical. */
+	private static final float FALLEN_UP_Y = 0.5f;
+
+	private final String name;
+	private final WorldParameters parameters;
+	private final WorldCommander commander;
+
+	/**
+	 * @param name
+	 *            name of the world in the report.
+	 * @param parameters
+	 * @param commander
+	 *            commander of this world only.
+	 */
+	public SimulationWorld(final String name, final WorldParameters parameters, final WorldCommander commander) {
+		this.name = name;
+		this.parameters = parameters;
+		this.commander = commander;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public WorldParameters getParameters() {
+		return this.parameters;
+	}
+
+	/**
+	 * Build the world, step it for the duration of its parameters, and
+	 * measure the hexapod.
+	 * 
+	 * @return the result.
+	 */
+	public WorldResult run() {
+		final long start = System.nanoTime();
+		final PhysicsSpace space = new PhysicsSpace(new Vector3f(-1000, -100, -1000), new Vector3f(1000, 1000, 1000),
+				BroadphaseType.DBVT);
+		try {
+			space.setAccuracy(0.005f);
+
+			final PhysicsRigidBody floor = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(1000f, 0.1f,
+					1000f)), 0);
+			floor.setPhysicsLocation(new Vector3f(0, -0.1f, 0));
+			floor.setFriction(this.parameters.getFriction());
+			space.addCollisionObject(floor);
+
+			final HexapodNode hexapod = new HexapodNode(this.parameters.getFriction(),
+					this.parameters.getMotorImpulse(), this.parameters.getController().create());
+			hexapod.setLocalTransform(new Transform(new Vector3f(0, 10, 0)));
+			space.addAll(hexapod);
+			space.addTickListener(hexapod);
+			return this.step(space, hexapod, start);
+		} finally {
+			space.destroy();
+		}
+	}
+
+	private WorldResult step(final PhysicsSpace space, final HexapodNode hexapod, final long start) {
+		final Metrics metrics = new Metrics();
+		hexapod.addMotionListener(metrics);
+		space.addTickListener(metrics);
+		final LegMessageAware converter = new HexapodConverter(hexapod);
+		final boolean settleMeasured = !this.commander.isStreamed();
+		final LegMessageAware target = new LegMessageAware() {
+			@Override
+			public void setMessage(final ILegMessage msg) {
+				if (settleMeasured) {
+					metrics.commanded();
+				}
+				converter.setMessage(msg);
+			}
+		};
+
+		final RigidBodyControl base = hexapod.getBaseControl();
+		final Vector3f origin = base.getPhysicsLocation();
+		final Quaternion rotation = new Quaternion();
+		final Vector3f up = new Vector3f();
+		final float step = this.parameters.getStep();
+		final long steps = (long) Math.ceil(this.parameters.getDuration() / step);
+		// Enough substeps for the whole step, jME stops at 4 by default
+		final int subSteps = Math.max(1, (int) Math.ceil(step / space.getAccuracy()));
+		boolean fallen = false;
+		for (long i = 0; i < steps; i++) {
+			this.commander.update(i * step, target);
+			space.update(step, subSteps);
+
+			base.getPhysicsRotation(rotation).mult(Vector3f.UNIT_Y, up);
+			final boolean down = up.y < FALLEN_UP_Y;
+			if (down && !fallen) {
+				metrics.falls++;
+			}
+			fallen = down;
+		}
+		if (metrics.pending) {
+			metrics.unsettled++;
+		}
+
+		final Vector3f end = base.getPhysicsLocation();
+		final float distance = (float) Math.hypot(end.x - origin.x, end.z - origin.z);
+		return new WorldResult(this.name, this.parameters, steps * step, System.nanoTime() - start, distance,
+				metrics.falls, settleMeasured, space.getAccuracy(), metrics.settles, metrics.settles == 0 ? 0
+						: (float) metrics.settleSteps / metrics.settles, metrics.maxSettleSteps, metrics.unsettled);
+	}
+
+	/**
+	 * Settle steps and falls, updated from the thread of the world. The
+	 * joints are controlled before each physics substep, so the settle steps
+	 * are counted in substeps: a pose commanded before substep i and reached
+	 * in the control of substep j took j - i + 1 of them.
+	 */
+	private static class Metrics extends HexapodMotionAdapter implements PhysicsTickListener {
+		/** Physics substeps done so far. */
+		long step;
+		boolean pending;
+		long commandStep;
+		int settles;
+		long settleSteps;
+		int maxSettleSteps;
+		int unsettled;
+		int falls;
+
+		void commanded() {
+			if (this.pending) {
+				this.unsettled++;
+			}
+			this.pending = true;
+			this.commandStep = this.step;
+		}
+
+		@Override
+		public void robotSettled() {
+			if (this.pending) {
+				this.pending = false;
+				final int steps = (int) (this.step - this.commandStep) + 1;
+				this.settles++;
+				this.settleSteps += steps;
+				this.maxSettleSteps = Math.max(this.maxSettleSteps, steps);
+			}
+		}
+
+		@Override
+		public void prePhysicsTick(final PhysicsSpace space, final float tpf) {
+			// Counted once the substep is done
+		}
+
+		@Override
+		public void physicsTick(final PhysicsSpace space, final float tpf) {
+			this.step++;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package net.isammoc.hexapod.batch;
+
+import net.isammoc.hexapod.LegMessageAware;
+
+/**
+ * Commands of the hexapod of a simulated world, a gait for instance.
+ * <p>
+ * A commander belongs to a single world: it is called from the thread of
+ * this world only, and may keep state.
+ */
+public interface WorldCommander {
+	/**
+	 * Called before each step of the world.
+	 * 
+	 * @param time
+	 *            simulated seconds since the start of the world.
+	 * @param hexapod
+	 *            receives the poses, as from a controller.
+	 */
+	void update(final float time, final LegMessageAware hexapod);
+
+	/**
+	 * @return whether a new pose is sent on every step, so that the hexapod
+	 *         is not expected to settle in between: the settle steps of the
+	 *         world are then not measured.
+	 */
+	boolean isStreamed();
+}
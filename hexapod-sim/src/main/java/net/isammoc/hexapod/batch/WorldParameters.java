@@ -0,0 +1,89 @@
+package net.isammoc.hexapod.batch;
+
+import net.isammoc.hexapod.HexapodNode;
+import net.isammoc.hexapod.JointControllerType;
+
+/**
+ * Physical parameters of a simulated world.
+ */
+public class WorldParameters {
+	/** Default simulated seconds per step. */
+	public static final float DEFAULT_STEP = 1f / 60;
+
+	private final float friction;
+	private final float motorImpulse;
+	private final float step;
+	private final float duration;
+	private final JointControllerType controller;
+
+	/**
+	 * Parameters with a {@link JointControllerType#BANG_BANG} control law.
+	 * 
+	 * @see #WorldParameters(float, float, float, float, JointControllerType)
+	 */
+	public WorldParameters(final float friction, final float motorImpulse, final float step, final float duration) {
+		this(friction, motorImpulse, step, duration, JointControllerType.BANG_BANG);
+	}
+
+	/**
+	 * @param friction
+	 *            friction of the floor and of the parts of the hexapod.
+	 * @param motorImpulse
+	 *            maximum impulse of the motors.
+	 * @param step
+	 *            simulated seconds per step.
+	 * @param duration
+	 *            simulated seconds of the run.
+	 * @param controller
+	 *            control law of the motors.
+	 */
+	public WorldParameters(final float friction, final float motorImpulse, final float step, final float duration,
+			final JointControllerType controller) {
+		if (!(step > 0) || !(duration > 0)) {
+			throw new IllegalArgumentException("step and duration must be positive");
+		}
+		if (controller == null) {
+			throw new NullPointerException("controller must not be null");
+		}
+		this.friction = friction;
+		this.motorImpulse = motorImpulse;
+		this.step = step;
+		this.duration = duration;
+		this.controller = controller;
+	}
+
+	/**
+	 * Parameters of the interactive simulation, for {@code duration} seconds.
+	 * 
+	 * @param duration
+	 */
+	public WorldParameters(final float duration) {
+		this(HexapodNode.FLOOR_FRICTION, HexapodNode.MOTOR_IMPULSE, DEFAULT_STEP, duration);
+	}
+
+	public float getFriction() {
+		return this.friction;
+	}
+
+	public float getMotorImpulse() {
+		return this.motorImpulse;
+	}
+
+	public float getStep() {
+		return this.step;
+	}
+
+	public float getDuration() {
+		return this.duration;
+	}
+
+	public JointControllerType getController() {
+		return this.controller;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("friction=%g impulse=%g step=%g duration=%g controller=%s", this.friction,
+				this.motorImpulse, this.step, this.duration, this.controller);
+	}
+}
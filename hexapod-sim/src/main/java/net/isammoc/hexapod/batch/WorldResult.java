@@ -0,0 +1,109 @@
+package net.isammoc.hexapod.batch;
+
+/**
+ * Outcome of the run of a simulated world.
+ */
+public class WorldResult {
+	private final String name;
+	private final WorldParameters parameters;
+	private final float simulatedSeconds;
+	private final long wallNanos;
+	private final float distance;
+	private final int falls;
+	private final boolean settleMeasured;
+	private final float physicsStep;
+	private final int settles;
+	private final float meanSettleSteps;
+	private final int maxSettleSteps;
+	private final int unsettled;
+
+	WorldResult(final String name, final WorldParameters parameters, final float simulatedSeconds,
+			final long wallNanos, final float distance, final int falls, final boolean settleMeasured,
+			final float physicsStep, final int settles, final float meanSettleSteps, final int maxSettleSteps,
+			final int unsettled) {
+		this.name = name;
+		this.parameters = parameters;
+		this.simulatedSeconds = simulatedSeconds;
+		this.wallNanos = wallNanos;
+		this.distance = distance;
+		this.falls = falls;
+		this.settleMeasured = settleMeasured;
+		this.physicsStep = physicsStep;
+		this.settles = settles;
+		this.meanSettleSteps = meanSettleSteps;
+		this.maxSettleSteps = maxSettleSteps;
+		this.unsettled = unsettled;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public WorldParameters getParameters() {
+		return this.parameters;
+	}
+
+	public float getSimulatedSeconds() {
+		return this.simulatedSeconds;
+	}
+
+	public long getWallNanos() {
+		return this.wallNanos;
+	}
+
+	/** @return the horizontal distance between the start and the end of the base. */
+	public float getDistance() {
+		return this.distance;
+	}
+
+	/** @return the number of times the base tipped over. */
+	public int getFalls() {
+		return this.falls;
+	}
+
+	/**
+	 * @return whether the settle metrics were measured, which they are not
+	 *         when the poses are streamed: they are all 0 then.
+	 * @see WorldCommander#isStreamed()
+	 */
+	public boolean isSettleMeasured() {
+		return this.settleMeasured;
+	}
+
+	/** @return the number of poses reached. */
+	public int getSettles() {
+		return this.settles;
+	}
+
+	/** @return the duration of a physics substep, in simulated seconds. */
+	public float getPhysicsStep() {
+		return this.physicsStep;
+	}
+
+	/**
+	 * @return the mean number of physics substeps to reach a pose, 0 if none
+	 *         was.
+	 */
+	public float getMeanSettleSteps() {
+		return this.meanSettleSteps;
+	}
+
+	/** @return the largest number of physics substeps to reach a pose. */
+	public int getMaxSettleSteps() {
+		return this.maxSettleSteps;
+	}
+
+	/** @return the mean simulated seconds to reach a pose, 0 if none was. */
+	public float getMeanSettleTime() {
+		return this.meanSettleSteps * this.physicsStep;
+	}
+
+	public float getMaxSettleTime() {
+		return this.maxSettleSteps * this.physicsStep;
+	}
+
+	/** @return the number of poses replaced or ended before being reached. */
+	public int getUnsettled() {
+		return this.unsettled;
+	}
+}
@@ -0,0 +1,22 @@
+package net.isammoc.hexapod.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Control of the joints of a hexapod before a physics substep. */
+@Name("net.isammoc.hexapod.Control")
+@Label("Control")
+@Description("Control of the joint motors of a hexapod before a physics substep")
+public class ControlEvent extends HexapodEvent {
+	@Label("Robot")
+	public int robot;
+
+	@Label("Step")
+	@Description("Number of the physics substep")
+	public long step;
+
+	@Label("Moving Joints")
+	@Description("Number of joints driven towards their wanted angle")
+	public int movingJoints;
+}
@@ -0,0 +1,18 @@
+package net.isammoc.hexapod.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Conversion of the latest pose into the wanted angles of a hexapod. */
+@Name("net.isammoc.hexapod.Convert")
+@Label("Convert")
+@Description("Conversion of the latest pose received into the wanted angles of a hexapod")
+public class ConvertEvent extends HexapodEvent {
+	@Label("Robot")
+	public int robot;
+
+	@Label("Step")
+	@Description("Number of the physics substep")
+	public long step;
+}
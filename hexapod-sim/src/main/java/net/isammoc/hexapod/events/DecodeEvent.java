@@ -0,0 +1,23 @@
+package net.isammoc.hexapod.events;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Decoding of the bytes read from a controller, and execution of the poses. */
+@Name("net.isammoc.hexapod.Decode")
+@Label("Decode")
+@Description("Decoding of the bytes read from a controller, queuing or execution of the decoded poses")
+public class DecodeEvent extends HexapodEvent {
+	@Label("Robot")
+	public int robot;
+
+	@Label("Bytes")
+	@DataAmount
+	public int bytes;
+
+	@Label("Frames")
+	@Description("Number of valid frames decoded from these bytes")
+	public int frames;
+}
@@ -0,0 +1,36 @@
+package net.isammoc.hexapod.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a phase of the simulation.
+ * <p>
+ * Disabled by default: until a recording enables it, for instance with the
+ * settings of hexapod.jfc,
+ * 
+ * <pre>
+ * -XX:StartFlightRecording:settings=default,settings=hexapod.jfc
+ * </pre>
+ * 
+ * an event is neither timed nor committed, and the JIT compiler removes most
+ * of it. The usage is always:
+ * 
+ * <pre>
+ * final DecodeEvent event = new DecodeEvent();
+ * event.begin();
+ * // the phase
+ * if (event.shouldCommit()) {
+ * 	event.robot = robot;
+ * 	event.commit();
+ * }
+ * </pre>
+ */
+@Category("Hexapod")
+@Enabled(false)
+@StackTrace(false)
+public abstract class HexapodEvent extends Event {
+	// Common settings only
+}
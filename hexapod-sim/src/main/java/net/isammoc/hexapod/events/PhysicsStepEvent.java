@@ -0,0 +1,18 @@
+package net.isammoc.hexapod.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A physics substep, from the delivery of the poses to its end. */
+@Name("net.isammoc.hexapod.PhysicsStep")
+@Label("Physics Step")
+@Description("Physics substep, from the delivery of the poses to the end of the simulation step, the control of "
+		+ "the hexapods included")
+public class PhysicsStepEvent extends HexapodEvent {
+	@Label("Step")
+	public long step;
+
+	@Label("Robots")
+	public int robots;
+}
@@ -0,0 +1,14 @@
+package net.isammoc.hexapod.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Rendering of a frame, once the physics is stepped. */
+@Name("net.isammoc.hexapod.Render")
+@Label("Render")
+@Description("Rendering of the scene of a frame, after the physics steps of the frame")
+public class RenderEvent extends HexapodEvent {
+	@Label("Frame")
+	public long frame;
+}
@@ -0,0 +1,23 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.HexapodNode;
+import net.isammoc.hexapod.HexapodServo;
+
+/**
+ * Joints of a simulated {@link HexapodNode}. Angles are in radians, indexed by
+ * {@link HexapodServo} ordinal.
+ */
+public interface HexapodNodeMXBean {
+	/** @return the name of the control law of the motors. */
+	String getController();
+
+	int getMovingJoints();
+
+	/** @return bit {@code i} set if the joint of servo ordinal {@code i} moves. */
+	int getMovingMask();
+
+	/** @return the angles of the joints at the last physics tick. */
+	float[] getJointAngles();
+
+	float[] getWantedAngles();
+}
@@ -0,0 +1,46 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.HexapodNode;
+import net.isammoc.hexapod.HexapodServo;
+
+/** {@link HexapodNodeMXBean} of a {@link HexapodNode}. */
+public class HexapodNodeMonitor implements HexapodNodeMXBean {
+	private final HexapodNode hexapod;
+
+	public HexapodNodeMonitor(final HexapodNode hexapod) {
+		this.hexapod = hexapod;
+	}
+
+	@Override
+	public String getController() {
+		return this.hexapod.getController().getClass().getSimpleName();
+	}
+
+	@Override
+	public int getMovingJoints() {
+		return Integer.bitCount(this.hexapod.getMovingMask());
+	}
+
+	@Override
+	public int getMovingMask() {
+		return this.hexapod.getMovingMask();
+	}
+
+	@Override
+	public float[] getJointAngles() {
+		final float[] angles = new float[HexapodServo.JOINT_COUNT];
+		for (int i = 0; i < angles.length; i++) {
+			angles[i] = this.hexapod.getJointAngle(i);
+		}
+		return angles;
+	}
+
+	@Override
+	public float[] getWantedAngles() {
+		final float[] angles = new float[HexapodServo.JOINT_COUNT];
+		for (int i = 0; i < angles.length; i++) {
+			angles[i] = this.hexapod.getWantedAngle(i);
+		}
+		return angles;
+	}
+}
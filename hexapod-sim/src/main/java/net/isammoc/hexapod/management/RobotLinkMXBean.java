@@ -0,0 +1,44 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.RobotSession;
+import net.isammoc.hexapod.communication.LinkStatistics;
+
+/**
+ * Receive side of the link of a simulated hexapod with its controller, from
+ * the {@link LinkStatistics} of its {@link RobotSession}.
+ */
+public interface RobotLinkMXBean {
+	boolean isConnected();
+
+	long getFramesReceived();
+
+	/** @return frames received per second, measured by a {@link RateMeter}. */
+	double getFramesInPerSecond();
+
+	long getChecksumErrors();
+
+	long getInvalidFrames();
+
+	long getBytesDiscarded();
+
+	long getAcks();
+
+	long getNacks();
+
+	long getTimeouts();
+
+	long getOverflows();
+
+	/** @return number of poses waiting for the one in execution. */
+	int getQueueDepth();
+
+	LatencySummary getDecodeLatency();
+
+	LatencySummary getFirstMotionLatency();
+
+	LatencySummary getSettleLatency();
+
+	LatencySummary getAckLatency();
+
+	void resetCounters();
+}
@@ -0,0 +1,99 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.RobotSession;
+import net.isammoc.hexapod.communication.FrameDecoder;
+import net.isammoc.hexapod.communication.LinkStatistics;
+
+/** {@link RobotLinkMXBean} of a {@link RobotSession}. */
+public class RobotLinkMonitor implements RobotLinkMXBean {
+	private final RobotSession session;
+	private final FrameDecoder decoder;
+	private final LinkStatistics statistics;
+	private final RateMeter framesIn = new RateMeter();
+
+	public RobotLinkMonitor(final RobotSession session) {
+		this.session = session;
+		this.decoder = session.getDecoder();
+		this.statistics = session.getStatistics();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return this.session.isOpen();
+	}
+
+	@Override
+	public long getFramesReceived() {
+		return this.decoder.getFramesDecoded();
+	}
+
+	@Override
+	public double getFramesInPerSecond() {
+		return this.framesIn.perSecond(this.getFramesReceived());
+	}
+
+	@Override
+	public long getChecksumErrors() {
+		return this.decoder.getChecksumErrors();
+	}
+
+	@Override
+	public long getInvalidFrames() {
+		return this.decoder.getInvalidFrames();
+	}
+
+	@Override
+	public long getBytesDiscarded() {
+		return this.decoder.getBytesDiscarded();
+	}
+
+	@Override
+	public long getAcks() {
+		return this.statistics.getAcks();
+	}
+
+	@Override
+	public long getNacks() {
+		return this.statistics.getNacks();
+	}
+
+	@Override
+	public long getTimeouts() {
+		return this.statistics.getTimeouts();
+	}
+
+	@Override
+	public long getOverflows() {
+		return this.statistics.getOverflows();
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return this.session.getQueueDepth();
+	}
+
+	@Override
+	public LatencySummary getDecodeLatency() {
+		return LatencySummary.of(this.statistics.getDecodeLatency().snapshot());
+	}
+
+	@Override
+	public LatencySummary getFirstMotionLatency() {
+		return LatencySummary.of(this.statistics.getFirstMotionLatency().snapshot());
+	}
+
+	@Override
+	public LatencySummary getSettleLatency() {
+		return LatencySummary.of(this.statistics.getSettleLatency().snapshot());
+	}
+
+	@Override
+	public LatencySummary getAckLatency() {
+		return LatencySummary.of(this.statistics.getAckLatency().snapshot());
+	}
+
+	@Override
+	public void resetCounters() {
+		this.statistics.reset();
+	}
+}
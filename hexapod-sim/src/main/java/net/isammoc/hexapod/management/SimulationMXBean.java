@@ -0,0 +1,43 @@
+package net.isammoc.hexapod.management;
+
+import net.isammoc.hexapod.HexapodJME;
+
+/**
+ * Physics of a running {@link HexapodJME}, with the operations to tune it
+ * without a restart.
+ */
+public interface SimulationMXBean {
+	int getRobotCount();
+
+	/**
+	 * @return wall time of the physics substeps, the control of the hexapods
+	 *         included.
+	 */
+	LatencySummary getPhysicsStepTime();
+
+	double getSimulatedSeconds();
+
+	/** @return simulated seconds per wall second, measured by a {@link RateMeter}. */
+	double getRealTimeFactor();
+
+	boolean isPhysicsPaused();
+
+	/** Freeze the physics, and the hexapods with it, until resumed. */
+	void pausePhysics();
+
+	void resumePhysics();
+
+	/** @return the duration of a physics substep, in seconds. */
+	float getPhysicsAccuracy();
+
+	/**
+	 * Change the duration of a physics substep, from the next frame.
+	 * 
+	 * @param accuracy
+	 *            in seconds, positive.
+	 */
+	void setPhysicsAccuracy(float accuracy);
+
+	/** Reset the physics step times. */
+	void resetCounters();
+}
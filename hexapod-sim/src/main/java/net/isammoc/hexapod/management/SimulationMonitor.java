@@ -0,0 +1,65 @@
+package net.isammoc.hexapod.management;
+
+import java.util.concurrent.TimeUnit;
+
+import net.isammoc.hexapod.HexapodJME;
+
+/** {@link SimulationMXBean} of a {@link HexapodJME}. */
+public class SimulationMonitor implements SimulationMXBean {
+	private final HexapodJME application;
+	private final RateMeter simulatedTime = new RateMeter();
+
+	public SimulationMonitor(final HexapodJME application) {
+		this.application = application;
+	}
+
+	@Override
+	public int getRobotCount() {
+		return this.application.getHexapods().size();
+	}
+
+	@Override
+	public LatencySummary getPhysicsStepTime() {
+		return LatencySummary.of(this.application.getPhysicsStepTime().snapshot());
+	}
+
+	@Override
+	public double getSimulatedSeconds() {
+		return this.application.getSimulatedNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	@Override
+	public double getRealTimeFactor() {
+		return this.simulatedTime.perSecond(this.application.getSimulatedNanos()) / TimeUnit.SECONDS.toNanos(1);
+	}
+
+	@Override
+	public boolean isPhysicsPaused() {
+		return this.application.isPhysicsPaused();
+	}
+
+	@Override
+	public void pausePhysics() {
+		this.application.setPhysicsPaused(true);
+	}
+
+	@Override
+	public void resumePhysics() {
+		this.application.setPhysicsPaused(false);
+	}
+
+	@Override
+	public float getPhysicsAccuracy() {
+		return this.application.getPhysicsAccuracy();
+	}
+
+	@Override
+	public void setPhysicsAccuracy(final float accuracy) {
+		this.application.setPhysicsAccuracy(accuracy);
+	}
+
+	@Override
+	public void resetCounters() {
+		this.application.getPhysicsStepTime().reset();
+	}
+}